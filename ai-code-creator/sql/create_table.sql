@@ -69,3 +69,29 @@ create table chat_history
 ) comment '对话历史' collate = utf8mb4_unicode_ci;
 
 
+
+
+
+-- 生成任务表
+create table generation_job
+(
+    id            bigint auto_increment comment 'id' primary key,
+    appId         bigint                             not null comment '应用id',
+    userId        bigint                             not null comment '创建用户id',
+    message       text                               not null comment '用户消息',
+    codeGenType   varchar(64)                        null comment '代码生成类型（枚举）',
+    status        varchar(32)                        not null comment '状态：queued/running/succeeded/failed',
+    generationId  varchar(64)                        null comment '生成流 ID（订阅和断线续传）',
+    eventCount    bigint   default 0                 not null comment '已输出的消息块数',
+    outputChars   bigint   default 0                 not null comment '已输出的字符数',
+    errorMessage  varchar(1024)                      null comment '失败原因',
+    startTime     datetime                           null comment '开始时间',
+    finishTime    datetime                           null comment '结束时间',
+    ownerNode     varchar(64)                        null comment '执行任务的服务实例',
+    heartbeatTime datetime default CURRENT_TIMESTAMP not null comment '执行实例最近一次续约时间',
+    createTime    datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    updateTime    datetime default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
+    isDelete      tinyint  default 0                 not null comment '是否删除',
+    INDEX idx_appId_createTime (appId, createTime), -- 按应用查询最近的任务
+    INDEX idx_status (status)                       -- 查找租约过期的未结束任务
+) comment '生成任务' collate = utf8mb4_unicode_ci;
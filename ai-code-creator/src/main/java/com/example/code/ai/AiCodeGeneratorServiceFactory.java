@@ -1,6 +1,8 @@
 package com.example.code.ai;
 
 
+import com.example.code.ai.memory.TieredChatMemoryStore;
+import com.example.code.ai.memory.TokenBudgetChatMemory;
 import com.example.code.ai.model.enums.CodeGenTypeEnum;
 import com.example.code.ai.tools.*;
 import com.example.code.exception.BusinessException;
@@ -8,18 +10,28 @@ import com.example.code.exception.ErrorCode;
 import com.example.code.service.ChatHistoryService;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import dev.langchain4j.community.store.memory.chat.redis.RedisChatMemoryStore;
+import dev.langchain4j.memory.ChatMemory;
 import dev.langchain4j.data.message.ToolExecutionResultMessage;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.TokenCountEstimator;
 import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.openai.OpenAiChatModelName;
+import dev.langchain4j.model.openai.OpenAiTokenCountEstimator;
 import dev.langchain4j.service.AiServices;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Configuration
 /// ai服务创建工厂
@@ -39,7 +51,10 @@ public class AiCodeGeneratorServiceFactory {
 
 
     @Resource
-    private RedisChatMemoryStore redisChatMemoryStore;
+    private ChatMemoryStore redisChatMemoryStore;
+
+    @Resource
+    private TieredChatMemoryStore tieredChatMemoryStore;
 
     @Resource
     private ChatHistoryService chatHistoryService;
@@ -48,65 +63,88 @@ public class AiCodeGeneratorServiceFactory {
     @Resource
     private ToolManager toolManager;
 
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 对话记忆的 token 预算（本地估算）
+     */
+    @Value("${code-gen.memory.max-tokens:24000}")
+    private int memoryMaxTokens;
+
+    /**
+     * 历史对话摘要的最大字符数
+     */
+    @Value("${code-gen.memory.summary-max-chars:2000}")
+    private int memorySummaryMaxChars;
+
     /**
-     * AI 服务实例缓存
+     * 本地 token 估算器，编码表较大，全局共用一个
+     */
+    private final TokenCountEstimator tokenCountEstimator = new OpenAiTokenCountEstimator(OpenAiChatModelName.GPT_4_O);
+
+    /**
+     * 每种代码生成类型共用一个 AI 服务实例（创建代价高，和应用数量无关）
+     */
+    private final Map<CodeGenTypeEnum, AiCodeGeneratorService> serviceMap = new ConcurrentHashMap<>();
+
+    /**
+     * 应用对话记忆缓存（对象很轻，消息本身缓存在两级存储的本地缓存中）
      * 缓存策略：
-     * - 最大缓存 1000 个实例
-     * - 写入后 30 分钟过期
-     * - 访问后 10 分钟过期
+     * - 最大缓存 1000 个应用
+     * - 访问后 30 分钟过期
+     * 未命中时从数据库加载历史对话
      */
-    private final Cache<String, AiCodeGeneratorService> serviceCache = Caffeine.newBuilder()
+    private final Cache<Object, ChatMemory> chatMemoryCache = Caffeine.newBuilder()
             .maximumSize(1000)
-            .expireAfterWrite(Duration.ofMinutes(30))
-            .expireAfterAccess(Duration.ofMinutes(10))
-            .removalListener((key, value, cause) -> {
-             //   log.debug("AI 服务实例被移除，缓存键: {}, 原因: {}", key, cause);
-            })
+            .expireAfterAccess(Duration.ofMinutes(30))
+            .recordStats()
             .build();
 
+    @PostConstruct
+    public void init() {
+        CaffeineCacheMetrics.monitor(meterRegistry, chatMemoryCache, "chat_memory");
+    }
+
     /**
-     * 根据 appId 获取服务（带缓存）这个方法是为了兼容历史逻辑
+     * 根据代码生成类型获取服务，对话记忆通过 @MemoryId（appId）按应用区分
      */
-    public AiCodeGeneratorService getAiCodeGeneratorService(long appId) {
-        return getAiCodeGeneratorService(appId, CodeGenTypeEnum.HTML);
+    public AiCodeGeneratorService getAiCodeGeneratorService(CodeGenTypeEnum codeGenType) {
+        return serviceMap.computeIfAbsent(codeGenType, this::createAiCodeGeneratorService);
     }
 
     /**
-     * 根据 appId 和代码生成类型获取服务（带缓存）
+     * 获取应用的对话记忆（带缓存）
      */
-    public AiCodeGeneratorService getAiCodeGeneratorService(long appId, CodeGenTypeEnum codeGenType) {
-        String cacheKey = buildCacheKey(appId, codeGenType);
-        return serviceCache.get(cacheKey, key -> createAiCodeGeneratorService(appId, codeGenType));
+    private ChatMemory getChatMemory(Object memoryId) {
+        return chatMemoryCache.get(memoryId, this::createChatMemory);
     }
 
     /**
-     * 构建缓存键
+     * 创建应用的对话记忆
      */
-    private String buildCacheKey(long appId, CodeGenTypeEnum codeGenType) {
-        return appId + "_" + codeGenType.getValue();
+    private ChatMemory createChatMemory(Object memoryId) {
+        // 从数据库加载历史对话到记忆存储中（一次性写入），未指定 @MemoryId 的方法使用默认 ID，没有历史
+        if (memoryId instanceof Long appId) {
+            chatHistoryService.loadChatHistoryToMemory(appId, tieredChatMemoryStore, 20);
+        }
+        // 根据 appId 构建独立的对话记忆（两级存储，生成过程中只读写本地，一轮结束后写回 Redis）
+        // 按 token 预算限制大小，超出的早期对话折叠为摘要
+        return new TokenBudgetChatMemory(memoryId, tieredChatMemoryStore, tokenCountEstimator,
+                memoryMaxTokens, memorySummaryMaxChars);
     }
 
 
     /**
      * 创建新的 AI 服务实例
      */
-    private AiCodeGeneratorService createAiCodeGeneratorService(long appId, CodeGenTypeEnum codeGenType) {
-        // 根据 appId 构建独立的对话记忆
-        MessageWindowChatMemory chatMemory = MessageWindowChatMemory
-                .builder()
-                .id(appId)
-                .chatMemoryStore(redisChatMemoryStore)
-                .maxMessages(20)
-                .build();
-        // 从数据库加载历史对话到记忆中
-        chatHistoryService.loadChatHistoryToMemory(appId, chatMemory, 20);
+    private AiCodeGeneratorService createAiCodeGeneratorService(CodeGenTypeEnum codeGenType) {
         // 根据代码生成类型选择不同的模型配置
         return switch (codeGenType) {
-            // Vue 项目生成使用推理模型
             // Vue 项目生成使用推理模型
             case VUE_PROJECT -> AiServices.builder(AiCodeGeneratorService.class)
                     .streamingChatModel(reasoningStreamingChatModel)
-                    .chatMemoryProvider(memoryId -> chatMemory)
+                    .chatMemoryProvider(this::getChatMemory)
                     .tools(toolManager.getAllTools())
                     .hallucinatedToolNameStrategy(toolExecutionRequest -> ToolExecutionResultMessage.from(
                             toolExecutionRequest, "Error: there is no tool called " + toolExecutionRequest.name()
@@ -117,7 +155,7 @@ public class AiCodeGeneratorServiceFactory {
             case HTML, MULTI_FILE -> AiServices.builder(AiCodeGeneratorService.class)
                     .chatModel(chatModel)
                     .streamingChatModel(openAiStreamingChatModel)
-                    .chatMemory(chatMemory)
+                    .chatMemoryProvider(this::getChatMemory)
                     .build();
             default -> throw new BusinessException(ErrorCode.SYSTEM_ERROR,
                     "不支持的代码生成类型: " + codeGenType.getValue());
@@ -133,7 +171,7 @@ public class AiCodeGeneratorServiceFactory {
      */
     @Bean
     public AiCodeGeneratorService aiCodeGeneratorService() {
-        return getAiCodeGeneratorService(0L);
+        return getAiCodeGeneratorService(CodeGenTypeEnum.HTML);
     }
 
 
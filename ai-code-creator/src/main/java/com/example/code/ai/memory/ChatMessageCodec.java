@@ -0,0 +1,53 @@
+package com.example.code.ai.memory;
+
+import cn.hutool.core.util.ZipUtil;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageDeserializer;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 对话消息编解码
+ * 消息先按 langchain4j 的格式序列化为 JSON，较大的消息（通常是带完整文件内容的工具调用）再用 zlib 压缩。
+ * 编码结果的第一个字节标记格式：0 为原始 UTF-8，1 为压缩
+ */
+public final class ChatMessageCodec {
+
+    private static final byte RAW = 0;
+
+    private static final byte DEFLATED = 1;
+
+    /**
+     * 小于该大小的消息不压缩，压缩头的开销不划算
+     */
+    private static final int MIN_COMPRESS_BYTES = 256;
+
+    private ChatMessageCodec() {
+    }
+
+    public static byte[] encode(ChatMessage message) {
+        byte[] json = ChatMessageSerializer.messageToJson(message).getBytes(StandardCharsets.UTF_8);
+        if (json.length >= MIN_COMPRESS_BYTES) {
+            byte[] compressed = ZipUtil.zlib(json, 6);
+            if (compressed.length < json.length) {
+                return withFlag(DEFLATED, compressed);
+            }
+        }
+        return withFlag(RAW, json);
+    }
+
+    public static ChatMessage decode(byte[] data) {
+        byte[] body = Arrays.copyOfRange(data, 1, data.length);
+        byte[] json = data[0] == DEFLATED ? ZipUtil.unZlib(body) : body;
+        return ChatMessageDeserializer.messageFromJson(new String(json, StandardCharsets.UTF_8));
+    }
+
+    private static byte[] withFlag(byte flag, byte[] body) {
+        byte[] data = new byte[body.length + 1];
+        data[0] = flag;
+        System.arraycopy(body, 0, data, 1, body.length);
+        return data;
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.code.ai.memory;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.SecureUtil;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.BatchOptions;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RListAsync;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.redisson.client.codec.StringCodec;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基于 Redis 列表的对话记忆存储
+ * 每个对话在 Redis 中的布局：
+ * - chat_memory:{id}：消息列表，每个元素是 {@link ChatMessageCodec} 编码后的一条消息（不含系统消息）；
+ * - chat_memory:{id}:hashes：与消息列表一一对应的消息哈希，用于计算本次更新与已存内容的差异；
+ *   工具调用和工具执行结果的哈希形如 "{标识哈希}:{内容哈希}"，标识取自工具调用 ID，压缩参数或截断结果后不变；
+ * - chat_memory:{id}:system / chat_memory:{id}:system_hash：系统消息及其哈希，内容不变时不重复写入
+ * 更新时只读取很小的哈希列表，按标识对齐新旧列表：窗口滑动掉的旧消息用 LTRIM 在服务端删除，
+ * 内容被压缩过的消息用 LSET 原位替换，新消息追加到列表末尾，不再每次整体重写整个对话
+ * 读取哈希、计算差异和写入在同一对话的分布式锁内完成，多个节点同时写回同一对话时不会基于过期的哈希写入；
+ * 超出最大消息数量时在客户端按对话轮次的边界截断（从用户消息开始），不会留下没有对应工具调用的工具执行结果
+ */
+@Slf4j
+public class RedisListChatMemoryStore implements ChatMemoryStore {
+
+    private static final String KEY_PREFIX = "chat_memory:";
+
+    private final RedissonClient redissonClient;
+
+    /**
+     * 过期时间，为 null 时不过期
+     */
+    private final Duration ttl;
+
+    /**
+     * 服务端保留的最大消息数量（不含系统消息）
+     */
+    private final int maxMessages;
+
+    public RedisListChatMemoryStore(RedissonClient redissonClient, Duration ttl, int maxMessages) {
+        this.redissonClient = redissonClient;
+        this.ttl = ttl == null || ttl.isZero() || ttl.isNegative() ? null : ttl;
+        this.maxMessages = maxMessages;
+    }
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        String key = key(memoryId);
+        RBatch batch = redissonClient.createBatch();
+        RFuture<byte[]> systemFuture = batch.<byte[]>getBucket(key + ":system", ByteArrayCodec.INSTANCE).getAsync();
+        RFuture<List<byte[]>> messagesFuture = batch.<byte[]>getList(key, ByteArrayCodec.INSTANCE).readAllAsync();
+        batch.execute();
+        byte[] system = systemFuture.toCompletableFuture().join();
+        List<byte[]> encodedMessages = messagesFuture.toCompletableFuture().join();
+        List<ChatMessage> messages = new ArrayList<>(encodedMessages.size() + 1);
+        if (system != null) {
+            messages.add(ChatMessageCodec.decode(system));
+        }
+        for (byte[] encoded : encodedMessages) {
+            messages.add(ChatMessageCodec.decode(encoded));
+        }
+        return messages;
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        String key = key(memoryId);
+        SystemMessage systemMessage = null;
+        List<ChatMessage> windowMessages = new ArrayList<>(messages.size());
+        for (ChatMessage message : messages) {
+            if (message instanceof SystemMessage) {
+                systemMessage = (SystemMessage) message;
+            } else {
+                windowMessages.add(message);
+            }
+        }
+        // 超出上限时按轮次边界截断
+        windowMessages = windowMessages.subList(findWindowStart(windowMessages, maxMessages), windowMessages.size());
+        byte[] system = systemMessage == null ? null : ChatMessageCodec.encode(systemMessage);
+        String systemHash = system == null ? null : SecureUtil.md5().digestHex(system);
+        List<byte[]> encodedMessages = new ArrayList<>(windowMessages.size());
+        List<String> hashes = new ArrayList<>(windowMessages.size());
+        for (ChatMessage message : windowMessages) {
+            byte[] encoded = ChatMessageCodec.encode(message);
+            encodedMessages.add(encoded);
+            hashes.add(hash(message, encoded));
+        }
+
+        RLock lock = redissonClient.getLock(key + ":lock");
+        lock.lock();
+        try {
+            write(key, encodedMessages, hashes, system, systemHash);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(String key, List<byte[]> encodedMessages, List<String> hashes, byte[] system, String systemHash) {
+        // 1. 读取已存消息的哈希（很小），计算差异
+        RBatch readBatch = redissonClient.createBatch();
+        RFuture<List<String>> storedHashesFuture = readBatch.<String>getList(key + ":hashes", StringCodec.INSTANCE).readAllAsync();
+        RFuture<String> storedSystemHashFuture = readBatch.<String>getBucket(key + ":system_hash", StringCodec.INSTANCE).getAsync();
+        readBatch.execute();
+        List<String> storedHashes = storedHashesFuture.toCompletableFuture().join();
+        String storedSystemHash = storedSystemHashFuture.toCompletableFuture().join();
+        int dropCount = findDropCount(stableKeys(storedHashes), stableKeys(hashes));
+
+        // 2. 删除滑出窗口的旧消息、追加新消息，在一个事务中执行
+        RBatch writeBatch = redissonClient.createBatch(BatchOptions.defaults()
+                .executionMode(BatchOptions.ExecutionMode.IN_MEMORY_ATOMIC));
+        RListAsync<byte[]> messageList = writeBatch.getList(key, ByteArrayCodec.INSTANCE);
+        RListAsync<String> hashList = writeBatch.getList(key + ":hashes", StringCodec.INSTANCE);
+        if (dropCount >= storedHashes.size()) {
+            messageList.deleteAsync();
+            hashList.deleteAsync();
+        } else if (dropCount > 0) {
+            messageList.trimAsync(dropCount, -1);
+            hashList.trimAsync(dropCount, -1);
+        }
+        int keepCount = storedHashes.size() - dropCount;
+        // 保留的消息中内容变化（被压缩）的原位替换
+        int replaceCount = 0;
+        for (int i = 0; i < keepCount; i++) {
+            if (!storedHashes.get(dropCount + i).equals(hashes.get(i))) {
+                messageList.fastSetAsync(i, encodedMessages.get(i));
+                hashList.fastSetAsync(i, hashes.get(i));
+                replaceCount++;
+            }
+        }
+        if (keepCount < encodedMessages.size()) {
+            messageList.addAllAsync(encodedMessages.subList(keepCount, encodedMessages.size()));
+            hashList.addAllAsync(hashes.subList(keepCount, hashes.size()));
+        }
+        if (systemHash == null) {
+            writeBatch.getBucket(key + ":system", ByteArrayCodec.INSTANCE).deleteAsync();
+            writeBatch.getBucket(key + ":system_hash", StringCodec.INSTANCE).deleteAsync();
+        } else if (!systemHash.equals(storedSystemHash)) {
+            writeBatch.getBucket(key + ":system", ByteArrayCodec.INSTANCE).setAsync(system);
+            writeBatch.getBucket(key + ":system_hash", StringCodec.INSTANCE).setAsync(systemHash);
+        }
+        if (ttl != null) {
+            for (String name : allKeys(key)) {
+                writeBatch.getBucket(name).expireAsync(ttl);
+            }
+        }
+        writeBatch.execute();
+        log.debug("对话记忆已更新: {}, 删除 {} 条, 替换 {} 条, 追加 {} 条", key, dropCount, replaceCount,
+                Math.max(0, encodedMessages.size() - keepCount));
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        redissonClient.getKeys().delete(allKeys(key(memoryId)));
+    }
+
+    /**
+     * 计算需要从已存列表头部删除的消息数量：已存列表删除头部 n 条后是新列表的前缀时，只需追加剩余部分。
+     * 找不到这样的 n 时返回已存数量，即整体重写
+     *
+     * @param storedKeys 已存消息的标识
+     * @param keys       新消息的标识
+     */
+    static int findDropCount(List<String> storedKeys, List<String> keys) {
+        for (int drop = 0; drop < storedKeys.size(); drop++) {
+            int keep = storedKeys.size() - drop;
+            if (keep <= keys.size() && storedKeys.subList(drop, storedKeys.size()).equals(keys.subList(0, keep))) {
+                return drop;
+            }
+        }
+        return storedKeys.size();
+    }
+
+    /**
+     * 计算保留窗口的起点：消息数量超出上限时，从能放进上限的第一条用户消息开始保留，
+     * 工具调用和工具执行结果始终成对保留；单轮对话就超出上限时从第一条不是工具执行结果的消息开始
+     *
+     * @param messages    不含系统消息的消息列表
+     * @param maxMessages 最大消息数量
+     * @return 保留的第一条消息的下标
+     */
+    static int findWindowStart(List<ChatMessage> messages, int maxMessages) {
+        int minStart = messages.size() - maxMessages;
+        if (minStart <= 0) {
+            return 0;
+        }
+        for (int i = minStart; i < messages.size(); i++) {
+            if (messages.get(i) instanceof UserMessage) {
+                return i;
+            }
+        }
+        for (int i = minStart; i < messages.size(); i++) {
+            if (!(messages.get(i) instanceof ToolExecutionResultMessage)) {
+                return i;
+            }
+        }
+        return messages.size();
+    }
+
+    /**
+     * 消息的哈希：有稳定标识的消息为 "{标识哈希}:{内容哈希}"，其他消息为内容哈希
+     */
+    static String hash(ChatMessage message, byte[] encoded) {
+        String contentHash = SecureUtil.md5().digestHex(encoded);
+        String identity = identity(message);
+        return identity == null ? contentHash : SecureUtil.md5(identity) + ":" + contentHash;
+    }
+
+    /**
+     * 从哈希中取出用于对齐新旧列表的标识，压缩前后保持不变
+     */
+    static List<String> stableKeys(List<String> hashes) {
+        List<String> keys = new ArrayList<>(hashes.size());
+        for (String hash : hashes) {
+            int index = hash.indexOf(':');
+            keys.add(index < 0 ? hash : hash.substring(0, index));
+        }
+        return keys;
+    }
+
+    /**
+     * 工具调用和工具执行结果按工具调用 ID 标识，其他消息没有稳定标识（内容即标识）
+     */
+    private static String identity(ChatMessage message) {
+        if (message instanceof AiMessage aiMessage && aiMessage.hasToolExecutionRequests()) {
+            StringBuilder identity = new StringBuilder("tool_call");
+            for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
+                if (StrUtil.isEmpty(request.id())) {
+                    return null;
+                }
+                identity.append(':').append(request.id());
+            }
+            return identity.toString();
+        }
+        if (message instanceof ToolExecutionResultMessage resultMessage && StrUtil.isNotEmpty(resultMessage.id())) {
+            return "tool_result:" + resultMessage.id();
+        }
+        return null;
+    }
+
+    private static String key(Object memoryId) {
+        return KEY_PREFIX + memoryId;
+    }
+
+    private static String[] allKeys(String key) {
+        return new String[]{key, key + ":hashes", key + ":system", key + ":system_hash"};
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.code.ai.memory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RAtomicLong;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 两级对话记忆存储
+ * 本地 Caffeine（L1）缓存热点对话，Redis 存储（L2）负责持久化：
+ * - 生成过程中工具循环的每轮读写都只访问 L1，写入只标记为脏；
+ * - 一轮对话结束时调用 {@link #flush(Object)} 把最终结果一次性写回 Redis；
+ * - 每个对话在 Redis 中维护一个版本号，写回时递增，L1 中的干净数据读取前先比对版本号，
+ *   其他节点写过同一对话时重新从 Redis 加载
+ * 脏数据在被淘汰和应用关闭时也会写回；淘汰时的写回在淘汰的原子操作内同步完成，
+ * 写回结束前同一对话的读取会等待，不会从 Redis 读到旧数据
+ */
+@Slf4j
+@Primary
+@Component
+public class TieredChatMemoryStore implements ChatMemoryStore {
+
+    private static final String VERSION_KEY_PREFIX = "chat_memory:version:";
+
+    /**
+     * 尚未与 Redis 同步过版本号
+     */
+    private static final long UNKNOWN_VERSION = -1;
+
+    @Resource(name = "redisChatMemoryStore")
+    private ChatMemoryStore delegate;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * L1 最多缓存的消息字符数（按消息内容长度加权，带完整文件内容的对话占用更多）
+     */
+    @Value("${code-gen.memory.l1-max-chars:33554432}")
+    private long maxChars;
+
+    /**
+     * L1 中的对话多久未访问后淘汰（分钟）
+     */
+    @Value("${code-gen.memory.l1-expire-minutes:30}")
+    private long expireMinutes;
+
+    /**
+     * 版本号在 Redis 中的保留时间（秒），与对话记忆保持一致
+     */
+    @Value("${spring.data.redis.ttl:3600}")
+    private long ttlSeconds;
+
+    private Cache<String, Entry> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxChars)
+                .weigher((String key, Entry entry) -> entry.weight())
+                .expireAfterAccess(Duration.ofMinutes(expireMinutes))
+                .recordStats()
+                .evictionListener((String key, Entry entry, RemovalCause cause) -> {
+                    // 被动淘汰的脏数据写回 Redis，主动替换（REPLACED/EXPLICIT）由调用方负责
+                    // 监听器内不能再修改缓存，写回失败时无法放回，只能记录
+                    if (entry != null && entry.dirty && writeBack(key, entry).dirty) {
+                        meterRegistry.counter("code_gen.chat_memory.eviction_write_failures").increment();
+                        log.error("对话记忆淘汰时写回失败，本地修改已丢失: {}, 消息数: {}", key, entry.messages.size());
+                    }
+                })
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "chat_memory_l1");
+    }
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        String key = key(memoryId);
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null) {
+            // 本节点有未写回的修改时以本地为准
+            if (entry.dirty || entry.version == currentVersion(key)) {
+                return entry.messages;
+            }
+            log.info("对话记忆已被其他节点更新，重新加载: {}", key);
+        }
+        List<ChatMessage> messages = List.copyOf(delegate.getMessages(memoryId));
+        count("read");
+        long version = currentVersion(key);
+        // 加载期间本地已有新的写入时不覆盖
+        return cache.asMap().compute(key, (k, old) -> old != null && old.dirty ? old : new Entry(memoryId, messages, version, false))
+                .messages;
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        List<ChatMessage> copy = List.copyOf(messages);
+        cache.asMap().compute(key(memoryId), (k, old) ->
+                new Entry(memoryId, copy, old == null ? UNKNOWN_VERSION : old.version, true));
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        String key = key(memoryId);
+        cache.invalidate(key);
+        delegate.deleteMessages(memoryId);
+        count("delete");
+        bumpVersion(key);
+    }
+
+    /**
+     * 把对话的本地修改写回 Redis（一轮对话结束时调用）
+     *
+     * @param memoryId 对话记忆 ID
+     */
+    public void flush(Object memoryId) {
+        cache.asMap().computeIfPresent(key(memoryId), (key, entry) -> entry.dirty ? writeBack(key, entry) : entry);
+    }
+
+    /**
+     * 写回所有本地修改
+     */
+    @PreDestroy
+    public void flushAll() {
+        cache.asMap().keySet().forEach(key -> cache.asMap().computeIfPresent(key,
+                (k, entry) -> entry.dirty ? writeBack(k, entry) : entry));
+    }
+
+    private Entry writeBack(String key, Entry entry) {
+        try {
+            if (entry.version != UNKNOWN_VERSION && entry.version != currentVersion(key)) {
+                // 同一对话在多个节点上同时生成，最后写回的覆盖之前的
+                log.warn("对话记忆写回时发现其他节点的修改，以本次为准: {}", key);
+            }
+            delegate.updateMessages(entry.memoryId, entry.messages);
+            count("write");
+            return new Entry(entry.memoryId, entry.messages, bumpVersion(key), false);
+        } catch (Exception e) {
+            // 保留脏标记，下次写回时重试
+            log.error("对话记忆写回失败: {}, 错误: {}", key, e.getMessage(), e);
+            return entry;
+        }
+    }
+
+    private long currentVersion(String key) {
+        count("version");
+        return versionOf(key).get();
+    }
+
+    private long bumpVersion(String key) {
+        RAtomicLong version = versionOf(key);
+        long value = version.incrementAndGet();
+        version.expireAsync(Duration.ofSeconds(ttlSeconds));
+        return value;
+    }
+
+    private RAtomicLong versionOf(String key) {
+        return redissonClient.getAtomicLong(VERSION_KEY_PREFIX + key);
+    }
+
+    private void count(String operation) {
+        meterRegistry.counter("code_gen.chat_memory.redis_ops", "op", operation).increment();
+    }
+
+    private static String key(Object memoryId) {
+        return String.valueOf(memoryId);
+    }
+
+    /**
+     * L1 中的对话记忆，不可变，修改时整体替换
+     */
+    private record Entry(Object memoryId, List<ChatMessage> messages, long version, boolean dirty) {
+
+        /**
+         * 按消息内容的字符数估算占用
+         */
+        int weight() {
+            long chars = 0;
+            for (ChatMessage message : messages) {
+                chars += switch (message) {
+                    case UserMessage userMessage -> userMessage.hasSingleText() ? userMessage.singleText().length() : 256;
+                    case AiMessage aiMessage -> (aiMessage.text() == null ? 0 : aiMessage.text().length())
+                            + (aiMessage.hasToolExecutionRequests() ? aiMessage.toolExecutionRequests().stream()
+                            .mapToInt(request -> request.arguments() == null ? 0 : request.arguments().length()).sum() : 0);
+                    case ToolExecutionResultMessage resultMessage -> resultMessage.text() == null ? 0 : resultMessage.text().length();
+                    case SystemMessage systemMessage -> systemMessage.text().length();
+                    default -> 256;
+                };
+            }
+            return (int) Math.min(Integer.MAX_VALUE, chars + 64);
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.example.code.ai.memory;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.model.TokenCountEstimator;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 按 token 预算限制的对话记忆
+ * 与按条数限制的 MessageWindowChatMemory 不同，一轮对话里的几次完整文件写入就可能让提示词膨胀到数万 token，
+ * 因此每次写入记忆时：
+ * 1. 较早的工具调用参数中的长文本（文件内容）替换为简短说明，只保留文件路径等短字段；
+ *    之前轮次中较长的工具执行结果（例如读取的文件内容）同样截断，需要时模型可以重新读取；
+ * 2. 估算的 token 数仍超过预算时，从最早的一轮开始整轮移出，并把要点（用户需求、AI 回复、涉及的文件）
+ *    追加到滚动摘要中，摘要附在系统消息末尾（不单独占一条用户消息，避免出现连续两条用户消息）
+ * 每条消息最多压缩一次（压缩结果不会再变化）：当前轮次的最后一次工具调用和工具执行结果在离开当前轮次时压缩，
+ * 之后只会从头部整轮移出，存储层的消息列表除了这一次压缩外只追加
+ * 当前这一轮对话不会被移出，保证工具调用和执行结果始终成对
+ */
+@Slf4j
+public class TokenBudgetChatMemory implements ChatMemory {
+
+    /**
+     * 摘要的前缀，用于从系统消息中分离摘要
+     */
+    static final String SUMMARY_PREFIX = "【历史对话摘要】";
+
+    /**
+     * 系统消息原文与摘要之间的分隔
+     */
+    private static final String SUMMARY_SEPARATOR = "\n\n" + SUMMARY_PREFIX + "\n";
+
+    /**
+     * 截断后的工具执行结果的结尾，已截断的结果不再处理
+     */
+    private static final String TRUNCATED_SUFFIX = " 字符，需要时请重新读取]";
+
+    /**
+     * 工具参数中超过该长度的字符串会被替换
+     */
+    private static final int MAX_ARGUMENT_CHARS = 200;
+
+    /**
+     * 之前轮次中超过该长度的工具执行结果会被截断
+     */
+    private static final int MAX_TOOL_RESULT_CHARS = 500;
+
+    /**
+     * 摘要中每条内容保留的字符数
+     */
+    private static final int SUMMARY_SNIPPET_CHARS = 200;
+
+    /**
+     * 单条消息的 token 估算结果，按对象身份缓存（两级存储返回的是同一批消息对象）
+     */
+    private static final Cache<ChatMessage, Integer> TOKEN_COUNT_CACHE = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(10_000)
+            .build();
+
+    private final Object id;
+
+    private final ChatMemoryStore store;
+
+    private final TokenCountEstimator tokenCountEstimator;
+
+    private final int maxTokens;
+
+    private final int maxSummaryChars;
+
+    public TokenBudgetChatMemory(Object id, ChatMemoryStore store, TokenCountEstimator tokenCountEstimator,
+                                 int maxTokens, int maxSummaryChars) {
+        this.id = id;
+        this.store = store;
+        this.tokenCountEstimator = tokenCountEstimator;
+        this.maxTokens = maxTokens;
+        this.maxSummaryChars = maxSummaryChars;
+    }
+
+    @Override
+    public Object id() {
+        return id;
+    }
+
+    @Override
+    public void add(ChatMessage message) {
+        List<ChatMessage> messages = new ArrayList<>(store.getMessages(id));
+        if (message instanceof SystemMessage systemMessage) {
+            int systemIndex = indexOfSystemMessage(messages);
+            String summary = "";
+            if (systemIndex >= 0) {
+                SystemMessage stored = (SystemMessage) messages.get(systemIndex);
+                if (baseText(stored).equals(systemMessage.text())) {
+                    return;
+                }
+                // 系统提示词变化时保留已有的摘要
+                summary = summaryText(stored);
+                messages.remove(systemIndex);
+            }
+            messages.add(0, withSummary(systemMessage.text(), summary));
+        } else {
+            messages.add(message);
+        }
+        compact(messages);
+        store.updateMessages(id, messages);
+    }
+
+    @Override
+    public List<ChatMessage> messages() {
+        return new ArrayList<>(store.getMessages(id));
+    }
+
+    @Override
+    public void clear() {
+        store.deleteMessages(id);
+    }
+
+    /**
+     * 压缩消息列表，使估算的 token 数不超过预算
+     */
+    void compact(List<ChatMessage> messages) {
+        int currentTurnStart = lastIndexOfUserMessage(messages);
+        // 当前轮次的最后一次工具调用保持原样，模型可能马上还要用到
+        int lastToolCallIndex = -1;
+        for (int i = messages.size() - 1; i >= currentTurnStart; i--) {
+            if (messages.get(i) instanceof AiMessage aiMessage && aiMessage.hasToolExecutionRequests()) {
+                lastToolCallIndex = i;
+                break;
+            }
+        }
+        // 1. 替换较早的工具调用参数和之前轮次的工具执行结果（已压缩的消息保持不变）
+        for (int i = 0; i < messages.size(); i++) {
+            ChatMessage message = messages.get(i);
+            if (message instanceof AiMessage aiMessage && aiMessage.hasToolExecutionRequests() && i != lastToolCallIndex) {
+                messages.set(i, compactToolArguments(aiMessage));
+            } else if (message instanceof ToolExecutionResultMessage resultMessage && i < currentTurnStart) {
+                messages.set(i, truncateToolResult(resultMessage));
+            }
+        }
+        // 2. 超出预算时从最早的一轮开始整轮移出并写入摘要
+        int totalTokens = estimateTokens(messages);
+        int evictedTurns = 0;
+        while (totalTokens > maxTokens) {
+            int systemIndex = indexOfSystemMessage(messages);
+            int turnStart = systemIndex + 1;
+            int turnEnd = turnStart + 1;
+            while (turnEnd < messages.size() && !(messages.get(turnEnd) instanceof UserMessage)) {
+                turnEnd++;
+            }
+            currentTurnStart = lastIndexOfUserMessage(messages);
+            if (turnStart >= messages.size() || turnEnd > currentTurnStart) {
+                // 只剩当前这一轮，无法继续移出
+                break;
+            }
+            List<ChatMessage> turn = new ArrayList<>(messages.subList(turnStart, turnEnd));
+            messages.subList(turnStart, turnEnd).clear();
+            if (systemIndex >= 0) {
+                SystemMessage systemMessage = (SystemMessage) messages.get(systemIndex);
+                messages.set(systemIndex, withSummary(baseText(systemMessage),
+                        appendSummary(summaryText(systemMessage), turn)));
+            } else {
+                messages.add(0, withSummary("", appendSummary("", turn)));
+            }
+            totalTokens = estimateTokens(messages);
+            evictedTurns++;
+        }
+        if (evictedTurns > 0) {
+            log.info("对话记忆超出 token 预算，{} 轮对话移入摘要，memoryId: {}, 当前估算 token: {}", evictedTurns, id, totalTokens);
+        }
+    }
+
+    /**
+     * 截断较长的工具执行结果，已截断的结果原样返回
+     */
+    private static ToolExecutionResultMessage truncateToolResult(ToolExecutionResultMessage resultMessage) {
+        String text = resultMessage.text();
+        if (text == null || text.length() <= MAX_TOOL_RESULT_CHARS || text.endsWith(TRUNCATED_SUFFIX)) {
+            return resultMessage;
+        }
+        return ToolExecutionResultMessage.from(resultMessage.id(), resultMessage.toolName(),
+                StrUtil.sub(text, 0, MAX_TOOL_RESULT_CHARS)
+                        + "\n...[已省略 " + (text.length() - MAX_TOOL_RESULT_CHARS) + TRUNCATED_SUFFIX);
+    }
+
+    /**
+     * 把长字符串参数（文件内容等）替换为简短说明，参数没有变化时返回原消息
+     */
+    private AiMessage compactToolArguments(AiMessage aiMessage) {
+        List<ToolExecutionRequest> requests = new ArrayList<>(aiMessage.toolExecutionRequests().size());
+        boolean changed = false;
+        for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
+            String arguments = request.arguments();
+            if (arguments == null || arguments.length() <= MAX_ARGUMENT_CHARS || !JSONUtil.isTypeJSONObject(arguments)) {
+                requests.add(request);
+                continue;
+            }
+            JSONObject json = JSONUtil.parseObj(arguments);
+            if (!compactStrings(json)) {
+                requests.add(request);
+                continue;
+            }
+            requests.add(ToolExecutionRequest.builder()
+                    .id(request.id())
+                    .name(request.name())
+                    .arguments(json.toString())
+                    .build());
+            changed = true;
+        }
+        if (!changed) {
+            return aiMessage;
+        }
+        return AiMessage.builder()
+                .text(aiMessage.text())
+                .toolExecutionRequests(requests)
+                .build();
+    }
+
+    /**
+     * 递归替换 JSON 中的长字符串（批量工具的参数是对象数组）
+     *
+     * @return 是否有字符串被替换
+     */
+    private static boolean compactStrings(Object json) {
+        boolean changed = false;
+        if (json instanceof JSONObject object) {
+            for (String key : object.keySet()) {
+                Object value = object.get(key);
+                if (value instanceof String text && text.length() > MAX_ARGUMENT_CHARS) {
+                    object.set(key, "[已省略 " + text.length() + " 字符]");
+                    changed = true;
+                } else {
+                    changed |= compactStrings(value);
+                }
+            }
+        } else if (json instanceof JSONArray array) {
+            for (int i = 0; i < array.size(); i++) {
+                Object value = array.get(i);
+                if (value instanceof String text && text.length() > MAX_ARGUMENT_CHARS) {
+                    array.set(i, "[已省略 " + text.length() + " 字符]");
+                    changed = true;
+                } else {
+                    changed |= compactStrings(value);
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * 把一轮对话的要点追加到摘要，超出长度时丢弃最早的内容
+     */
+    private String appendSummary(String previousSummary, List<ChatMessage> turn) {
+        StringBuilder entry = new StringBuilder();
+        Set<String> files = new LinkedHashSet<>();
+        String aiText = null;
+        for (ChatMessage message : turn) {
+            if (message instanceof UserMessage userMessage && userMessage.hasSingleText()) {
+                entry.append("- 用户：").append(snippet(userMessage.singleText())).append('\n');
+            } else if (message instanceof AiMessage aiMessage) {
+                if (StrUtil.isNotBlank(aiMessage.text())) {
+                    aiText = aiMessage.text();
+                }
+                if (aiMessage.hasToolExecutionRequests()) {
+                    for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
+                        String path = extractPath(request.arguments());
+                        files.add(request.name() + (path == null ? "" : " " + path));
+                    }
+                }
+            }
+        }
+        if (aiText != null) {
+            entry.append("  AI：").append(snippet(aiText)).append('\n');
+        }
+        if (!files.isEmpty()) {
+            entry.append("  操作：").append(String.join("，", files)).append('\n');
+        }
+        Deque<String> lines = new ArrayDeque<>(StrUtil.split(previousSummary + entry, '\n', false, true));
+        int length = lines.stream().mapToInt(line -> line.length() + 1).sum();
+        while (length > maxSummaryChars && lines.size() > 1) {
+            length -= lines.removeFirst().length() + 1;
+        }
+        return String.join("\n", lines) + "\n";
+    }
+
+    private int estimateTokens(List<ChatMessage> messages) {
+        int total = 0;
+        for (ChatMessage message : messages) {
+            total += TOKEN_COUNT_CACHE.get(message, tokenCountEstimator::estimateTokenCountInMessage);
+        }
+        return total;
+    }
+
+    private static String extractPath(String arguments) {
+        if (arguments == null || !JSONUtil.isTypeJSONObject(arguments)) {
+            return null;
+        }
+        return JSONUtil.parseObj(arguments).getStr("relativeFilePath");
+    }
+
+    private static String snippet(String text) {
+        String singleLine = text.replaceAll("\\s+", " ").strip();
+        return singleLine.length() > SUMMARY_SNIPPET_CHARS ? singleLine.substring(0, SUMMARY_SNIPPET_CHARS) + "…" : singleLine;
+    }
+
+    /**
+     * 系统消息中摘要之前的原文
+     */
+    private static String baseText(SystemMessage systemMessage) {
+        String text = systemMessage.text();
+        if (text.startsWith(SUMMARY_PREFIX + "\n")) {
+            return "";
+        }
+        int index = text.indexOf(SUMMARY_SEPARATOR);
+        return index < 0 ? text : text.substring(0, index);
+    }
+
+    /**
+     * 系统消息中的摘要，没有摘要时返回空字符串
+     */
+    private static String summaryText(SystemMessage systemMessage) {
+        String text = systemMessage.text();
+        if (text.startsWith(SUMMARY_PREFIX + "\n")) {
+            return text.substring(SUMMARY_PREFIX.length() + 1);
+        }
+        int index = text.indexOf(SUMMARY_SEPARATOR);
+        return index < 0 ? "" : text.substring(index + SUMMARY_SEPARATOR.length());
+    }
+
+    private static SystemMessage withSummary(String baseText, String summary) {
+        if (summary.isEmpty()) {
+            return SystemMessage.from(baseText);
+        }
+        return SystemMessage.from(baseText.isEmpty() ? SUMMARY_PREFIX + "\n" + summary : baseText + SUMMARY_SEPARATOR + summary);
+    }
+
+    private static int indexOfSystemMessage(List<ChatMessage> messages) {
+        for (int i = 0; i < messages.size(); i++) {
+            if (messages.get(i) instanceof SystemMessage) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOfUserMessage(List<ChatMessage> messages) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i) instanceof UserMessage) {
+                return i;
+            }
+        }
+        return messages.size();
+    }
+}
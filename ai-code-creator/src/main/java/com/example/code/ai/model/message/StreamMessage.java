@@ -6,10 +6,12 @@ import lombok.NoArgsConstructor;
 
 /**
  * 流式消息响应基类
+ * 生成过程中的事件以对象形式在进程内传递（外观类 -> 流处理器），不再序列化为 JSON 字符串再解析，
+ * 处理时按具体类型模式匹配
  */
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-public class StreamMessage {
+public abstract sealed class StreamMessage permits AiResponseMessage, ToolRequestMessage, ToolExecutedMessage {
     private String type;
 }
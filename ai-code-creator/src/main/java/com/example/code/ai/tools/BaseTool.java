@@ -1,5 +1,6 @@
 package com.example.code.ai.tools;
 
+import cn.hutool.core.io.FileUtil;
 import cn.hutool.json.JSONObject;
 
 /**
@@ -38,4 +39,16 @@ public abstract class BaseTool {
      * @return 格式化的工具执行结果
      */
     public abstract String generateToolExecutedResult(JSONObject arguments);
+
+    /**
+     * 获取工具调用涉及的资源（文件路径）
+     * 并行执行同一轮的多个工具调用时，同一资源上的调用按顺序执行，返回 null 的调用单独执行
+     *
+     * @param arguments 工具执行参数
+     * @return 资源标识，无法确定时返回 null
+     */
+    public String getResourceKey(JSONObject arguments) {
+        String relativeFilePath = arguments.getStr("relativeFilePath");
+        return relativeFilePath == null ? null : FileUtil.normalize(relativeFilePath);
+    }
 }
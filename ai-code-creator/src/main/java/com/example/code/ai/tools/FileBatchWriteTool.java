@@ -0,0 +1,135 @@
+package com.example.code.ai.tools;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import com.example.code.core.workspace.ProjectWorkspaceManager;
+import dev.langchain4j.agent.tool.P;
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolMemoryId;
+import dev.langchain4j.model.output.structured.Description;
+import jakarta.annotation.Resource;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量文件写入工具
+ * 一次工具调用写入多个文件，减少模型的工具调用轮次（每一轮都要重新发送整个对话）
+ * 所有路径校验通过后一次性写入工作区，任何一个文件不合法时不修改项目
+ */
+@Slf4j
+@Component
+public class FileBatchWriteTool extends BaseTool {
+
+    /**
+     * 单次调用最多写入的文件数量
+     */
+    private static final int MAX_FILES = 30;
+
+    @Resource
+    private ProjectWorkspaceManager projectWorkspaceManager;
+
+    @Override
+    public String getToolName() {
+        return "writeFiles";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "批量写入文件";
+    }
+
+    @Override
+    public String generateToolExecutedResult(JSONObject arguments) {
+        JSONArray files = arguments.getJSONArray("files");
+        int count = files == null ? 0 : files.size();
+        StringBuilder result = new StringBuilder(String.format("[工具调用] %s（%d 个）\n", getDisplayName(), count));
+        for (int i = 0; i < count; i++) {
+            JSONObject file = files.getJSONObject(i);
+            String relativeFilePath = file.getStr("relativeFilePath");
+            result.append(String.format("""
+                    %s
+                    ```%s
+                    %s
+                    ```
+                    """, relativeFilePath, FileUtil.getSuffix(relativeFilePath), file.getStr("content")));
+        }
+        return result.toString();
+    }
+
+    /**
+     * 多个文件涉及多个资源，并行执行时单独执行
+     */
+    @Override
+    public String getResourceKey(JSONObject arguments) {
+        return null;
+    }
+
+    @Tool("一次写入多个文件到指定路径，创建新项目或同时修改多个文件时优先使用")
+    public String writeFiles(
+            @P("要写入的文件列表，每项包含文件的相对路径和完整内容")
+            List<FileItem> files,
+            @ToolMemoryId Long appId
+    ) {
+        if (files == null || files.isEmpty()) {
+            return "批量写入失败: 文件列表为空";
+        }
+        if (files.size() > MAX_FILES) {
+            return "批量写入失败: 单次最多写入 " + MAX_FILES + " 个文件，请分批调用";
+        }
+        Path projectRoot = ProjectWorkspaceManager.getProjectRoot(appId);
+        // 1. 校验所有路径
+        Map<Path, String> contents = new LinkedHashMap<>();
+        for (FileItem file : files) {
+            if (file == null || StrUtil.isBlank(file.getRelativeFilePath()) || file.getContent() == null) {
+                return "批量写入失败: 文件路径和内容不能为空";
+            }
+            Path target;
+            try {
+                target = projectWorkspaceManager.resolve(appId, file.getRelativeFilePath());
+            } catch (IllegalArgumentException e) {
+                return "批量写入失败: " + e.getMessage();
+            }
+            if (target.equals(projectRoot)) {
+                return "批量写入失败: 路径超出项目目录: " + file.getRelativeFilePath();
+            }
+            if (contents.putIfAbsent(target, file.getContent()) != null) {
+                return "批量写入失败: 文件重复: " + file.getRelativeFilePath();
+            }
+        }
+        // 2. 一次性写入工作区，一轮对话结束或构建前统一写回磁盘
+        try {
+            projectWorkspaceManager.writeFiles(appId, contents);
+        } catch (IllegalArgumentException e) {
+            return "批量写入失败: " + e.getMessage();
+        }
+        List<String> written = files.stream().map(FileItem::getRelativeFilePath).toList();
+        log.info("成功批量写入 {} 个文件: {}", written.size(), projectRoot);
+        // 注意要返回相对路径，不能让 AI 把文件绝对路径返回给用户
+        return "文件批量写入成功: " + String.join(", ", written);
+    }
+
+    /**
+     * 待写入的文件
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FileItem {
+
+        @Description("文件的相对路径")
+        private String relativeFilePath;
+
+        @Description("要写入文件的完整内容")
+        private String content;
+    }
+}
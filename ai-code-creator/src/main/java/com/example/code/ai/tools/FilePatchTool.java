@@ -0,0 +1,186 @@
+package com.example.code.ai.tools;
+
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import com.example.code.core.workspace.ProjectWorkspaceManager;
+import dev.langchain4j.agent.tool.P;
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolMemoryId;
+import dev.langchain4j.model.output.structured.Description;
+import jakarta.annotation.Resource;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 文件补丁工具
+ * 一次调用对同一个文件做多处修改：每个修改块用旧内容定位（必须在文件中恰好出现一次），
+ * 所有修改块校验通过后才一起应用，任何一块失败时文件保持不变，并返回每一块的结果
+ */
+@Slf4j
+@Component
+public class FilePatchTool extends BaseTool {
+
+    @Resource
+    private ProjectWorkspaceManager projectWorkspaceManager;
+
+    @Override
+    public String getToolName() {
+        return "patchFile";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "补丁修改文件";
+    }
+
+    @Override
+    public String generateToolExecutedResult(JSONObject arguments) {
+        String relativeFilePath = arguments.getStr("relativeFilePath");
+        JSONArray hunks = arguments.getJSONArray("hunks");
+        int count = hunks == null ? 0 : hunks.size();
+        StringBuilder result = new StringBuilder(String.format("[工具调用] %s %s（%d 处）\n", getDisplayName(), relativeFilePath, count));
+        for (int i = 0; i < count; i++) {
+            JSONObject hunk = hunks.getJSONObject(i);
+            result.append(String.format("""
+
+                    修改 %d 替换前：
+                    ```
+                    %s
+                    ```
+                    替换后：
+                    ```
+                    %s
+                    ```
+                    """, i + 1, hunk.getStr("oldContent"), hunk.getStr("newContent")));
+        }
+        return result.toString();
+    }
+
+    @Tool("对同一个文件做一处或多处修改，每处修改用文件中唯一出现的旧内容定位并替换为新内容，所有修改一起生效")
+    public String patchFile(
+            @P("文件的相对路径")
+            String relativeFilePath,
+            @P("修改块列表，按任意顺序，每块包含要替换的旧内容（需包含足够上下文以在文件中唯一定位）和替换后的新内容")
+            List<Hunk> hunks,
+            @ToolMemoryId Long appId
+    ) {
+        if (hunks == null || hunks.isEmpty()) {
+            return "错误：修改块列表为空 - " + relativeFilePath;
+        }
+        try {
+            Path path = projectWorkspaceManager.resolve(appId, relativeFilePath);
+            String originalContent = projectWorkspaceManager.readFile(appId, path);
+            if (originalContent == null) {
+                return "错误：文件不存在或不是文件 - " + relativeFilePath;
+            }
+            PatchResult patchResult = applyHunks(originalContent, hunks);
+            if (!patchResult.success()) {
+                return "补丁未应用，文件未修改 - " + relativeFilePath + "\n" + patchResult.report();
+            }
+            if (originalContent.equals(patchResult.content())) {
+                return "信息：修改后文件内容未发生变化 - " + relativeFilePath;
+            }
+            projectWorkspaceManager.writeFile(appId, path, patchResult.content());
+            log.info("成功修改文件: {}, 共 {} 处", path, hunks.size());
+            return "文件修改成功: " + relativeFilePath + "\n" + patchResult.report();
+        } catch (IOException | IllegalArgumentException e) {
+            String errorMessage = "修改文件失败: " + relativeFilePath + ", 错误: " + e.getMessage();
+            log.error(errorMessage, e);
+            return errorMessage;
+        }
+    }
+
+    /**
+     * 校验并应用所有修改块
+     * 每块的旧内容必须在原文件中恰好出现一次，且各块之间不能重叠；全部通过时在原文件上一次性替换
+     */
+    static PatchResult applyHunks(String content, List<Hunk> hunks) {
+        StringBuilder report = new StringBuilder();
+        List<int[]> ranges = new ArrayList<>(hunks.size());
+        boolean success = true;
+        for (int i = 0; i < hunks.size(); i++) {
+            Hunk hunk = hunks.get(i);
+            String oldContent = hunk == null ? null : hunk.getOldContent();
+            if (oldContent == null || oldContent.isEmpty() || hunk.getNewContent() == null) {
+                report.append(String.format("修改 %d：失败，旧内容和新内容不能为空%n", i + 1));
+                success = false;
+                continue;
+            }
+            int start = content.indexOf(oldContent);
+            if (start < 0) {
+                report.append(String.format("修改 %d：失败，文件中未找到旧内容%n", i + 1));
+                success = false;
+                continue;
+            }
+            if (content.indexOf(oldContent, start + 1) >= 0) {
+                report.append(String.format("修改 %d：失败，旧内容在文件中出现多次，请包含更多上下文%n", i + 1));
+                success = false;
+                continue;
+            }
+            ranges.add(new int[]{start, start + oldContent.length(), i});
+            report.append(String.format("修改 %d：第 %d 行%n", i + 1, lineOf(content, start)));
+        }
+        ranges.sort(Comparator.comparingInt(range -> range[0]));
+        for (int i = 1; i < ranges.size(); i++) {
+            if (ranges.get(i)[0] < ranges.get(i - 1)[1]) {
+                report.append(String.format("修改 %d 与修改 %d 的旧内容重叠%n", ranges.get(i - 1)[2] + 1, ranges.get(i)[2] + 1));
+                success = false;
+            }
+        }
+        if (!success) {
+            return new PatchResult(false, content, report.toString().strip());
+        }
+        StringBuilder patched = new StringBuilder(content.length());
+        int position = 0;
+        for (int[] range : ranges) {
+            patched.append(content, position, range[0]).append(hunks.get(range[2]).getNewContent());
+            position = range[1];
+        }
+        patched.append(content, position, content.length());
+        return new PatchResult(true, patched.toString(), report.toString().strip());
+    }
+
+    private static int lineOf(String content, int offset) {
+        int line = 1;
+        for (int i = 0; i < offset; i++) {
+            if (content.charAt(i) == '\n') {
+                line++;
+            }
+        }
+        return line;
+    }
+
+    /**
+     * 补丁应用结果
+     *
+     * @param success 是否全部修改块都校验通过
+     * @param content 修改后的内容（失败时为原内容）
+     * @param report  每个修改块的结果
+     */
+    record PatchResult(boolean success, String content, String report) {
+    }
+
+    /**
+     * 修改块
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Hunk {
+
+        @Description("要替换的旧内容，必须与文件中的内容完全一致，并且在文件中只出现一次")
+        private String oldContent;
+
+        @Description("替换后的新内容")
+        private String newContent;
+    }
+}
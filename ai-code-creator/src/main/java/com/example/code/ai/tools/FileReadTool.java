@@ -1,16 +1,15 @@
 package com.example.code.ai.tools;
 
 import cn.hutool.json.JSONObject;
-import com.example.code.constant.AppConstant;
+import com.example.code.core.workspace.ProjectWorkspaceManager;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.agent.tool.ToolMemoryId;
+import jakarta.annotation.Resource;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 
 /**
  * 文件读取工具
@@ -20,6 +19,8 @@ import java.nio.file.Paths;
 @Component
 public class FileReadTool extends BaseTool{
 
+    @Resource
+    private ProjectWorkspaceManager projectWorkspaceManager;
 
 
     @Override
@@ -49,17 +50,13 @@ public class FileReadTool extends BaseTool{
             @ToolMemoryId Long appId
     ) {
         try {
-            Path path = Paths.get(relativeFilePath);
-            if (!path.isAbsolute()) {
-                String projectDirName = "vue_project_" + appId;
-                Path projectRoot = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, projectDirName);
-                path = projectRoot.resolve(relativeFilePath);
-            }
-            if (!Files.exists(path) || !Files.isRegularFile(path)) {
+            Path path = projectWorkspaceManager.resolve(appId, relativeFilePath);
+            String content = projectWorkspaceManager.readFile(appId, path);
+            if (content == null) {
                 return "错误：文件不存在或不是文件 - " + relativeFilePath;
             }
-            return Files.readString(path);
-        } catch (IOException e) {
+            return content;
+        } catch (IOException | IllegalArgumentException e) {
             String errorMessage = "读取文件失败: " + relativeFilePath + ", 错误: " + e.getMessage();
             //log.error(errorMessage, e);
             return errorMessage;
@@ -2,18 +2,15 @@ package com.example.code.ai.tools;
 
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.json.JSONObject;
-import com.example.code.constant.AppConstant;
+import com.example.code.core.workspace.ProjectWorkspaceManager;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.agent.tool.ToolMemoryId;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 
 /**
  * 文件写入工具
@@ -23,6 +20,8 @@ import java.nio.file.StandardOpenOption;
 @Component
 public class FileWriteTool extends BaseTool{
 
+    @Resource
+    private ProjectWorkspaceManager projectWorkspaceManager;
 
 
     @Override
@@ -56,30 +55,16 @@ public class FileWriteTool extends BaseTool{
             String content,
             @ToolMemoryId Long appId
     ) {
+        Path path;
         try {
-            Path path = Paths.get(relativeFilePath);
-            if (!path.isAbsolute()) {
-                // 相对路径处理，创建基于 appId 的项目目录
-                String projectDirName = "vue_project_" + appId;
-                Path projectRoot = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, projectDirName);
-                path = projectRoot.resolve(relativeFilePath);
-            }
-            // 创建父目录（如果不存在）
-            Path parentDir = path.getParent();
-            if (parentDir != null) {
-                Files.createDirectories(parentDir);
-            }
-            // 写入文件内容
-            Files.write(path, content.getBytes(),
-                    StandardOpenOption.CREATE,
-                    StandardOpenOption.TRUNCATE_EXISTING);
-            log.info("成功写入文件: {}", path.toAbsolutePath());
-            // 注意要返回相对路径，不能让 AI 把文件绝对路径返回给用户
-            return "文件写入成功: " + relativeFilePath;
-        } catch (IOException e) {
-            String errorMessage = "文件写入失败: " + relativeFilePath + ", 错误: " + e.getMessage();
-            log.error(errorMessage, e);
-            return errorMessage;
+            path = projectWorkspaceManager.resolve(appId, relativeFilePath);
+            // 写入工作区，一轮对话结束或构建前统一写回磁盘
+            projectWorkspaceManager.writeFile(appId, path, content);
+        } catch (IllegalArgumentException e) {
+            return "文件写入失败: " + relativeFilePath + ", 错误: " + e.getMessage();
         }
+        log.info("成功写入文件: {}", path);
+        // 注意要返回相对路径，不能让 AI 把文件绝对路径返回给用户
+        return "文件写入成功: " + relativeFilePath;
     }
 }
@@ -1,5 +1,7 @@
 package com.example.code.ai.tools;
 
+import cn.hutool.json.JSONUtil;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import org.springframework.stereotype.Component;
@@ -48,6 +50,21 @@ public class ToolManager {
         return toolMap.get(toolName);
     }
 
+    /**
+     * 获取工具调用涉及的资源，用于并行执行工具时判断调用之间是否冲突
+     *
+     * @param toolExecutionRequest 工具调用请求
+     * @return 资源标识，未知工具或参数无法解析时返回 null（单独执行）
+     */
+    public String getResourceKey(ToolExecutionRequest toolExecutionRequest) {
+        BaseTool tool = toolMap.get(toolExecutionRequest.name());
+        String arguments = toolExecutionRequest.arguments();
+        if (tool == null || !JSONUtil.isTypeJSONObject(arguments)) {
+            return null;
+        }
+        return tool.getResourceKey(JSONUtil.parseObj(arguments));
+    }
+
     /**
      * 获取已注册的工具集合
      *
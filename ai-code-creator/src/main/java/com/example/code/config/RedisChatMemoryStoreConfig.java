@@ -1,11 +1,17 @@
 package com.example.code.config;
 
-import dev.langchain4j.community.store.memory.chat.redis.RedisChatMemoryStore;
+import com.example.code.ai.memory.RedisListChatMemoryStore;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import jakarta.annotation.Resource;
 import lombok.Data;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Configuration
 @ConfigurationProperties(prefix = "spring.data.redis")
 @Data
@@ -20,13 +26,20 @@ public class RedisChatMemoryStoreConfig {
 
     private long ttl;
 
+    @Resource
+    private RedissonClient redissonClient;
+
+    /**
+     * 对话记忆在 Redis 中保留的最大消息数量
+     */
+    @Value("${code-gen.memory.max-messages:200}")
+    private int maxMessages;
+
+    /**
+     * 每个对话一个 Redis 列表，消息压缩存储、增量追加
+     */
     @Bean
-    public RedisChatMemoryStore redisChatMemoryStore() {
-        return RedisChatMemoryStore.builder()
-                .host(host)
-                .port(port)
-                .password(password)
-                .ttl(ttl)
-                .build();
+    public ChatMemoryStore redisChatMemoryStore() {
+        return new RedisListChatMemoryStore(redissonClient, Duration.ofSeconds(ttl), maxMessages);
     }
 }
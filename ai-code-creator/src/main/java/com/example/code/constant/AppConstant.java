@@ -24,6 +24,21 @@ String CODE_OUTPUT_ROOT_DIR = System.getProperty("user.dir") + "/tmp/code_output
      */
     String CODE_DEPLOY_ROOT_DIR = System.getProperty("user.dir") + "/tmp/code_deploy";
 
+    /**
+     * 部署快照存储目录（与部署目录在同一文件系统，便于硬链接）
+     */
+    String CODE_DEPLOY_STORE_DIR = System.getProperty("user.dir") + "/tmp/code_deploy_store";
+
+    /**
+     * 共享依赖目录（按依赖哈希存放 node_modules）
+     */
+    String NODE_MODULES_STORE_DIR = System.getProperty("user.dir") + "/tmp/node_modules_store";
+
+    /**
+     * Vue 项目构建日志目录
+     */
+    String BUILD_LOG_ROOT_DIR = System.getProperty("user.dir") + "/tmp/build_logs";
+
     /**
      * 应用部署域名
      */
@@ -2,13 +2,14 @@ package com.example.code.controller;
 
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.json.JSONUtil;
 import com.example.code.annotation.AuthCheck;
 import com.example.code.common.BaseResponse;
 import com.example.code.common.DeleteRequest;
 import com.example.code.common.ResultUtils;
 import com.example.code.constant.AppConstant;
 import com.example.code.constant.UserConstant;
+import com.example.code.core.stream.GenerationEvent;
+import com.example.code.core.stream.SseDataEncoder;
 import com.example.code.exception.BusinessException;
 import com.example.code.exception.ErrorCode;
 import com.example.code.exception.ThrowUtils;
@@ -35,7 +36,6 @@ import reactor.core.publisher.Mono;
 import java.io.File;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
 
 /**
  * 应用 控制层。
@@ -185,29 +185,35 @@ public class AppController {
      * 应用聊天生成代码（流式 SSE）
      *
      * @param appId   应用 ID
-     * @param message 用户消息
-     * @param request 请求对象
+     * @param message     用户消息
+     * @param lastEventId 断线重连时浏览器自动带上的最后事件 ID（也可通过同名查询参数传入），续传不计入限流
+     * @param request     请求对象
      * @return 生成结果流
      */
-    @RateLimit(limitType = RateLimitType.USER, rate = 2, rateInterval = 60, message = "AI 对话请求过于频繁，请稍后再试")
+    @RateLimit(limitType = RateLimitType.USER, rate = 2, rateInterval = 60, message = "AI 对话请求过于频繁，请稍后再试", skipOnResume = true)
     @GetMapping(value = "/chat/gen/code", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Flux<ServerSentEvent<String>> chatToGenCode(@RequestParam Long appId,
                                                        @RequestParam String message,
+                                                       @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
                                                        HttpServletRequest request) {
         // 参数校验
         ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用ID无效");
         ThrowUtils.throwIf(StrUtil.isBlank(message), ErrorCode.PARAMS_ERROR, "用户消息不能为空");
         // 获取当前登录用户
         User loginUser = userService.getLoginUser(request);
+        // 不支持自定义请求头的客户端可以通过查询参数传入
+        if (StrUtil.isBlank(lastEventId)) {
+            lastEventId = request.getParameter("lastEventId");
+        }
         // 调用服务生成代码（流式）
-        Flux<String> contentFlux = appService.chatToGenCode(appId, message, loginUser);
+        Flux<GenerationEvent> eventFlux = appService.chatToGenCode(appId, message, loginUser, lastEventId);
         // 转换为 ServerSentEvent 格式
-        return contentFlux
-                .map(chunk -> {
-                    // 将内容包装成JSON对象
-                    Map<String, String> wrapper = Map.of("d", chunk);
-                    String jsonData = JSONUtil.toJsonStr(wrapper);
+        return eventFlux
+                .map(event -> {
+                    // 将内容包装成JSON对象 {"d": "..."}（文本片段已在上游合并，这里只做转义）
+                    String jsonData = SseDataEncoder.encode(event.getData());
                     return ServerSentEvent.<String>builder()
+                            .id(event.getEventId())
                             .data(jsonData)
                             .build();
                 })
@@ -237,7 +243,7 @@ public class AppController {
         // 获取当前登录用户
         User loginUser = userService.getLoginUser(request);
         // 调用服务部署应用
-        String deployUrl = appService.deployApp(appId, loginUser);
+        String deployUrl = appService.deployApp(appId, loginUser, Boolean.TRUE.equals(appDeployRequest.getForceRebuild()));
         return ResultUtils.success(deployUrl);
     }
 
@@ -0,0 +1,96 @@
+package com.example.code.controller;
+
+import cn.hutool.core.util.StrUtil;
+import com.example.code.common.BaseResponse;
+import com.example.code.common.ResultUtils;
+import com.example.code.core.stream.SseDataEncoder;
+import com.example.code.exception.ErrorCode;
+import com.example.code.exception.ThrowUtils;
+import com.example.code.model.dto.generationjob.GenerationJobSubmitRequest;
+import com.example.code.model.entity.User;
+import com.example.code.model.vo.GenerationJobVO;
+import com.example.code.ratelimit.annotation.RateLimit;
+import com.example.code.ratelimit.enums.RateLimitType;
+import com.example.code.service.GenerationJobService;
+import com.example.code.service.UserService;
+import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * 生成任务 控制层。
+ * 提交后生成在后台执行，客户端可以轮询状态，也可以随时订阅（或重新订阅）输出
+ */
+@RestController
+@RequestMapping("/generationJob")
+public class GenerationJobController {
+
+    @Resource
+    private GenerationJobService generationJobService;
+
+    @Resource
+    private UserService userService;
+
+    /**
+     * 提交生成任务
+     *
+     * @param submitRequest 提交请求
+     * @param request       请求
+     * @return 任务 ID
+     */
+    @RateLimit(limitType = RateLimitType.USER, rate = 2, rateInterval = 60, message = "AI 对话请求过于频繁，请稍后再试")
+    @PostMapping("/submit")
+    public BaseResponse<Long> submitJob(@RequestBody GenerationJobSubmitRequest submitRequest, HttpServletRequest request) {
+        ThrowUtils.throwIf(submitRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        Long jobId = generationJobService.submitJob(submitRequest.getAppId(), submitRequest.getMessage(), loginUser);
+        return ResultUtils.success(jobId);
+    }
+
+    /**
+     * 查询任务状态和进度
+     *
+     * @param id      任务 ID
+     * @param request 请求
+     * @return 任务状态
+     */
+    @GetMapping("/get")
+    public BaseResponse<GenerationJobVO> getJob(@RequestParam Long id, HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(generationJobService.getJobVO(id, loginUser));
+    }
+
+    /**
+     * 订阅任务输出（流式 SSE），断开连接不影响任务执行
+     *
+     * @param id          任务 ID
+     * @param lastEventId 断线重连时浏览器自动带上的最后事件 ID（也可通过同名查询参数传入）
+     * @param request     请求
+     * @return 生成结果流
+     */
+    @GetMapping(value = "/subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> subscribe(@RequestParam Long id,
+                                                   @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                                   HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        if (StrUtil.isBlank(lastEventId)) {
+            lastEventId = request.getParameter("lastEventId");
+        }
+        // 与 /app/chat/gen/code 输出格式相同
+        return generationJobService.subscribe(id, lastEventId, loginUser)
+                .map(event -> ServerSentEvent.<String>builder()
+                        .id(event.getEventId())
+                        .data(SseDataEncoder.encode(event.getData()))
+                        .build())
+                .concatWith(Mono.just(
+                        ServerSentEvent.<String>builder()
+                                .event("done")
+                                .data("")
+                                .build()
+                ));
+    }
+}
@@ -1,30 +1,44 @@
 package com.example.code.controller;
 
-import com.example.code.constant.AppConstant;
+import com.example.code.core.staticfile.StaticFileCache;
+import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.HandlerMapping;
 
-import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
 
 @RestController
 @RequestMapping("/static")
 public class StaticResourceController {
 
+    /**
+     * Tomcat sendfile 相关的请求属性
+     */
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
 
-
-    // 应用生成根目录（用于浏览）
-    private static final String PREVIEW_ROOT_DIR = AppConstant.CODE_OUTPUT_ROOT_DIR;
-    // 应用部署根目录
-    private static final String DEPLOY_ROOT_DIR = AppConstant.CODE_DEPLOY_ROOT_DIR;
+    @Resource
+    private StaticFileCache staticFileCache;
 
     /**
      * 提供静态资源访问，支持目录重定向
@@ -34,11 +48,16 @@ public class StaticResourceController {
      * 1. 优先从部署目录查找（tmp/code_deploy/{deployKey}/）
      * 2. 如果部署目录不存在，再从预览目录查找（tmp/code_output/{deployKey}/）
      * 3. 两个目录都不存在则返回404
+     * 查找结果和小文件内容缓存在内存中；响应带 ETag / Last-Modified，条件请求返回 304；
+     * 客户端支持时返回预先压缩的 gzip 版本；带内容哈希的 Vite 产物允许浏览器长期缓存；
+     * 支持 Range 请求（语法无效的 Range 按规范忽略，返回完整内容；范围无法满足时返回 416），
+     * 大文件使用 sendfile / transferTo 零拷贝输出
      */
     @GetMapping("/{deployKey}/**")
-    public ResponseEntity<Resource> serveStaticResource(
+    public ResponseEntity<?> serveStaticResource(
             @PathVariable String deployKey,
-            HttpServletRequest request) {
+            HttpServletRequest request,
+            HttpServletResponse response) {
         try {
             // 获取资源路径
             String resourcePath = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
@@ -53,43 +72,136 @@ public class StaticResourceController {
             if (resourcePath.equals("/")) {
                 resourcePath = "/index.html";
             }
-            // 优先从部署目录查找，如果不存在则从预览目录查找
-            String deployFilePath = DEPLOY_ROOT_DIR + "/" + deployKey + resourcePath;
-            File deployFile = new File(deployFilePath);
-            File file;
-            String filePath;
-            if (deployFile.exists()) {
-                // 部署目录中存在文件
-                file = deployFile;
-                filePath = deployFilePath;
-            } else {
-                // 从预览目录查找
-                filePath = PREVIEW_ROOT_DIR + "/" + deployKey + resourcePath;
-                file = new File(filePath);
-                // 如果预览目录也不存在，返回404
-                if (!file.exists()) {
-                    return ResponseEntity.notFound().build();
+            StaticFileCache.StaticFile staticFile = staticFileCache.resolve(deployKey, resourcePath);
+            if (staticFile == null) {
+                return ResponseEntity.notFound().build();
+            }
+            CacheControl cacheControl = staticFile.isImmutable()
+                    ? CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable()
+                    : CacheControl.noCache();
+            // 大文件不经过消息转换器，直接零拷贝写出
+            if (staticFile.getContent() == null) {
+                serveLargeFile(staticFile, cacheControl, request, response);
+                return null;
+            }
+            // 带 ETag 和 Last-Modified 的响应，Spring 会自动处理 If-None-Match / If-Modified-Since 并返回 304，
+            // 有效的 Range 请求以 Resource 返回，由 Spring 返回 206（范围无法满足时 416）；
+            // 其余情况以 byte[] 返回，Spring 不做范围处理，语法无效的 Range 被忽略
+            ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_TYPE, staticFile.getContentType())
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .eTag(staticFile.getEtag())
+                    .lastModified(staticFile.getLastModified())
+                    .cacheControl(cacheControl);
+            boolean rangeRequested = parseRange(request.getHeader(HttpHeaders.RANGE)) != null;
+            if (staticFile.getGzipContent() != null) {
+                builder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                // 范围请求按原始内容计算偏移，不返回压缩版本
+                if (acceptsGzip(request) && !rangeRequested) {
+                    return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(staticFile.getGzipContent());
                 }
             }
-            // 返回文件资源
-            Resource resource = new FileSystemResource(file);
-            return ResponseEntity.ok()
-                    .header("Content-Type", getContentTypeWithCharset(filePath))
-                    .body(resource);
+            if (rangeRequested) {
+                return builder.body(new ByteArrayResource(staticFile.getContent()));
+            }
+            return builder.body(staticFile.getContent());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
     /**
-     * 根据文件扩展名返回带字符编码的 Content-Type
+     * 输出大文件，支持单段 Range 请求（206）
+     * Tomcat 支持 sendfile 时交给容器直接从文件发送到 socket，否则使用 FileChannel.transferTo
+     */
+    private void serveLargeFile(StaticFileCache.StaticFile staticFile, CacheControl cacheControl,
+                                HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String etag = staticFile.getEtag();
+        long lastModified = staticFile.getLastModified();
+        long length = staticFile.getLength();
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setContentType(staticFile.getContentType());
+        long start = 0;
+        long end = length - 1;
+        // 语法无效的 Range 忽略，返回完整内容
+        List<HttpRange> ranges = parseRange(request.getHeader(HttpHeaders.RANGE));
+        // 多段范围请求按完整内容返回
+        if (ranges != null && ranges.size() == 1 && ifRangeMatches(request, etag, lastModified)) {
+            start = ranges.get(0).getRangeStart(length);
+            end = ranges.get(0).getRangeEnd(length);
+            // 语法正确但无法满足（起点超出文件长度）
+            if (start >= length || start > end) {
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+        response.setContentLengthLong(end - start + 1);
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, staticFile.getFile().getCanonicalPath());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            // 结束位置不包含
+            request.setAttribute(SENDFILE_END_ATTR, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(staticFile.getFile().toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                long transferred = channel.transferTo(position, end + 1 - position, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    /**
+     * 解析 Range 请求头
+     *
+     * @return 请求的范围，没有 Range 请求头或语法无效时返回 null
      */
-    private String getContentTypeWithCharset(String filePath) {
-        if (filePath.endsWith(".html")) return "text/html; charset=UTF-8";
-        if (filePath.endsWith(".css")) return "text/css; charset=UTF-8";
-        if (filePath.endsWith(".js")) return "application/javascript; charset=UTF-8";
-        if (filePath.endsWith(".png")) return "image/png";
-        if (filePath.endsWith(".jpg")) return "image/jpeg";
-        return "application/octet-stream";
+    private List<HttpRange> parseRange(String rangeHeader) {
+        if (rangeHeader == null) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.isEmpty() ? null : ranges;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * If-Range 与当前版本一致（或不存在）时才按范围返回
+     */
+    private boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
     }
 }
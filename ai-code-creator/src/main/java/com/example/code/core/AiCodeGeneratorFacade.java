@@ -1,24 +1,29 @@
 package com.example.code.core;
 
-import cn.hutool.json.JSONUtil;
 import com.example.code.ai.AiCodeGeneratorService;
 import com.example.code.ai.AiCodeGeneratorServiceFactory;
 import com.example.code.ai.model.HtmlCodeResult;
 import com.example.code.ai.model.MultiFileCodeResult;
 import com.example.code.ai.model.enums.CodeGenTypeEnum;
 import com.example.code.ai.model.message.AiResponseMessage;
+import com.example.code.ai.model.message.StreamMessage;
 import com.example.code.ai.model.message.ToolExecutedMessage;
 import com.example.code.ai.model.message.ToolRequestMessage;
+import com.example.code.ai.tools.ToolManager;
 import com.example.code.core.parser.CodeParserExecutor;
+import com.example.code.core.parser.StreamingCodeParser;
 import com.example.code.core.saver.CodeFileSaverExecutor;
+import com.example.code.core.saver.StreamingCodeFileSaver;
 import com.example.code.exception.BusinessException;
 import com.example.code.exception.ErrorCode;
 import dev.langchain4j.model.chat.response.ChatResponse;
 import dev.langchain4j.service.TokenStream;
 import dev.langchain4j.service.tool.ToolExecution;
 import jakarta.annotation.Resource;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
 
 
 import java.io.File;
@@ -34,6 +39,15 @@ public class AiCodeGeneratorFacade {
     @Resource
     private AiCodeGeneratorServiceFactory aiCodeGeneratorServiceFactory;
 
+    @Resource
+    private ToolManager toolManager;
+
+    /**
+     * 是否并行执行模型同一轮返回的多个工具调用（不同文件并行，同一文件按顺序）
+     */
+    @Value("${code-gen.tool.parallel-execution:false}")
+    private boolean parallelToolExecution;
+
 
 
 
@@ -45,20 +59,18 @@ public class AiCodeGeneratorFacade {
      * @return 保存的目录
      */
     public File generateAndSaveCode(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId) {
-        // 根据 appId 获取对应的 AI 服务实例
-        AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(appId, codeGenTypeEnum);
-
-
         if (codeGenTypeEnum == null) {
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "生成类型为空");
         }
+        // 获取生成类型对应的 AI 服务实例，对话记忆按 appId 区分
+        AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(codeGenTypeEnum);
         return switch (codeGenTypeEnum) {
             case HTML -> {
-                HtmlCodeResult result = aiCodeGeneratorService.generateHtmlCode(userMessage);
+                HtmlCodeResult result = aiCodeGeneratorService.generateHtmlCode(appId, userMessage);
                 yield CodeFileSaverExecutor.executeSaver(result, CodeGenTypeEnum.HTML, appId);
             }
             case MULTI_FILE -> {
-                MultiFileCodeResult result = aiCodeGeneratorService.generateMultiFileCode(userMessage);
+                MultiFileCodeResult result = aiCodeGeneratorService.generateMultiFileCode(appId, userMessage);
                 yield CodeFileSaverExecutor.executeSaver(result, CodeGenTypeEnum.MULTI_FILE, appId);
             }
             default -> {
@@ -74,19 +86,20 @@ public class AiCodeGeneratorFacade {
      * @param userMessage     用户提示词
      * @param codeGenTypeEnum 生成类型
      * @param appId           应用 ID
+     * @return 生成事件流（文本片段和工具调用事件），由流处理器转换为输出给前端的内容
      */
-    public Flux<String> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId) {
+    public Flux<StreamMessage> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId) {
 
-        // 根据 appId 获取对应的 AI 服务实例
-        AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(appId, codeGenTypeEnum);
+        // 获取生成类型对应的 AI 服务实例，对话记忆按 appId 区分
+        AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(codeGenTypeEnum);
         return switch (codeGenTypeEnum) {
             case HTML -> {
-                Flux<String> codeStream = aiCodeGeneratorService.generateHtmlCodeStream(userMessage);
-                yield processCodeStream(codeStream, CodeGenTypeEnum.HTML, appId);
+                Flux<String> codeStream = processTextStream(aiCodeGeneratorService.generateHtmlCodeStream(appId, userMessage));
+                yield processCodeStream(codeStream, CodeGenTypeEnum.HTML, appId).map(AiResponseMessage::new);
             }
             case MULTI_FILE -> {
-                Flux<String> codeStream = aiCodeGeneratorService.generateMultiFileCodeStream(userMessage);
-                yield processCodeStream(codeStream, CodeGenTypeEnum.MULTI_FILE, appId);
+                Flux<String> codeStream = processTextStream(aiCodeGeneratorService.generateMultiFileCodeStream(appId, userMessage));
+                yield processCodeStream(codeStream, CodeGenTypeEnum.MULTI_FILE, appId).map(AiResponseMessage::new);
             }
             case VUE_PROJECT -> {
                 TokenStream tokenStream = aiCodeGeneratorService.generateVueProjectCodeStream(appId, userMessage);
@@ -101,24 +114,29 @@ public class AiCodeGeneratorFacade {
 
 
     /**
-     * 将 TokenStream 转换为 Flux<String>，并传递工具调用信息
+     * 将 TokenStream 转换为 Flux<StreamMessage>，并传递工具调用信息
+     * 事件以对象形式直接传给流处理器，只在 SSE 出口处序列化一次
+     * 模型回调不支持背压，这里使用缓冲策略；下游共享流对每个订阅者单独限流（见 SubscriberBufferLimiter），
+     * 始终向上游请求无限量数据，这个缓冲不会因为客户端慢而堆积
+     * 订阅取消时取消 TokenStream：停止读取模型响应，不再执行工具和发起下一轮请求
      *
      * @param tokenStream TokenStream 对象
-     * @return Flux<String> 流式响应
+     * @return Flux<StreamMessage> 流式响应
      */
-    private Flux<String> processTokenStream(TokenStream tokenStream) {
+    private Flux<StreamMessage> processTokenStream(TokenStream tokenStream) {
+        if (parallelToolExecution) {
+            tokenStream.parallelToolExecution(toolManager::getResourceKey);
+        }
         return Flux.create(sink -> {
+            sink.onDispose(tokenStream::cancel);
             tokenStream.onPartialResponse((String partialResponse) -> {
-                        AiResponseMessage aiResponseMessage = new AiResponseMessage(partialResponse);
-                        sink.next(JSONUtil.toJsonStr(aiResponseMessage));
+                        sink.next(new AiResponseMessage(partialResponse));
                     })
                     .onPartialToolExecutionRequest((index, toolExecutionRequest) -> {
-                        ToolRequestMessage toolRequestMessage = new ToolRequestMessage(toolExecutionRequest);
-                        sink.next(JSONUtil.toJsonStr(toolRequestMessage));
+                        sink.next(new ToolRequestMessage(toolExecutionRequest));
                     })
                     .onToolExecuted((ToolExecution toolExecution) -> {
-                        ToolExecutedMessage toolExecutedMessage = new ToolExecutedMessage(toolExecution);
-                        sink.next(JSONUtil.toJsonStr(toolExecutedMessage));
+                        sink.next(new ToolExecutedMessage(toolExecution));
                     })
                     .onCompleteResponse((ChatResponse response) -> {
                         sink.complete();
@@ -128,7 +146,7 @@ public class AiCodeGeneratorFacade {
                         sink.error(error);
                     })
                     .start();
-        });
+        }, FluxSink.OverflowStrategy.BUFFER);
     }
 
 
@@ -136,6 +154,23 @@ public class AiCodeGeneratorFacade {
 
 
 
+    /**
+     * 将只输出文本的 TokenStream 转换为 Flux<String>
+     * 与 langchain4j-reactor 直接返回 Flux 不同，订阅取消时会取消 TokenStream，中止对模型的请求
+     *
+     * @param tokenStream TokenStream 对象
+     * @return 文本片段流
+     */
+    private Flux<String> processTextStream(TokenStream tokenStream) {
+        return Flux.create(sink -> {
+            sink.onDispose(tokenStream::cancel);
+            tokenStream.onPartialResponse(sink::next)
+                    .onCompleteResponse((ChatResponse response) -> sink.complete())
+                    .onError(sink::error)
+                    .start();
+        }, FluxSink.OverflowStrategy.BUFFER);
+    }
+
     /**
      * 通用流式代码处理方法（使用 appId）
      *
@@ -145,25 +180,15 @@ public class AiCodeGeneratorFacade {
      * @return 流式响应
      */
     private Flux<String> processCodeStream(Flux<String> codeStream, CodeGenTypeEnum codeGenType, Long appId) {
-
-
-
-        StringBuilder codeBuilder = new StringBuilder();
-        return codeStream.doOnNext(chunk -> {
-            // 实时收集代码片段
-            codeBuilder.append(chunk);
-        }).doOnComplete(() -> {
-            // 流式返回完成后保存代码
-            try {
-                String completeCode = codeBuilder.toString();
-                // 使用执行器解析代码
-                Object parsedResult = CodeParserExecutor.executeParser(completeCode, codeGenType);
-                // 使用执行器保存代码
-                File savedDir = CodeFileSaverExecutor.executeSaver(parsedResult, codeGenType, appId);
-                //log.info("保存成功，路径为：" + savedDir.getAbsolutePath());
-            } catch (Exception e) {
-            //    log.error("保存失败: {}", e.getMessage());
-            }
+        return Flux.defer(() -> {
+            // 每次订阅使用独立的解析状态，代码块闭合后立即落盘，无需等待整个响应结束
+            StreamingCodeParser streamingCodeParser = new StreamingCodeParser(codeGenType,
+                    new StreamingCodeFileSaver(codeGenType, appId));
+            return codeStream
+                    .doOnNext(streamingCodeParser::feed)
+                    .doOnComplete(streamingCodeParser::finish)
+                    .doOnError(error -> streamingCodeParser.abort())
+                    .doOnCancel(streamingCodeParser::abort);
         });
     }
 
@@ -0,0 +1,183 @@
+package com.example.code.core.builder;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.crypto.SecureUtil;
+import cn.hutool.json.JSONUtil;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 构建指纹
+ * 每次构建成功后，在 dist 旁边记录所有源文件的路径、大小和内容哈希；
+ * 再次构建时指纹一致且 dist 存在就直接跳过，未修改的应用部署不需要重新执行 npm
+ */
+@Slf4j
+@Component
+public class BuildFingerprint {
+
+    /**
+     * 指纹清单文件名（放在项目根目录，不会随 dist 一起部署出去）
+     */
+    static final String MANIFEST_FILE_NAME = ".build-manifest.json";
+
+    /**
+     * 不参与指纹计算的文件和目录
+     */
+    private static final Set<String> IGNORED_NAMES = Set.of(
+            "node_modules", "dist", ".git", ".vite", ".DS_Store", MANIFEST_FILE_NAME
+    );
+
+    /**
+     * 计算项目当前的指纹
+     * 路径、大小和修改时间都与上次清单一致的文件直接沿用记录的哈希，不再读取文件内容
+     *
+     * @param projectDir 项目目录
+     * @return 指纹清单
+     */
+    public Manifest snapshot(File projectDir) {
+        Map<String, FileEntry> previousEntries = new HashMap<>();
+        Manifest previous = readManifest(projectDir);
+        if (previous != null && previous.getFiles() != null) {
+            previous.getFiles().forEach(entry -> previousEntries.put(entry.getPath(), entry));
+        }
+        Path root = projectDir.toPath();
+        List<FileEntry> entries = new ArrayList<>();
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (!dir.equals(root) && IGNORED_NAMES.contains(dir.getFileName().toString())) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (!attrs.isRegularFile() || IGNORED_NAMES.contains(file.getFileName().toString())) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    String relativePath = FileUtil.normalize(root.relativize(file).toString());
+                    long size = attrs.size();
+                    long lastModified = attrs.lastModifiedTime().toMillis();
+                    FileEntry previousEntry = previousEntries.get(relativePath);
+                    String hash = previousEntry != null && previousEntry.getSize() == size
+                            && previousEntry.getLastModified() == lastModified
+                            ? previousEntry.getHash() : SecureUtil.sha256(file.toFile());
+                    entries.add(new FileEntry(relativePath, size, lastModified, hash));
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("计算构建指纹失败: {}, 错误: {}", projectDir, e.getMessage());
+            return null;
+        }
+        entries.sort(Comparator.comparing(FileEntry::getPath));
+        StringBuilder source = new StringBuilder();
+        for (FileEntry entry : entries) {
+            source.append(entry.getPath()).append('\0').append(entry.getSize()).append('\0').append(entry.getHash()).append('\n');
+        }
+        Manifest manifest = new Manifest();
+        manifest.setFingerprint(SecureUtil.sha256(source.toString()));
+        manifest.setFiles(entries);
+        return manifest;
+    }
+
+    /**
+     * 判断上次成功构建的产物是否仍然有效
+     *
+     * @param projectDir 项目目录
+     * @param current    当前指纹
+     * @return dist 存在且指纹一致时返回 true
+     */
+    public boolean isUpToDate(File projectDir, Manifest current) {
+        if (current == null || !new File(projectDir, "dist").isDirectory()) {
+            return false;
+        }
+        Manifest recorded = readManifest(projectDir);
+        return recorded != null && current.getFingerprint().equals(recorded.getFingerprint());
+    }
+
+    /**
+     * 构建成功后记录指纹
+     *
+     * @param projectDir 项目目录
+     * @param manifest   构建开始前计算的指纹（构建期间文件又被修改时，下次会重新构建）
+     */
+    public void record(File projectDir, Manifest manifest) {
+        if (manifest == null) {
+            return;
+        }
+        FileUtil.writeUtf8String(JSONUtil.toJsonStr(manifest), new File(projectDir, MANIFEST_FILE_NAME));
+    }
+
+    /**
+     * 使已记录的指纹失效（构建失败或强制重新构建时）
+     *
+     * @param projectDir 项目目录
+     */
+    public void invalidate(File projectDir) {
+        FileUtil.del(new File(projectDir, MANIFEST_FILE_NAME));
+    }
+
+    private Manifest readManifest(File projectDir) {
+        File manifestFile = new File(projectDir, MANIFEST_FILE_NAME);
+        if (!manifestFile.isFile()) {
+            return null;
+        }
+        try {
+            return JSONUtil.toBean(FileUtil.readUtf8String(manifestFile), Manifest.class);
+        } catch (Exception e) {
+            log.warn("读取构建指纹失败: {}, 错误: {}", manifestFile, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 指纹清单
+     */
+    @Data
+    public static class Manifest {
+
+        /**
+         * 所有文件的汇总哈希
+         */
+        private String fingerprint;
+
+        private List<FileEntry> files;
+    }
+
+    /**
+     * 单个文件的指纹
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FileEntry {
+
+        private String path;
+
+        private long size;
+
+        private long lastModified;
+
+        private String hash;
+    }
+}
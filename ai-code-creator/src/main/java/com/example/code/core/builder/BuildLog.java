@@ -0,0 +1,169 @@
+package com.example.code.core.builder;
+
+import cn.hutool.core.date.DatePattern;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.io.FileUtil;
+import com.example.code.constant.AppConstant;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * 单次构建的日志
+ * npm 的 stdout/stderr 逐行写入日志文件（tmp/build_logs/{项目目录名}/{时间}.log），
+ * 其中有意义的行经过节流后推送给进度监听器，同时记录各阶段耗时
+ */
+@Slf4j
+public class BuildLog implements AutoCloseable {
+
+    /**
+     * 每个项目保留的日志文件数量
+     */
+    private static final int MAX_LOG_FILES_PER_PROJECT = 5;
+
+    /**
+     * 普通输出行的最小推送间隔（毫秒），错误行不受限制
+     */
+    private static final long FORWARD_INTERVAL_MILLIS = 500;
+
+    private static final Pattern ANSI_PATTERN = Pattern.compile("\\u001B\\[[;\\d]*[ -/]*[@-~]");
+
+    private static final Pattern ERROR_PATTERN = Pattern.compile("(?i)(npm ERR!|\\berror\\b|failed)");
+
+    /**
+     * 值得推送给用户的普通输出（依赖安装结果、vite 构建进度和产物）
+     */
+    private static final Pattern MEANINGFUL_PATTERN = Pattern.compile(
+            "(?i)(\\badded \\d+|\\bup to date\\b|\\bwarn|vite v\\d|modules transformed|built in|✓|dist/)");
+
+    private final File logFile;
+
+    private final Consumer<String> progressListener;
+
+    private BufferedWriter writer;
+
+    private long lastForwardTime;
+
+    private final Map<String, Long> phaseMillis = new LinkedHashMap<>();
+
+    /**
+     * @param projectDir       项目目录
+     * @param progressListener 进度监听器，可为 null
+     */
+    public BuildLog(File projectDir, Consumer<String> progressListener) {
+        this.progressListener = progressListener;
+        File logDir = new File(AppConstant.BUILD_LOG_ROOT_DIR, projectDir.getName());
+        FileUtil.mkdir(logDir);
+        cleanOldLogs(logDir);
+        this.logFile = new File(logDir, DateUtil.format(DateUtil.date(), DatePattern.PURE_DATETIME_MS_PATTERN) + ".log");
+        try {
+            this.writer = Files.newBufferedWriter(logFile.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.warn("创建构建日志失败: {}, 错误: {}", logFile, e.getMessage());
+        }
+    }
+
+    /**
+     * 记录一行进程输出
+     *
+     * @param line   输出内容
+     * @param stderr 是否来自标准错误
+     */
+    public synchronized void line(String line, boolean stderr) {
+        String text = ANSI_PATTERN.matcher(line).replaceAll("").strip();
+        write((stderr ? "[err] " : "[out] ") + text);
+        if (progressListener == null || text.isEmpty()) {
+            return;
+        }
+        boolean error = ERROR_PATTERN.matcher(text).find();
+        if (!error && !MEANINGFUL_PATTERN.matcher(text).find()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (!error && now - lastForwardTime < FORWARD_INTERVAL_MILLIS) {
+            return;
+        }
+        lastForwardTime = now;
+        progressListener.accept("    " + text + "\n");
+    }
+
+    /**
+     * 记录阶段开始
+     */
+    public synchronized void phaseStart(String phase, String command) {
+        write("==> " + phase + ": " + command);
+    }
+
+    /**
+     * 记录阶段结束及耗时
+     */
+    public synchronized void phaseEnd(String phase, long costMillis, boolean success) {
+        phaseMillis.merge(phase, costMillis, Long::sum);
+        write("<== " + phase + (success ? " 成功" : " 失败") + "，耗时 " + costMillis + " ms");
+    }
+
+    /**
+     * 各阶段耗时摘要，例如：install 12.3s，build 4.5s
+     */
+    public synchronized String summary() {
+        StringBuilder summary = new StringBuilder();
+        phaseMillis.forEach((phase, millis) -> {
+            if (!summary.isEmpty()) {
+                summary.append("，");
+            }
+            summary.append(phase).append(' ').append(String.format("%.1fs", millis / 1000.0));
+        });
+        return summary.toString();
+    }
+
+    public File getLogFile() {
+        return logFile;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException ignored) {
+            // 关闭失败不影响构建结果
+        }
+        writer = null;
+    }
+
+    private void write(String text) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(text);
+            writer.newLine();
+        } catch (IOException e) {
+            log.warn("写入构建日志失败: {}, 错误: {}", logFile, e.getMessage());
+            close();
+        }
+    }
+
+    private void cleanOldLogs(File logDir) {
+        File[] logFiles = logDir.listFiles((dir, name) -> name.endsWith(".log"));
+        if (logFiles == null || logFiles.length < MAX_LOG_FILES_PER_PROJECT) {
+            return;
+        }
+        Arrays.sort(logFiles, Comparator.comparing(File::getName));
+        for (int i = 0; i <= logFiles.length - MAX_LOG_FILES_PER_PROJECT; i++) {
+            FileUtil.del(logFiles[i]);
+        }
+    }
+}
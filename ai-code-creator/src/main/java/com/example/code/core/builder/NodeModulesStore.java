@@ -0,0 +1,355 @@
+package com.example.code.core.builder;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.crypto.SecureUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.example.code.constant.AppConstant;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * 共享依赖存储
+ * 按依赖声明（package.json 中的依赖字段 + 锁文件）计算哈希，每种依赖组合只执行一次 npm install，
+ * 之后的项目直接把 node_modules 软链接到存储目录，跳过安装
+ * 存储目录结构：tmp/node_modules_store/{hash}/node_modules，安装完成后整体原子改名，不会出现装了一半的目录
+ * 每次使用时刷新 {hash}/.last-used 的时间；定期回收没有任何项目链接、且超过保留天数未使用的依赖组合
+ */
+@Slf4j
+@Component
+public class NodeModulesStore {
+
+    /**
+     * 参与哈希计算的 package.json 字段，其余字段（name、version 等）不影响安装结果
+     */
+    private static final String[] DEPENDENCY_FIELDS = {
+            "dependencies", "devDependencies", "peerDependencies", "optionalDependencies",
+            "overrides", "resolutions", "engines"
+    };
+
+    private static final String[] LOCK_FILES = {"package-lock.json", "npm-shrinkwrap.json"};
+
+    private static final String NODE_MODULES = "node_modules";
+
+    private static final String LAST_USED_MARKER = ".last-used";
+
+    private static final String STAGING_SEPARATOR = ".tmp-";
+
+    /**
+     * 没有项目链接的依赖组合保留的天数
+     */
+    @Value("${code-gen.node-modules.retain-days:7}")
+    private long retainDays;
+
+    /**
+     * 回收的执行间隔（小时）
+     */
+    @Value("${code-gen.node-modules.gc-interval-hours:6}")
+    private long gcIntervalHours;
+
+    private Path storeRoot = Path.of(AppConstant.NODE_MODULES_STORE_DIR);
+
+    /**
+     * 项目目录的根目录，用于查找仍在链接共享依赖的项目
+     */
+    private Path projectsRoot = Path.of(AppConstant.CODE_OUTPUT_ROOT_DIR);
+
+    /**
+     * 每个哈希一把锁，同一依赖组合的并发构建只安装一次，回收时不删除正在使用的依赖
+     * 安装可能持续数分钟，使用 ReentrantLock 而不是 synchronized，等待的虚拟线程不会占住载体线程
+     * 回收删除依赖组合时在持有锁的情况下移除它的锁，因此加锁后要确认锁仍在表中，见 {@link #lockHash}
+     */
+    private final Map<String, ReentrantLock> hashLocks = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService gcExecutor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofVirtual().name("node-modules-gc").factory());
+
+    /**
+     * 依赖安装结果
+     */
+    public enum InstallResult {
+        /**
+         * 命中共享存储，跳过安装
+         */
+        CACHE_HIT,
+        /**
+         * 执行了安装并写入共享存储
+         */
+        INSTALLED,
+        /**
+         * 无法使用共享存储，需要在项目目录中直接安装
+         */
+        UNAVAILABLE
+    }
+
+    /**
+     * 保证项目目录中有可用的 node_modules
+     *
+     * @param projectDir 项目目录
+     * @param installer  在指定目录执行 npm install，返回是否成功
+     * @return 安装结果
+     */
+    public InstallResult ensureInstalled(File projectDir, Predicate<File> installer) {
+        String hash;
+        try {
+            hash = computeDependencyHash(projectDir);
+        } catch (Exception e) {
+            log.warn("计算依赖哈希失败，跳过共享依赖: {}, 错误: {}", projectDir, e.getMessage());
+            return InstallResult.UNAVAILABLE;
+        }
+        Path entryDir = storeRoot.resolve(hash);
+        Path storeModules = entryDir.resolve(NODE_MODULES);
+        InstallResult result = InstallResult.CACHE_HIT;
+        // 链接和刷新使用时间也在锁内完成，回收不会删除刚被链接的依赖
+        ReentrantLock lock = lockHash(hash);
+        try {
+            if (!Files.isDirectory(storeModules)) {
+                if (!installIntoStore(projectDir, entryDir, installer)) {
+                    return InstallResult.UNAVAILABLE;
+                }
+                result = InstallResult.INSTALLED;
+            }
+            if (!linkInto(projectDir.toPath().resolve(NODE_MODULES), storeModules)) {
+                return InstallResult.UNAVAILABLE;
+            }
+            touchLastUsed(entryDir);
+        } finally {
+            lock.unlock();
+        }
+        log.info("项目依赖已就绪（{}），hash: {}, 项目: {}", result, hash, projectDir);
+        return result;
+    }
+
+    /**
+     * 获取哈希的锁并加锁
+     * 等待期间回收可能删除了该哈希并移除了锁，此时拿到的锁已不在表中，重新获取
+     */
+    private ReentrantLock lockHash(String hash) {
+        while (true) {
+            ReentrantLock lock = hashLocks.computeIfAbsent(hash, key -> new ReentrantLock());
+            lock.lock();
+            if (hashLocks.get(hash) == lock) {
+                return lock;
+            }
+            lock.unlock();
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        gcExecutor.scheduleWithFixedDelay(this::collectGarbage, gcIntervalHours, gcIntervalHours, TimeUnit.HOURS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        gcExecutor.shutdownNow();
+    }
+
+    /**
+     * 回收没有项目链接、且超过保留天数未使用的依赖组合，以及残留的安装临时目录
+     * 正在安装或链接的哈希（锁被占用）跳过
+     *
+     * @return 删除的目录数量
+     */
+    int collectGarbage() {
+        if (!Files.isDirectory(storeRoot)) {
+            return 0;
+        }
+        Instant expireBefore = Instant.now().minus(Duration.ofDays(retainDays));
+        int removed = 0;
+        try {
+            Set<String> referenced = findReferencedHashes();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(storeRoot)) {
+                for (Path entry : entries) {
+                    String name = entry.getFileName().toString();
+                    String hash = name.contains(STAGING_SEPARATOR) ? name.substring(0, name.indexOf(STAGING_SEPARATOR)) : name;
+                    if (referenced.contains(name) || !lastUsed(entry).isBefore(expireBefore)) {
+                        continue;
+                    }
+                    ReentrantLock lock = hashLocks.computeIfAbsent(hash, key -> new ReentrantLock());
+                    if (!lock.tryLock()) {
+                        continue;
+                    }
+                    try {
+                        FileUtil.del(entry);
+                        removed++;
+                        // 依赖组合已不存在时移除它的锁，锁表不随见过的哈希数量无限增长
+                        if (!Files.exists(storeRoot.resolve(hash))) {
+                            hashLocks.remove(hash, lock);
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
+            log.info("共享依赖回收完成，删除 {} 个目录", removed);
+        } catch (Exception e) {
+            log.error("共享依赖回收失败: {}", e.getMessage(), e);
+        }
+        return removed;
+    }
+
+    /**
+     * 查找仍被项目的 node_modules 软链接引用的哈希
+     */
+    private Set<String> findReferencedHashes() throws IOException {
+        Set<String> referenced = new HashSet<>();
+        if (!Files.isDirectory(projectsRoot)) {
+            return referenced;
+        }
+        try (DirectoryStream<Path> projects = Files.newDirectoryStream(projectsRoot)) {
+            for (Path project : projects) {
+                Path projectModules = project.resolve(NODE_MODULES);
+                if (!Files.isSymbolicLink(projectModules)) {
+                    continue;
+                }
+                Path target = Files.readSymbolicLink(projectModules);
+                if (target.getParent() != null && target.getParent().getFileName() != null) {
+                    referenced.add(target.getParent().getFileName().toString());
+                }
+            }
+        }
+        return referenced;
+    }
+
+    /**
+     * 依赖组合最后一次被使用的时间，没有标记文件（旧版本创建的目录或临时目录）时取目录的修改时间
+     */
+    private Instant lastUsed(Path entry) throws IOException {
+        Path marker = entry.resolve(LAST_USED_MARKER);
+        Path source = Files.exists(marker) ? marker : entry;
+        return Files.getLastModifiedTime(source, LinkOption.NOFOLLOW_LINKS).toInstant();
+    }
+
+    private void touchLastUsed(Path entryDir) {
+        Path marker = entryDir.resolve(LAST_USED_MARKER);
+        try {
+            if (Files.exists(marker)) {
+                Files.setLastModifiedTime(marker, FileTime.from(Instant.now()));
+            } else {
+                Files.createFile(marker);
+            }
+        } catch (IOException e) {
+            log.warn("更新共享依赖使用时间失败: {}, 错误: {}", entryDir, e.getMessage());
+        }
+    }
+
+    /**
+     * 计算依赖哈希
+     *
+     * @param projectDir 项目目录
+     * @return 依赖哈希（SHA-256）
+     */
+    String computeDependencyHash(File projectDir) {
+        String packageJsonStr = FileUtil.readUtf8String(new File(projectDir, "package.json"));
+        JSONObject packageJson = JSONUtil.parseObj(packageJsonStr);
+        // 只取依赖相关字段，并按 key 排序，保证格式和字段顺序不同的 package.json 得到相同的哈希
+        StringBuilder source = new StringBuilder();
+        for (String field : DEPENDENCY_FIELDS) {
+            Object value = packageJson.get(field);
+            if (value != null) {
+                source.append(field).append('=').append(JSONUtil.toJsonStr(sortKeys(value))).append('\n');
+            }
+        }
+        for (String lockFile : LOCK_FILES) {
+            File file = new File(projectDir, lockFile);
+            if (file.isFile()) {
+                source.append(lockFile).append('=').append(SecureUtil.sha256(file)).append('\n');
+            }
+        }
+        return SecureUtil.sha256(source.toString());
+    }
+
+    private Object sortKeys(Object value) {
+        if (value instanceof JSONObject jsonObject) {
+            Map<String, Object> sorted = new TreeMap<>();
+            jsonObject.forEach((key, child) -> sorted.put(key, sortKeys(child)));
+            return sorted;
+        }
+        return value;
+    }
+
+    /**
+     * 在临时目录中安装依赖，成功后改名为正式的存储目录
+     */
+    private boolean installIntoStore(File projectDir, Path entryDir, Predicate<File> installer) {
+        Path stagingDir = storeRoot.resolve(entryDir.getFileName() + STAGING_SEPARATOR + IdUtil.fastSimpleUUID());
+        try {
+            Files.createDirectories(stagingDir);
+            FileUtil.copy(new File(projectDir, "package.json"), stagingDir.toFile(), true);
+            for (String lockFile : LOCK_FILES) {
+                File file = new File(projectDir, lockFile);
+                if (file.isFile()) {
+                    FileUtil.copy(file, stagingDir.toFile(), true);
+                }
+            }
+            log.info("共享依赖未命中，开始安装: {}", entryDir.getFileName());
+            if (!installer.test(stagingDir.toFile()) || !Files.isDirectory(stagingDir.resolve(NODE_MODULES))) {
+                log.error("共享依赖安装失败: {}", entryDir.getFileName());
+                return false;
+            }
+            // 上一次失败可能留下不完整的目录
+            FileUtil.del(entryDir);
+            try {
+                Files.move(stagingDir, entryDir, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(stagingDir, entryDir);
+            }
+            return true;
+        } catch (IOException e) {
+            log.error("写入共享依赖失败: {}, 错误: {}", entryDir, e.getMessage());
+            return false;
+        } finally {
+            FileUtil.del(stagingDir);
+        }
+    }
+
+    /**
+     * 把项目的 node_modules 指向共享存储
+     */
+    private boolean linkInto(Path projectModules, Path storeModules) {
+        try {
+            if (Files.isSymbolicLink(projectModules)) {
+                if (Files.readSymbolicLink(projectModules).equals(storeModules)) {
+                    return true;
+                }
+                Files.delete(projectModules);
+            } else if (Files.exists(projectModules, LinkOption.NOFOLLOW_LINKS)) {
+                // 之前在项目目录中直接安装过的依赖
+                FileUtil.del(projectModules);
+            }
+            Files.createSymbolicLink(projectModules, storeModules);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            // 例如 Windows 下没有创建软链接的权限
+            log.warn("链接共享依赖失败: {}, 错误: {}", projectModules, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.code.core.builder;
+
+import com.example.code.exception.BusinessException;
+import com.example.code.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+/**
+ * Vue 构建调度器
+ * 同时运行的 npm 进程数量固定，超出的任务排队等待：部署优先于预览构建，
+ * 同一优先级内按用户轮转，避免单个用户的大量构建占满所有槽位；队列满时直接拒绝
+ */
+@Slf4j
+@Component
+public class VueBuildScheduler {
+
+    /**
+     * 同时执行的构建数量
+     */
+    @Value("${code-gen.build.max-concurrent:2}")
+    private int maxConcurrent;
+
+    /**
+     * 排队中的构建任务上限
+     */
+    @Value("${code-gen.build.max-queue-size:50}")
+    private int maxQueueSize;
+
+    /**
+     * 构建优先级，声明顺序即调度顺序
+     */
+    public enum BuildPriority {
+        /**
+         * 部署构建，用户在等待部署结果
+         */
+        DEPLOY,
+        /**
+         * 生成完成后的预览构建
+         */
+        PREVIEW
+    }
+
+    private final Map<BuildPriority, FairQueue> queues = new EnumMap<>(BuildPriority.class);
+
+    private int runningCount;
+
+    private int queuedCount;
+
+    public VueBuildScheduler() {
+        for (BuildPriority priority : BuildPriority.values()) {
+            queues.put(priority, new FairQueue());
+        }
+    }
+
+    /**
+     * 提交构建任务
+     *
+     * @param userId                用户 ID
+     * @param priority              优先级
+     * @param buildAction           构建动作，在构建槽位中执行，返回是否成功
+     * @param queuePositionListener 排队位置变化回调（从 1 开始），可为 null；任务开始执行后不再回调
+     * @return 构建结果，取消排队中的任务会将其移出队列
+     */
+    public CompletableFuture<Boolean> submit(Long userId, BuildPriority priority, BooleanSupplier buildAction,
+                                             IntConsumer queuePositionListener) {
+        BuildTask task = new BuildTask(userId, priority, buildAction, queuePositionListener);
+        synchronized (this) {
+            if (queuedCount >= maxQueueSize) {
+                log.warn("构建队列已满，拒绝构建任务，userId: {}, priority: {}", userId, priority);
+                throw new BusinessException(ErrorCode.TOO_MANY_REQUEST, "当前构建任务过多，请稍后再试");
+            }
+            queues.get(priority).add(task);
+            queuedCount++;
+        }
+        task.future.whenComplete((result, error) -> {
+            if (task.future.isCancelled()) {
+                cancel(task);
+            }
+        });
+        dispatch();
+        return task.future;
+    }
+
+    /**
+     * 取消排队中的任务，已开始的任务会继续执行完
+     */
+    private void cancel(BuildTask task) {
+        boolean removed;
+        synchronized (this) {
+            removed = queues.get(task.priority).remove(task);
+            if (removed) {
+                queuedCount--;
+            }
+        }
+        if (removed) {
+            log.info("构建任务已取消，userId: {}", task.userId);
+            dispatch();
+        }
+    }
+
+    /**
+     * 有空闲槽位时启动排在最前面的任务，并通知其余任务最新的排队位置
+     */
+    private void dispatch() {
+        List<BuildTask> toStart = new ArrayList<>();
+        List<BuildTask> waiting = new ArrayList<>();
+        synchronized (this) {
+            while (runningCount < maxConcurrent) {
+                BuildTask next = pollNext();
+                if (next == null) {
+                    break;
+                }
+                runningCount++;
+                queuedCount--;
+                toStart.add(next);
+            }
+            for (BuildPriority priority : BuildPriority.values()) {
+                queues.get(priority).collectInOrder(waiting);
+            }
+        }
+        toStart.forEach(this::start);
+        // 回调在锁外执行
+        for (int i = 0; i < waiting.size(); i++) {
+            waiting.get(i).notifyPosition(i + 1);
+        }
+    }
+
+    private BuildTask pollNext() {
+        for (BuildPriority priority : BuildPriority.values()) {
+            BuildTask task = queues.get(priority).poll();
+            if (task != null) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private void start(BuildTask task) {
+        Thread.ofVirtual().name("vue-builder-" + task.userId + "-" + System.currentTimeMillis()).start(() -> {
+            boolean success = false;
+            try {
+                success = task.buildAction.getAsBoolean();
+            } catch (Exception e) {
+                log.error("构建任务执行异常: {}", e.getMessage(), e);
+            } finally {
+                synchronized (this) {
+                    runningCount--;
+                }
+                task.future.complete(success);
+                dispatch();
+            }
+        });
+    }
+
+    /**
+     * 构建任务
+     */
+    private static class BuildTask {
+
+        private final Long userId;
+
+        private final BuildPriority priority;
+
+        private final BooleanSupplier buildAction;
+
+        private final IntConsumer queuePositionListener;
+
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+        /**
+         * 上次通知的排队位置，位置不变时不重复通知
+         */
+        private int lastPosition;
+
+        private BuildTask(Long userId, BuildPriority priority, BooleanSupplier buildAction, IntConsumer queuePositionListener) {
+            this.userId = userId;
+            this.priority = priority;
+            this.buildAction = buildAction;
+            this.queuePositionListener = queuePositionListener;
+        }
+
+        private synchronized void notifyPosition(int position) {
+            if (queuePositionListener == null || position == lastPosition) {
+                return;
+            }
+            lastPosition = position;
+            try {
+                queuePositionListener.accept(position);
+            } catch (Exception e) {
+                log.warn("推送排队位置失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 按用户轮转的公平队列（非线程安全，由调度器加锁访问）
+     */
+    private static class FairQueue {
+
+        private final Map<Long, ArrayDeque<BuildTask>> userQueues = new LinkedHashMap<>();
+
+        /**
+         * 有排队任务的用户的轮转顺序
+         */
+        private final ArrayDeque<Long> rotation = new ArrayDeque<>();
+
+        private void add(BuildTask task) {
+            userQueues.computeIfAbsent(task.userId, id -> {
+                rotation.add(id);
+                return new ArrayDeque<>();
+            }).add(task);
+        }
+
+        private BuildTask poll() {
+            Long userId = rotation.poll();
+            if (userId == null) {
+                return null;
+            }
+            ArrayDeque<BuildTask> userQueue = userQueues.get(userId);
+            BuildTask task = userQueue.poll();
+            if (userQueue.isEmpty()) {
+                userQueues.remove(userId);
+            } else {
+                rotation.add(userId);
+            }
+            return task;
+        }
+
+        private boolean remove(BuildTask task) {
+            ArrayDeque<BuildTask> userQueue = userQueues.get(task.userId);
+            if (userQueue == null || !userQueue.remove(task)) {
+                return false;
+            }
+            if (userQueue.isEmpty()) {
+                userQueues.remove(task.userId);
+                rotation.remove(task.userId);
+            }
+            return true;
+        }
+
+        /**
+         * 按出队顺序收集所有任务
+         */
+        private void collectInOrder(List<BuildTask> result) {
+            List<List<BuildTask>> perUser = new ArrayList<>();
+            for (Long userId : rotation) {
+                perUser.add(new ArrayList<>(userQueues.get(userId)));
+            }
+            for (int round = 0; ; round++) {
+                boolean added = false;
+                for (List<BuildTask> tasks : perUser) {
+                    if (round < tasks.size()) {
+                        result.add(tasks.get(round));
+                        added = true;
+                    }
+                }
+                if (!added) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -1,12 +1,18 @@
 package com.example.code.core.builder;
 
-import cn.hutool.core.util.RuntimeUtil;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
-import reactor.core.scheduler.Schedulers;
+import reactor.core.publisher.FluxSink;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 
@@ -14,6 +20,15 @@ import java.util.concurrent.TimeUnit;
 @Component
 public class VueProjectBuilder {
 
+    @Resource
+    private NodeModulesStore nodeModulesStore;
+
+    @Resource
+    private VueBuildScheduler vueBuildScheduler;
+
+    @Resource
+    private BuildFingerprint buildFingerprint;
+
 
 
 
@@ -32,44 +47,77 @@ public class VueProjectBuilder {
 
     /**
      * 执行命令
+     * stdout 和 stderr 分别由虚拟线程逐行读取并写入构建日志，避免输出过多时管道写满导致进程阻塞
      *
      * @param workingDir     工作目录
      * @param command        命令字符串
      * @param timeoutSeconds 超时时间（秒）
+     * @param buildLog       构建日志
+     * @param phase          构建阶段名称（用于统计耗时）
      * @return 是否执行成功
      */
-    private boolean executeCommand(File workingDir, String command, int timeoutSeconds) {
+    private boolean executeCommand(File workingDir, String command, int timeoutSeconds, BuildLog buildLog, String phase) {
+        long startTime = System.currentTimeMillis();
+        boolean success = false;
+        buildLog.phaseStart(phase, command);
         try {
             log.info("在目录 {} 中执行命令: {}", workingDir.getAbsolutePath(), command);
-            Process process = RuntimeUtil.exec(
-                    null,
-                    workingDir,
-                    command.split("\\s+") // 命令分割为数组
-            );
+            ProcessBuilder processBuilder = new ProcessBuilder(command.split("\\s+")) // 命令分割为数组
+                    .directory(workingDir);
+            // 关闭彩色输出，日志里不需要控制字符
+            processBuilder.environment().put("FORCE_COLOR", "0");
+            processBuilder.environment().put("NO_COLOR", "1");
+            Process process = processBuilder.start();
+            Thread stdoutReader = Thread.ofVirtual().start(() -> drain(process.getInputStream(), buildLog, false));
+            Thread stderrReader = Thread.ofVirtual().start(() -> drain(process.getErrorStream(), buildLog, true));
             // 等待进程完成，设置超时
             boolean finished = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
             if (!finished) {
                 log.error("命令执行超时（{}秒），强制终止进程", timeoutSeconds);
+                // npm 会再启动子进程，一并终止
+                process.descendants().forEach(ProcessHandle::destroyForcibly);
                 process.destroyForcibly();
+                buildLog.line("命令执行超时（" + timeoutSeconds + "秒），已终止", true);
                 return false;
             }
+            // 进程退出后把剩余输出读完
+            stdoutReader.join(TimeUnit.SECONDS.toMillis(5));
+            stderrReader.join(TimeUnit.SECONDS.toMillis(5));
             int exitCode = process.exitValue();
             if (exitCode == 0) {
                 log.info("命令执行成功: {}", command);
+                success = true;
                 return true;
             } else {
-                log.error("命令执行失败，退出码: {}", exitCode);
+                log.error("命令执行失败，退出码: {}，日志: {}", exitCode, buildLog.getLogFile());
                 return false;
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("执行命令被中断: {}", command);
+            return false;
         } catch (Exception e) {
             log.error("执行命令失败: {}, 错误信息: {}", command, e.getMessage());
             return false;
+        } finally {
+            buildLog.phaseEnd(phase, System.currentTimeMillis() - startTime, success);
         }
     }
 
-
-
-
+    /**
+     * 逐行读取进程输出
+     */
+    private void drain(InputStream inputStream, BuildLog buildLog, boolean stderr) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                buildLog.line(line, stderr);
+            }
+        } catch (IOException e) {
+            // 进程被终止时流会被关闭
+            log.debug("读取进程输出结束: {}", e.getMessage());
+        }
+    }
 
 /// 检查是否是windows电脑
     private boolean isWindows() {
@@ -86,30 +134,80 @@ public class VueProjectBuilder {
     /**
      * 执行 npm install 命令
      */
-    private boolean executeNpmInstall(File projectDir) {
+    private boolean executeNpmInstall(File projectDir, BuildLog buildLog) {
         log.info("执行 npm install...");
         String command = String.format("%s install", buildCommand("npm"));
-        return executeCommand(projectDir, command, 300); // 5分钟超时
+        return executeCommand(projectDir, command, 300, buildLog, "install"); // 5分钟超时
+    }
+
+    /**
+     * 安装项目依赖
+     * 优先使用共享依赖存储（相同依赖只安装一次），不可用时退回到在项目目录中直接安装
+     *
+     * @param projectDir 项目目录
+     * @param buildLog   构建日志
+     * @return 安装结果，失败时返回 null
+     */
+    private NodeModulesStore.InstallResult installDependencies(File projectDir, BuildLog buildLog) {
+        NodeModulesStore.InstallResult result = nodeModulesStore.ensureInstalled(projectDir,
+                dir -> executeNpmInstall(dir, buildLog));
+        if (result != NodeModulesStore.InstallResult.UNAVAILABLE) {
+            return result;
+        }
+        return executeNpmInstall(projectDir, buildLog) ? result : null;
     }
 
     /**
      * 执行 npm run build 命令
      */
-    private boolean executeNpmBuild(File projectDir) {
+    private boolean executeNpmBuild(File projectDir, BuildLog buildLog) {
         log.info("执行 npm run build...");
         String command = String.format("%s run build", buildCommand("npm"));
-        return executeCommand(projectDir, command, 180); // 3分钟超时
+        return executeCommand(projectDir, command, 180, buildLog, "build"); // 3分钟超时
     }
 
 
 
     /**
-     * 构建 Vue 项目
+     * 构建 Vue 项目（部署优先级，阻塞等待构建槽位和构建结果）
      *
      * @param projectPath 项目根目录路径
+     * @param userId      发起构建的用户 ID
+     * @return 是否构建成功
+     */
+    public boolean buildProject(String projectPath, Long userId) {
+        return buildProject(projectPath, userId, false);
+    }
+
+    /**
+     * 构建 Vue 项目（部署优先级，阻塞等待构建槽位和构建结果）
+     *
+     * @param projectPath  项目根目录路径
+     * @param userId       发起构建的用户 ID
+     * @param forceRebuild 是否忽略构建指纹强制重新构建
      * @return 是否构建成功
      */
-    public boolean buildProject(String projectPath) {
+    public boolean buildProject(String projectPath, Long userId, boolean forceRebuild) {
+        // 源码未变化时不用进入构建队列
+        if (!forceRebuild && isUpToDate(new File(projectPath))) {
+            log.info("代码未变化，跳过构建: {}", projectPath);
+            return true;
+        }
+        return vueBuildScheduler.submit(userId, VueBuildScheduler.BuildPriority.DEPLOY,
+                () -> doBuildProject(projectPath, forceRebuild), null).join();
+    }
+
+    /**
+     * 上次成功构建后源码是否没有变化
+     */
+    private boolean isUpToDate(File projectDir) {
+        return projectDir.isDirectory() && buildFingerprint.isUpToDate(projectDir, buildFingerprint.snapshot(projectDir));
+    }
+
+    /**
+     * 在当前线程中执行构建
+     */
+    private boolean doBuildProject(String projectPath, boolean forceRebuild) {
         File projectDir = new File(projectPath);
         if (!projectDir.exists() || !projectDir.isDirectory()) {
             log.error("项目目录不存在: {}", projectPath);
@@ -121,98 +219,140 @@ public class VueProjectBuilder {
             log.error("package.json 文件不存在: {}", packageJson.getAbsolutePath());
             return false;
         }
-        log.info("开始构建 Vue 项目: {}", projectPath);
-        // 执行 npm install
-        if (!executeNpmInstall(projectDir)) {
-            log.error("npm install 执行失败");
-            return false;
-        }
-        // 执行 npm run build
-        if (!executeNpmBuild(projectDir)) {
-            log.error("npm run build 执行失败");
-            return false;
+        // 排队期间可能已经有相同代码的构建完成了
+        BuildFingerprint.Manifest manifest = buildFingerprint.snapshot(projectDir);
+        if (!forceRebuild && buildFingerprint.isUpToDate(projectDir, manifest)) {
+            log.info("代码未变化，跳过构建: {}", projectPath);
+            return true;
         }
-        // 验证 dist 目录是否生成
-        File distDir = new File(projectDir, "dist");
-        if (!distDir.exists()) {
-            log.error("构建完成但 dist 目录未生成: {}", distDir.getAbsolutePath());
-            return false;
+        buildFingerprint.invalidate(projectDir);
+        log.info("开始构建 Vue 项目: {}", projectPath);
+        try (BuildLog buildLog = new BuildLog(projectDir, null)) {
+            // 执行 npm install（命中共享依赖时跳过）
+            if (installDependencies(projectDir, buildLog) == null) {
+                log.error("npm install 执行失败");
+                return false;
+            }
+            // 执行 npm run build
+            if (!executeNpmBuild(projectDir, buildLog)) {
+                log.error("npm run build 执行失败");
+                return false;
+            }
+            // 验证 dist 目录是否生成
+            File distDir = new File(projectDir, "dist");
+            if (!distDir.exists()) {
+                log.error("构建完成但 dist 目录未生成: {}", distDir.getAbsolutePath());
+                return false;
+            }
+            buildFingerprint.record(projectDir, manifest);
+            log.info("Vue 项目构建成功，dist 目录: {}，耗时: {}", distDir.getAbsolutePath(), buildLog.summary());
+            return true;
         }
-        log.info("Vue 项目构建成功，dist 目录: {}", distDir.getAbsolutePath());
-        return true;
     }
 
     /**
      * 异步构建项目（不阻塞主流程）
      *
      * @param projectPath 项目路径
+     * @param userId      发起构建的用户 ID
      */
-    public void buildProjectAsync(String projectPath) {
-        // 在单独的线程中执行构建，避免阻塞主流程
-        Thread.ofVirtual().name("vue-builder-" + System.currentTimeMillis()).start(() -> {
-            try {
-                buildProject(projectPath);
-            } catch (Exception e) {
-                log.error("异步构建 Vue 项目时发生异常: {}", e.getMessage(), e);
-            }
-        });
+    public void buildProjectAsync(String projectPath, Long userId) {
+        // 交给构建调度器排队执行，避免并发的 npm 进程不受控制
+        vueBuildScheduler.submit(userId, VueBuildScheduler.BuildPriority.PREVIEW, () -> doBuildProject(projectPath, false), null);
     }
 
     /**
      * 构建 Vue 项目并推送进度（返回Flux用于SSE推送）
+     * 构建在调度器的槽位中执行，排队期间推送排队位置；订阅取消时排队中的任务会被移出队列
      *
      * @param projectPath 项目根目录路径
+     * @param userId      发起构建的用户 ID
      * @return 构建进度流
      */
-    public Flux<String> buildProjectWithProgress(String projectPath) {
-        return Flux.<String>create(sink -> {
+    public Flux<String> buildProjectWithProgress(String projectPath, Long userId) {
+        return Flux.create(sink -> {
+            if (isUpToDate(new File(projectPath))) {
+                sink.next("\n\n✅ 代码未变化，跳过构建\n\n");
+                sink.complete();
+                return;
+            }
+            CompletableFuture<Boolean> future;
             try {
-                File projectDir = new File(projectPath);
-                if (!projectDir.exists() || !projectDir.isDirectory()) {
-                    sink.error(new RuntimeException("项目目录不存在: " + projectPath));
-                    return;
-                }
-                // 检查 package.json 是否存在
-                File packageJson = new File(projectDir, "package.json");
-                if (!packageJson.exists()) {
-                    sink.error(new RuntimeException("package.json 文件不存在: " + packageJson.getAbsolutePath()));
-                    return;
-                }
-                
-                sink.next("\n\n🔨 开始构建 Vue 项目...\n\n");
-                
+                future = vueBuildScheduler.submit(userId, VueBuildScheduler.BuildPriority.PREVIEW,
+                        () -> doBuildProjectWithProgress(projectPath, sink),
+                        position -> sink.next("\n⏳ 构建排队中，前面还有 " + (position - 1) + " 个任务\n"));
+            } catch (Exception e) {
+                sink.error(e);
+                return;
+            }
+            sink.onCancel(() -> future.cancel(false));
+        });
+    }
+
+    /**
+     * 在当前线程中执行构建，并把进度推送到 sink
+     */
+    private boolean doBuildProjectWithProgress(String projectPath, FluxSink<String> sink) {
+        try {
+            File projectDir = new File(projectPath);
+            if (!projectDir.exists() || !projectDir.isDirectory()) {
+                sink.error(new RuntimeException("项目目录不存在: " + projectPath));
+                return false;
+            }
+            // 检查 package.json 是否存在
+            File packageJson = new File(projectDir, "package.json");
+            if (!packageJson.exists()) {
+                sink.error(new RuntimeException("package.json 文件不存在: " + packageJson.getAbsolutePath()));
+                return false;
+            }
+
+            BuildFingerprint.Manifest manifest = buildFingerprint.snapshot(projectDir);
+            if (buildFingerprint.isUpToDate(projectDir, manifest)) {
+                sink.next("\n\n✅ 代码未变化，跳过构建\n\n");
+                sink.complete();
+                return true;
+            }
+            buildFingerprint.invalidate(projectDir);
+
+            sink.next("\n\n🔨 开始构建 Vue 项目...\n\n");
+            // 有意义的 npm 输出行节流后推送给用户
+            try (BuildLog buildLog = new BuildLog(projectDir, sink::next)) {
                 // 执行 npm install
                 sink.next("📦 正在安装依赖 (npm install)...\n");
-                boolean installSuccess = executeNpmInstall(projectDir);
-                if (!installSuccess) {
+                NodeModulesStore.InstallResult installResult = installDependencies(projectDir, buildLog);
+                if (installResult == null) {
                     sink.error(new RuntimeException("npm install 执行失败"));
-                    return;
+                    return false;
                 }
-                sink.next("✅ 依赖安装完成\n");
-                
+                sink.next(installResult == NodeModulesStore.InstallResult.CACHE_HIT
+                        ? "✅ 命中依赖缓存，跳过安装\n" : "✅ 依赖安装完成\n");
+
                 // 执行 npm run build
                 sink.next("🏗️ 正在构建项目 (npm run build)...\n");
-                boolean buildSuccess = executeNpmBuild(projectDir);
+                boolean buildSuccess = executeNpmBuild(projectDir, buildLog);
                 if (!buildSuccess) {
                     sink.error(new RuntimeException("npm run build 执行失败"));
-                    return;
+                    return false;
                 }
-                
+
                 // 验证 dist 目录是否生成
                 File distDir = new File(projectDir, "dist");
                 if (!distDir.exists()) {
                     sink.error(new RuntimeException("构建完成但 dist 目录未生成"));
-                    return;
+                    return false;
                 }
-                
-                sink.next("✅ 构建完成！dist 目录已生成\n\n");
+
+                buildFingerprint.record(projectDir, manifest);
+                log.info("Vue 项目构建成功: {}，耗时: {}", projectPath, buildLog.summary());
+                sink.next("✅ 构建完成！dist 目录已生成（" + buildLog.summary() + "）\n\n");
                 sink.complete();
-            } catch (Exception e) {
-                log.error("构建 Vue 项目时发生异常: {}", e.getMessage(), e);
-                sink.error(e);
+                return true;
             }
-        })
-        .subscribeOn(Schedulers.boundedElastic()); // 在后台线程执行，避免阻塞
+        } catch (Exception e) {
+            log.error("构建 Vue 项目时发生异常: {}", e.getMessage(), e);
+            sink.error(e);
+            return false;
+        }
     }
 
 }
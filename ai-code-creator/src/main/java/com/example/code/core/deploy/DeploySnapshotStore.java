@@ -0,0 +1,488 @@
+package com.example.code.core.deploy;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.SecureUtil;
+import com.example.code.constant.AppConstant;
+import com.example.code.exception.BusinessException;
+import com.example.code.exception.ErrorCode;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * 部署快照存储
+ * 部署产物按内容寻址保存为不可变快照：
+ * - 文件内容存放在 objects/{hash 前两位}/{hash}，相同内容只写一次；
+ * - 快照目录 snapshots/{快照哈希} 中的文件是指向对象的硬链接；
+ *   不支持硬链接时快照直接复制部署源文件，不再写入对象，已写入的对象在回收时删除；
+ * - 部署目录 tmp/code_deploy/{deployKey} 是指向快照的软链接，发布时原子替换，读者只会看到完整的旧树或新树；
+ *   不能创建软链接时（例如 Windows 下没有权限）退回为把快照复制成实体目录再改名替换；
+ * - 不再被引用的快照从不再被引用时起延迟回收，正在读取旧快照的请求不受影响；
+ *   不再被任何快照链接的对象在回收时直接删除
+ * 计算哈希、写入对象和在临时目录中组装快照不加锁，多个部署可以并行；发布过程用到的对象和临时快照目录
+ * 在发布结束前被登记，回收会跳过它们，因此不需要修改对象的时间（对象与所有快照中的文件是同一个 inode，
+ * 修改时间会让客户端缓存失效）。只有启用快照、切换指针和记录引用变化在发布锁内，与下线和回收互斥
+ */
+@Slf4j
+@Component
+public class DeploySnapshotStore {
+
+    private static final String OBJECTS_DIR = "objects";
+
+    private static final String SNAPSHOTS_DIR = "snapshots";
+
+    /**
+     * 快照不再被引用后保留的时间（分钟）
+     */
+    @Value("${code-gen.deploy.gc-delay-minutes:10}")
+    private long gcDelayMinutes;
+
+    private final Path storeRoot = Path.of(AppConstant.CODE_DEPLOY_STORE_DIR);
+
+    private final Path deployRoot = Path.of(AppConstant.CODE_DEPLOY_ROOT_DIR);
+
+    private final ScheduledExecutorService gcExecutor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofVirtual().name("deploy-snapshot-gc").factory());
+
+    private final AtomicBoolean gcScheduled = new AtomicBoolean();
+
+    /**
+     * 启用快照和切换指针、下线、回收互斥
+     */
+    private final ReentrantLock publishLock = new ReentrantLock();
+
+    /**
+     * 进行中的发布用到的对象哈希 -> 发布数量，回收跳过这些对象；读写都在自身的同步块内
+     */
+    private final Map<String, Integer> pinnedObjects = new HashMap<>();
+
+    /**
+     * 进行中的发布正在组装的临时快照目录名，回收跳过这些目录
+     */
+    private final Set<String> stagingSnapshots = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 快照名 -> 不再被部署指针引用的时间，只在 publishLock 内访问
+     * 进程重启后没有记录的快照以回收时第一次发现的时间为准
+     */
+    private final Map<String, Instant> unreferencedSince = new HashMap<>();
+
+    /**
+     * 硬链接不可用（跨文件系统或不支持）时只记录一次日志
+     */
+    private final AtomicBoolean hardLinkUnsupported = new AtomicBoolean();
+
+    /**
+     * 软链接不可用时只记录一次日志
+     */
+    private final AtomicBoolean symbolicLinkUnsupported = new AtomicBoolean();
+
+    /**
+     * 发布部署
+     *
+     * @param sourceDir 部署源目录
+     * @param deployKey 部署标识
+     */
+    public void publish(File sourceDir, String deployKey) {
+        Path pointer = deployRoot.resolve(deployKey);
+        Set<String> pinned = new HashSet<>();
+        PreparedSnapshot prepared = null;
+        try {
+            prepared = prepareSnapshot(sourceDir.toPath(), pinned);
+            publishLock.lock();
+            try {
+                String previousSnapshot = currentSnapshot(pointer);
+                Path snapshotDir = installSnapshot(prepared);
+                switchPointer(pointer, snapshotDir);
+                unreferencedSince.remove(snapshotDir.getFileName().toString());
+                markUnreferenced(previousSnapshot);
+            } finally {
+                publishLock.unlock();
+            }
+            log.info("部署发布成功，deployKey: {}, 快照: {}", deployKey, prepared.snapshotDir().getFileName());
+        } catch (IOException e) {
+            log.error("部署发布失败，deployKey: {}, 错误: {}", deployKey, e.getMessage(), e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "部署失败：" + e.getMessage());
+        } finally {
+            if (prepared != null) {
+                discardStaging(prepared.stagingDir());
+            }
+            unpin(pinned);
+        }
+        scheduleGc(gcDelayMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * 下线部署（删除指针，快照延迟回收）
+     *
+     * @param deployKey 部署标识
+     */
+    public void unpublish(String deployKey) {
+        Path pointer = deployRoot.resolve(deployKey);
+        publishLock.lock();
+        try {
+            String previousSnapshot = currentSnapshot(pointer);
+            if (Files.isSymbolicLink(pointer)) {
+                Files.delete(pointer);
+            } else {
+                FileUtil.del(pointer);
+            }
+            markUnreferenced(previousSnapshot);
+        } catch (IOException e) {
+            log.warn("删除部署目录失败: {}, 错误: {}", pointer, e.getMessage());
+        } finally {
+            publishLock.unlock();
+        }
+        scheduleGc(gcDelayMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * 部署指针当前指向的快照名，不是软链接时返回 null
+     */
+    private String currentSnapshot(Path pointer) throws IOException {
+        return Files.isSymbolicLink(pointer) ? Files.readSymbolicLink(pointer).getFileName().toString() : null;
+    }
+
+    /**
+     * 记录快照不再被引用的时间（仍被其他部署引用时由回收过程清除记录）
+     */
+    private void markUnreferenced(String snapshotName) {
+        if (snapshotName != null) {
+            unreferencedSince.putIfAbsent(snapshotName, Instant.now());
+        }
+    }
+
+    /**
+     * 准备好的快照
+     *
+     * @param sourceRoot  部署源目录
+     * @param entries     相对路径 -> 内容哈希
+     * @param snapshotDir 快照目录
+     * @param stagingDir  组装好的临时快照目录，快照已存在时为 null
+     */
+    private record PreparedSnapshot(Path sourceRoot, Map<String, String> entries, Path snapshotDir, Path stagingDir) {
+    }
+
+    /**
+     * 在发布锁外写入对象并组装快照，相同内容的快照已存在时不再组装
+     *
+     * @param pinned 登记的对象哈希，由调用方在发布结束后释放
+     */
+    private PreparedSnapshot prepareSnapshot(Path sourceRoot, Set<String> pinned) throws IOException {
+        // 相对路径 -> 内容哈希，按路径排序保证快照哈希稳定
+        Map<String, String> entries = new TreeMap<>();
+        try (Stream<Path> files = Files.walk(sourceRoot)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                String relativePath = FileUtil.normalize(sourceRoot.relativize(file).toString());
+                // 复制模式下快照与对象不共享文件，只需要内容哈希
+                entries.put(relativePath, hardLinkUnsupported.get() ? SecureUtil.sha256(file.toFile()) : storeObject(file, pinned));
+            }
+        }
+        StringBuilder source = new StringBuilder();
+        entries.forEach((path, hash) -> source.append(path).append('\0').append(hash).append('\n'));
+        Path snapshotDir = storeRoot.resolve(SNAPSHOTS_DIR).resolve(SecureUtil.sha256(source.toString()));
+        if (Files.isDirectory(snapshotDir)) {
+            return new PreparedSnapshot(sourceRoot, entries, snapshotDir, null);
+        }
+        return new PreparedSnapshot(sourceRoot, entries, snapshotDir, assembleSnapshot(sourceRoot, entries, snapshotDir));
+    }
+
+    /**
+     * 在临时目录中组装快照
+     *
+     * @return 临时快照目录
+     */
+    private Path assembleSnapshot(Path sourceRoot, Map<String, String> entries, Path snapshotDir) throws IOException {
+        Path stagingDir = snapshotDir.resolveSibling(snapshotDir.getFileName() + ".tmp-" + IdUtil.fastSimpleUUID());
+        stagingSnapshots.add(stagingDir.getFileName().toString());
+        try {
+            Files.createDirectories(stagingDir);
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                Path target = stagingDir.resolve(entry.getKey());
+                Files.createDirectories(target.getParent());
+                linkOrCopy(objectPath(entry.getValue()), sourceRoot.resolve(entry.getKey()), target);
+            }
+        } catch (IOException e) {
+            discardStaging(stagingDir);
+            throw e;
+        }
+        return stagingDir;
+    }
+
+    /**
+     * 启用快照，在发布锁内执行
+     * 快照已存在时直接复用（包括并发部署了相同内容）；准备时已存在、随后被回收的快照重新组装
+     */
+    private Path installSnapshot(PreparedSnapshot prepared) throws IOException {
+        Path snapshotDir = prepared.snapshotDir();
+        if (Files.isDirectory(snapshotDir)) {
+            return snapshotDir;
+        }
+        Path stagingDir = prepared.stagingDir();
+        if (stagingDir == null) {
+            stagingDir = assembleSnapshot(prepared.sourceRoot(), prepared.entries(), snapshotDir);
+            try {
+                Files.move(stagingDir, snapshotDir, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                discardStaging(stagingDir);
+            }
+            return snapshotDir;
+        }
+        Files.move(stagingDir, snapshotDir, StandardCopyOption.ATOMIC_MOVE);
+        return snapshotDir;
+    }
+
+    /**
+     * 删除未启用的临时快照目录（已启用时目录已不存在）并取消登记
+     */
+    private void discardStaging(Path stagingDir) {
+        if (stagingDir == null) {
+            return;
+        }
+        FileUtil.del(stagingDir);
+        stagingSnapshots.remove(stagingDir.getFileName().toString());
+    }
+
+    /**
+     * 把文件写入对象存储，已存在时不再写入
+     * 先登记哈希再检查对象是否存在，回收不会删除登记后检查到的对象
+     *
+     * @param pinned 本次发布已登记的对象哈希
+     * @return 内容哈希
+     */
+    private String storeObject(Path file, Set<String> pinned) throws IOException {
+        String hash = SecureUtil.sha256(file.toFile());
+        if (pinned.add(hash)) {
+            synchronized (pinnedObjects) {
+                pinnedObjects.merge(hash, 1, Integer::sum);
+            }
+        }
+        Path objectPath = objectPath(hash);
+        if (Files.exists(objectPath)) {
+            return hash;
+        }
+        Files.createDirectories(objectPath.getParent());
+        Path tempPath = objectPath.resolveSibling(hash + ".tmp-" + IdUtil.fastSimpleUUID());
+        Files.copy(file, tempPath);
+        try {
+            Files.move(tempPath, objectPath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            Files.deleteIfExists(tempPath);
+        }
+        return hash;
+    }
+
+    private void unpin(Set<String> pinned) {
+        if (pinned.isEmpty()) {
+            return;
+        }
+        synchronized (pinnedObjects) {
+            for (String hash : pinned) {
+                pinnedObjects.computeIfPresent(hash, (key, count) -> count > 1 ? count - 1 : null);
+            }
+        }
+    }
+
+    private Path objectPath(String hash) {
+        return storeRoot.resolve(OBJECTS_DIR).resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    /**
+     * 把对象硬链接到快照中，不支持硬链接时复制部署源文件
+     */
+    private void linkOrCopy(Path object, Path source, Path target) throws IOException {
+        if (!hardLinkUnsupported.get()) {
+            try {
+                Files.createLink(target, object);
+                return;
+            } catch (UnsupportedOperationException | IOException e) {
+                if (hardLinkUnsupported.compareAndSet(false, true)) {
+                    log.warn("不支持硬链接，部署快照改为复制文件: {}", e.getMessage());
+                }
+            }
+        }
+        Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 原子替换部署指针
+     * 先在旁边创建新的软链接（或快照的实体副本），再改名覆盖旧指针；旧版本的实体部署目录先移走再替换
+     */
+    private void switchPointer(Path pointer, Path snapshotDir) throws IOException {
+        Files.createDirectories(deployRoot);
+        Path tempPointer = pointer.resolveSibling(pointer.getFileName() + ".tmp-" + IdUtil.fastSimpleUUID());
+        try {
+            createPointer(tempPointer, snapshotDir);
+            Path legacyDir = null;
+            if (Files.isDirectory(pointer, LinkOption.NOFOLLOW_LINKS)) {
+                legacyDir = pointer.resolveSibling(pointer.getFileName() + ".old-" + IdUtil.fastSimpleUUID());
+                Files.move(pointer, legacyDir, StandardCopyOption.ATOMIC_MOVE);
+            }
+            try {
+                Files.move(tempPointer, pointer, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempPointer, pointer, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (legacyDir != null) {
+                FileUtil.del(legacyDir);
+            }
+        } finally {
+            if (Files.isSymbolicLink(tempPointer)) {
+                Files.delete(tempPointer);
+            } else if (Files.exists(tempPointer)) {
+                FileUtil.del(tempPointer);
+            }
+        }
+    }
+
+    /**
+     * 创建指向快照的软链接，不支持时复制快照内容
+     * 复制出的实体目录不引用快照，快照按不再被引用处理
+     */
+    private void createPointer(Path tempPointer, Path snapshotDir) throws IOException {
+        if (!symbolicLinkUnsupported.get()) {
+            try {
+                Files.createSymbolicLink(tempPointer, snapshotDir.toAbsolutePath());
+                return;
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                if (symbolicLinkUnsupported.compareAndSet(false, true)) {
+                    log.warn("不支持软链接，部署目录改为复制快照: {}", e.getMessage());
+                }
+            }
+        }
+        FileUtil.copyContent(snapshotDir.toFile(), tempPointer.toFile(), true);
+    }
+
+    private void scheduleGc(long delay, TimeUnit unit) {
+        if (gcScheduled.compareAndSet(false, true)) {
+            gcExecutor.schedule(() -> {
+                gcScheduled.set(false);
+                collectGarbage();
+            }, delay, unit);
+        }
+    }
+
+    /**
+     * 回收不再被任何部署指针引用超过保留时间的快照，以及不再被任何快照链接的对象
+     * 还有未到期的快照时，按最早的到期时间再安排一次回收
+     */
+    void collectGarbage() {
+        Instant nextExpireAt = null;
+        publishLock.lock();
+        try {
+            Set<String> referenced = new HashSet<>();
+            if (Files.isDirectory(deployRoot)) {
+                try (DirectoryStream<Path> pointers = Files.newDirectoryStream(deployRoot)) {
+                    for (Path pointer : pointers) {
+                        String snapshotName = currentSnapshot(pointer);
+                        if (snapshotName != null) {
+                            referenced.add(snapshotName);
+                        }
+                    }
+                }
+            }
+            Path snapshotsRoot = storeRoot.resolve(SNAPSHOTS_DIR);
+            Instant now = Instant.now();
+            Duration gcDelay = Duration.ofMinutes(gcDelayMinutes);
+            Set<String> existing = new HashSet<>();
+            int removedSnapshots = 0;
+            if (Files.isDirectory(snapshotsRoot)) {
+                try (DirectoryStream<Path> snapshots = Files.newDirectoryStream(snapshotsRoot)) {
+                    for (Path snapshot : snapshots) {
+                        String snapshotName = snapshot.getFileName().toString();
+                        if (stagingSnapshots.contains(snapshotName)) {
+                            continue;
+                        }
+                        if (referenced.contains(snapshotName)) {
+                            unreferencedSince.remove(snapshotName);
+                            continue;
+                        }
+                        Instant expireAt = unreferencedSince.computeIfAbsent(snapshotName, name -> now).plus(gcDelay);
+                        if (expireAt.isAfter(now)) {
+                            existing.add(snapshotName);
+                            nextExpireAt = nextExpireAt == null || expireAt.isBefore(nextExpireAt) ? expireAt : nextExpireAt;
+                            continue;
+                        }
+                        FileUtil.del(snapshot);
+                        removedSnapshots++;
+                    }
+                }
+            }
+            // 已删除或重新被引用的快照不再记录
+            unreferencedSince.keySet().retainAll(existing);
+            int removedObjects = collectObjects();
+            log.info("部署快照回收完成，删除快照 {} 个，对象 {} 个", removedSnapshots, removedObjects);
+        } catch (Exception e) {
+            log.error("部署快照回收失败: {}", e.getMessage(), e);
+        } finally {
+            publishLock.unlock();
+        }
+        if (nextExpireAt != null) {
+            scheduleGc(Math.max(1, Duration.between(Instant.now(), nextExpireAt).toMillis()), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 链接数为 1 的对象只剩存储自身的引用，可以删除；复制模式下快照不引用对象，全部删除
+     * 进行中的发布登记的对象（包括写入中的临时文件）跳过，它们可能刚写入、尚未链接
+     */
+    private int collectObjects() throws IOException {
+        Path objectsRoot = storeRoot.resolve(OBJECTS_DIR);
+        if (!Files.isDirectory(objectsRoot)) {
+            return 0;
+        }
+        boolean copyMode = hardLinkUnsupported.get();
+        int removed = 0;
+        try (Stream<Path> objects = Files.walk(objectsRoot, 2)) {
+            for (Path object : objects.filter(Files::isRegularFile).toList()) {
+                String hash = StrUtil.subBefore(object.getFileName().toString(), ".tmp-", false);
+                synchronized (pinnedObjects) {
+                    if (pinnedObjects.containsKey(hash)) {
+                        continue;
+                    }
+                    if (copyMode || Files.getAttribute(object, "unix:nlink") instanceof Integer count && count <= 1) {
+                        Files.deleteIfExists(object);
+                        removed++;
+                    }
+                }
+            }
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            // 非 unix 文件系统无法判断链接数，不回收对象
+            return 0;
+        }
+        return removed;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        gcExecutor.shutdownNow();
+    }
+}
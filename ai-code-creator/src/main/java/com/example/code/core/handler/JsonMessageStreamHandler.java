@@ -1,13 +1,13 @@
 package com.example.code.core.handler;
 
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
 import com.example.code.ai.model.message.*;
 import com.example.code.ai.tools.BaseTool;
 import com.example.code.ai.tools.ToolManager;
 import com.example.code.constant.AppConstant;
 import com.example.code.core.builder.VueProjectBuilder;
+import com.example.code.core.workspace.ProjectWorkspaceManager;
 import com.example.code.model.entity.User;
 import com.example.code.model.enums.ChatHistoryMessageTypeEnum;
 import com.example.code.service.ChatHistoryService;
@@ -37,17 +37,20 @@ public class JsonMessageStreamHandler {
     @Resource
     private VueProjectBuilder vueProjectBuilder;
 
+    @Resource
+    private ProjectWorkspaceManager projectWorkspaceManager;
+
     /**
      * 处理 TokenStream（VUE_PROJECT）
-     * 解析 JSON 消息并重组为完整的响应格式
+     * 按事件类型重组为完整的响应格式
      *
-     * @param originFlux         原始流
+     * @param originFlux         原始事件流
      * @param chatHistoryService 聊天历史服务
      * @param appId              应用ID
      * @param loginUser          登录用户
      * @return 处理后的流
      */
-    public Flux<String> handle(Flux<String> originFlux,
+    public Flux<String> handle(Flux<StreamMessage> originFlux,
                                ChatHistoryService chatHistoryService,
                                long appId, User loginUser) {
         // 收集数据用于生成后端记忆格式
@@ -58,9 +61,9 @@ public class JsonMessageStreamHandler {
         
         // 处理代码生成流，完成后追加构建进度流
         return originFlux
-                .map(chunk -> {
-                    // 解析每个 JSON 消息块
-                    return handleJsonMessageChunk(chunk, chatHistoryStringBuilder, seenToolIds);
+                .map(message -> {
+                    // 处理每个事件
+                    return handleStreamMessage(message, chatHistoryStringBuilder, seenToolIds);
                 })
                 .filter(StrUtil::isNotEmpty) // 过滤空字串
                 .concatWith(
@@ -69,8 +72,10 @@ public class JsonMessageStreamHandler {
                         // 流式响应完成后，添加 AI 消息到对话历史
                         String aiResponse = chatHistoryStringBuilder.toString();
                         chatHistoryService.addChatMessage(appId, aiResponse, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId());
+                        // 构建前把工具在工作区中的修改写回磁盘
+                        projectWorkspaceManager.flush(appId);
                         // 返回构建进度流
-                        return vueProjectBuilder.buildProjectWithProgress(projectPath)
+                        return vueProjectBuilder.buildProjectWithProgress(projectPath, loginUser.getId())
                                 .onErrorResume(error -> {
                                     // 构建失败时，推送错误信息
                                     log.error("构建 Vue 项目失败: {}", error.getMessage(), error);
@@ -86,22 +91,17 @@ public class JsonMessageStreamHandler {
     }
 
     /**
-     * 解析并收集 TokenStream 数据
+     * 收集 TokenStream 数据并转换为输出内容
      */
-    private String handleJsonMessageChunk(String chunk, StringBuilder chatHistoryStringBuilder, Set<String> seenToolIds) {
-        // 解析 JSON
-        StreamMessage streamMessage = JSONUtil.toBean(chunk, StreamMessage.class);
-        StreamMessageTypeEnum typeEnum = StreamMessageTypeEnum.getEnumByValue(streamMessage.getType());
-        switch (typeEnum) {
-            case AI_RESPONSE -> {
-                AiResponseMessage aiMessage = JSONUtil.toBean(chunk, AiResponseMessage.class);
+    private String handleStreamMessage(StreamMessage message, StringBuilder chatHistoryStringBuilder, Set<String> seenToolIds) {
+        switch (message) {
+            case AiResponseMessage aiMessage -> {
                 String data = aiMessage.getData();
                 // 直接拼接响应
                 chatHistoryStringBuilder.append(data);
                 return data;
             }
-            case TOOL_REQUEST -> {
-                ToolRequestMessage toolRequestMessage = JSONUtil.toBean(chunk, ToolRequestMessage.class);
+            case ToolRequestMessage toolRequestMessage -> {
                 String toolId = toolRequestMessage.getId();
                 String toolName = toolRequestMessage.getName();
                 // 检查是否是第一次看到这个工具 ID
@@ -117,22 +117,16 @@ public class JsonMessageStreamHandler {
                     return "";
                 }
             }
-            case TOOL_EXECUTED -> {
-                ToolExecutedMessage toolExecutedMessage = JSONUtil.toBean(chunk, ToolExecutedMessage.class);
+            case ToolExecutedMessage toolExecutedMessage -> {
                 String toolName = toolExecutedMessage.getName();
-                JSONObject jsonObject = JSONUtil.parseObj(toolExecutedMessage.getArguments());
-                // 根据工具名称获取工具实例并生成相应的结果格式
+                // 工具参数在每次工具调用时解析一次，用于生成展示内容
                 BaseTool tool = toolManager.getTool(toolName);
-                String result = tool.generateToolExecutedResult(jsonObject);
+                String result = tool.generateToolExecutedResult(JSONUtil.parseObj(toolExecutedMessage.getArguments()));
                 // 输出前端和要持久化的内容
                 String output = String.format("\n\n%s\n\n", result);
                 chatHistoryStringBuilder.append(output);
                 return output;
             }
-            default -> {
-                log.error("不支持的消息类型: {}", typeEnum);
-                return "";
-            }
         }
     }
 }
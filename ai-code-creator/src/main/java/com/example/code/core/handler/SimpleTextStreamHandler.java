@@ -1,5 +1,10 @@
 package com.example.code.core.handler;
 
+import cn.hutool.core.util.StrUtil;
+import com.example.code.ai.model.message.AiResponseMessage;
+import com.example.code.ai.model.message.StreamMessage;
+import com.example.code.ai.model.message.ToolExecutedMessage;
+import com.example.code.ai.model.message.ToolRequestMessage;
 import com.example.code.model.entity.User;
 import com.example.code.model.enums.ChatHistoryMessageTypeEnum;
 import com.example.code.service.ChatHistoryService;
@@ -17,22 +22,28 @@ public class SimpleTextStreamHandler {
      * 处理传统流（HTML, MULTI_FILE）
      * 直接收集完整的文本响应
      *
-     * @param originFlux         原始流
+     * @param originFlux         原始事件流（只有文本片段）
      * @param chatHistoryService 聊天历史服务
      * @param appId              应用ID
      * @param loginUser          登录用户
      * @return 处理后的流
      */
-    public Flux<String> handle(Flux<String> originFlux,
+    public Flux<String> handle(Flux<StreamMessage> originFlux,
                                ChatHistoryService chatHistoryService,
                                long appId, User loginUser) {
         StringBuilder aiResponseBuilder = new StringBuilder();
         return originFlux
-                .map(chunk -> {
-                    // 收集AI响应内容
-                    aiResponseBuilder.append(chunk);
-                    return chunk;
+                .map(message -> switch (message) {
+                    case AiResponseMessage aiResponseMessage -> {
+                        // 收集AI响应内容
+                        aiResponseBuilder.append(aiResponseMessage.getData());
+                        yield aiResponseMessage.getData();
+                    }
+                    // 这两种生成类型不使用工具
+                    case ToolRequestMessage toolRequestMessage -> "";
+                    case ToolExecutedMessage toolExecutedMessage -> "";
                 })
+                .filter(StrUtil::isNotEmpty)
                 .doOnComplete(() -> {
                     // 流式响应完成后，添加AI消息到对话历史
                     String aiResponse = aiResponseBuilder.toString();
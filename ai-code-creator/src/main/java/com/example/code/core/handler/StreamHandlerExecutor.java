@@ -1,18 +1,25 @@
 package com.example.code.core.handler;
 
 import com.example.code.ai.model.enums.CodeGenTypeEnum;
+import com.example.code.ai.model.message.StreamMessage;
+import com.example.code.core.stream.StreamMessageCoalescer;
 import com.example.code.model.entity.User;
 import com.example.code.service.ChatHistoryService;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
 
 /**
  * 流处理器执行器
  * 根据代码生成类型创建合适的流处理器：
- * 1. 传统的 Flux<String> 流（HTML、MULTI_FILE） -> SimpleTextStreamHandler
- * 2. TokenStream 格式的复杂流（VUE_PROJECT） -> JsonMessageStreamHandler
+ * 1. 只有文本片段的流（HTML、MULTI_FILE） -> SimpleTextStreamHandler
+ * 2. 包含工具调用事件的流（VUE_PROJECT） -> JsonMessageStreamHandler
+ * 交给处理器之前先合并连续的文本片段，减少输出给前端的帧数
  */
 @Slf4j
 @Component
@@ -21,24 +28,38 @@ public class StreamHandlerExecutor {
     @Resource
     private JsonMessageStreamHandler jsonMessageStreamHandler;
 
+    /**
+     * 文本片段最多合并多久（毫秒），为 0 时不合并
+     */
+    @Value("${code-gen.stream.coalesce-millis:50}")
+    private long coalesceMillis;
+
+    /**
+     * 文本片段合并的最大字符数，达到后立即发出
+     */
+    @Value("${code-gen.stream.coalesce-max-chars:4096}")
+    private int coalesceMaxChars;
+
     /**
      * 创建流处理器并处理聊天历史记录
      *
-     * @param originFlux         原始流
+     * @param originFlux         原始事件流
      * @param chatHistoryService 聊天历史服务
      * @param appId              应用ID
      * @param loginUser          登录用户
      * @param codeGenType        代码生成类型
      * @return 处理后的流
      */
-    public Flux<String> doExecute(Flux<String> originFlux,
+    public Flux<String> doExecute(Flux<StreamMessage> originFlux,
                                   ChatHistoryService chatHistoryService,
                                   long appId, User loginUser, CodeGenTypeEnum codeGenType) {
+        Flux<StreamMessage> coalescedFlux = StreamMessageCoalescer.coalesce(originFlux,
+                Duration.ofMillis(coalesceMillis), coalesceMaxChars, Schedulers.parallel());
         return switch (codeGenType) {
             case VUE_PROJECT -> // 使用注入的组件实例
-                    jsonMessageStreamHandler.handle(originFlux, chatHistoryService, appId, loginUser);
+                    jsonMessageStreamHandler.handle(coalescedFlux, chatHistoryService, appId, loginUser);
             case HTML, MULTI_FILE -> // 简单文本处理器不需要依赖注入
-                    new SimpleTextStreamHandler().handle(originFlux, chatHistoryService, appId, loginUser);
+                    new SimpleTextStreamHandler().handle(coalescedFlux, chatHistoryService, appId, loginUser);
         };
     }
 }
@@ -0,0 +1,111 @@
+package com.example.code.core.job;
+
+import com.example.code.exception.BusinessException;
+import com.example.code.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 生成任务执行器（进程内）
+ * 生成任务在虚拟线程上执行，不占用请求线程，也不依赖任何客户端连接；
+ * 同时执行的任务数量固定，超出的任务按提交顺序排队，队列满时直接拒绝
+ */
+@Slf4j
+@Component
+public class GenerationJobExecutor {
+
+    /**
+     * 同时执行的生成任务数量
+     */
+    @Value("${code-gen.job.max-concurrent:4}")
+    private int maxConcurrent;
+
+    /**
+     * 排队中的生成任务上限
+     */
+    @Value("${code-gen.job.max-queue-size:100}")
+    private int maxQueueSize;
+
+    /**
+     * 任务 ID -> 任务动作，按提交顺序排列
+     */
+    private final Map<Long, Runnable> queue = new LinkedHashMap<>();
+
+    private int runningCount;
+
+    /**
+     * 提交生成任务
+     *
+     * @param jobId  任务 ID
+     * @param action 任务动作，在执行槽位中运行，结束（包括异常）后释放槽位
+     */
+    public void submit(Long jobId, Runnable action) {
+        synchronized (this) {
+            if (queue.size() >= maxQueueSize) {
+                log.warn("生成任务队列已满，拒绝任务，jobId: {}", jobId);
+                throw new BusinessException(ErrorCode.TOO_MANY_REQUEST, "当前生成任务过多，请稍后再试");
+            }
+            queue.put(jobId, action);
+        }
+        dispatch();
+    }
+
+    /**
+     * 获取任务的排队位置
+     *
+     * @param jobId 任务 ID
+     * @return 排队位置（从 1 开始），不在队列中（已开始或不存在）时返回 0
+     */
+    public synchronized int getQueuePosition(Long jobId) {
+        int position = 1;
+        for (Long queuedJobId : queue.keySet()) {
+            if (queuedJobId.equals(jobId)) {
+                return position;
+            }
+            position++;
+        }
+        return 0;
+    }
+
+    /**
+     * 有空闲槽位时按顺序启动排队的任务
+     */
+    private void dispatch() {
+        while (true) {
+            Long jobId;
+            Runnable action;
+            synchronized (this) {
+                if (runningCount >= maxConcurrent || queue.isEmpty()) {
+                    return;
+                }
+                Iterator<Map.Entry<Long, Runnable>> iterator = queue.entrySet().iterator();
+                Map.Entry<Long, Runnable> next = iterator.next();
+                iterator.remove();
+                runningCount++;
+                jobId = next.getKey();
+                action = next.getValue();
+            }
+            start(jobId, action);
+        }
+    }
+
+    private void start(Long jobId, Runnable action) {
+        Thread.ofVirtual().name("generation-job-" + jobId).start(() -> {
+            try {
+                action.run();
+            } catch (Exception e) {
+                log.error("生成任务执行异常，jobId: {}, 错误: {}", jobId, e.getMessage(), e);
+            } finally {
+                synchronized (this) {
+                    runningCount--;
+                }
+                dispatch();
+            }
+        });
+    }
+}
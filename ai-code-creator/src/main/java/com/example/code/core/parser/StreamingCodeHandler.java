@@ -0,0 +1,32 @@
+package com.example.code.core.parser;
+
+/**
+ * 流式代码块回调接口
+ * 由 {@link StreamingCodeParser} 在识别到代码块时按顺序调用
+ */
+public interface StreamingCodeHandler {
+
+    /**
+     * 代码块开始
+     *
+     * @param fileName 代码块对应的文件名（index.html / style.css / script.js）
+     */
+    void onBlockStart(String fileName);
+
+    /**
+     * 代码块内容片段（已去除首尾空白）
+     *
+     * @param content 内容片段
+     */
+    void onBlockContent(CharSequence content);
+
+    /**
+     * 代码块结束（闭合围栏或流结束）
+     */
+    void onBlockEnd();
+
+    /**
+     * 流异常终止或被取消，丢弃未完成的代码块
+     */
+    void onAbort();
+}
@@ -0,0 +1,299 @@
+package com.example.code.core.parser;
+
+import com.example.code.ai.model.enums.CodeGenTypeEnum;
+import com.example.code.exception.BusinessException;
+import com.example.code.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 流式代码解析器（状态机）
+ * 逐块接收 AI 输出，识别 ```html / ```css / ```js 代码块，并把代码体实时推送给 {@link StreamingCodeHandler}
+ * 与 {@link HtmlCodeParser} / {@link MultiFileCodeParser} 的提取规则保持一致：
+ * 每种语言只取第一个代码块，代码内容去除首尾空白；HTML 模式下没有代码块时整段内容作为 HTML
+ * 解析过程中只缓存可能构成围栏的反引号、尾部空白和少量待写出内容，内存占用与响应长度无关
+ *
+ * 非线程安全，每次生成创建一个实例
+ */
+@Slf4j
+public class StreamingCodeParser {
+
+    /**
+     * 围栏信息行（```html）的最大长度，超过则认为不是代码块
+     */
+    private static final int MAX_FENCE_INFO_LENGTH = 32;
+
+    /**
+     * 累积多少字符后推送一次内容
+     */
+    private static final int CONTENT_FLUSH_SIZE = 8 * 1024;
+
+    /**
+     * 尾部空白最多缓存的字符数
+     */
+    private static final int MAX_PENDING_WHITESPACE = 8 * 1024;
+
+    /**
+     * HTML 模式兜底内容的最大长度（没有代码块时整段内容作为 HTML）
+     */
+    private static final int MAX_FALLBACK_LENGTH = 64 * 1024;
+
+    private enum State {
+        /**
+         * 代码块之外的普通文本
+         */
+        TEXT,
+        /**
+         * 已读到 ```，正在读取语言标识
+         */
+        FENCE_INFO,
+        /**
+         * 需要保存的代码块内容
+         */
+        CODE,
+        /**
+         * 不需要保存的代码块（其他语言或重复的代码块），只寻找闭合围栏
+         */
+        SKIP
+    }
+
+    private final CodeGenTypeEnum codeGenType;
+
+    private final StreamingCodeHandler handler;
+
+    private State state = State.TEXT;
+
+    /**
+     * 连续反引号数量
+     */
+    private int backtickCount;
+
+    private final StringBuilder fenceInfo = new StringBuilder();
+
+    private final StringBuilder content = new StringBuilder();
+
+    private final StringBuilder pendingWhitespace = new StringBuilder();
+
+    /**
+     * 当前代码块是否还处于开头空白阶段
+     */
+    private boolean leadingWhitespace;
+
+    /**
+     * 已经写出的文件，每种语言只取第一个代码块
+     */
+    private final Set<String> writtenFiles = new HashSet<>();
+
+    /**
+     * 兜底内容：尚未出现任何代码块时的完整输出
+     */
+    private StringBuilder fallback = new StringBuilder();
+
+    private boolean finished;
+
+    public StreamingCodeParser(CodeGenTypeEnum codeGenType, StreamingCodeHandler handler) {
+        if (codeGenType != CodeGenTypeEnum.HTML && codeGenType != CodeGenTypeEnum.MULTI_FILE) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "不支持的代码生成类型: " + codeGenType);
+        }
+        this.codeGenType = codeGenType;
+        this.handler = handler;
+    }
+
+    /**
+     * 输入一段流式内容
+     *
+     * @param chunk 内容片段
+     */
+    public void feed(String chunk) {
+        if (finished || chunk == null || chunk.isEmpty()) {
+            return;
+        }
+        appendFallback(chunk);
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+            switch (state) {
+                case TEXT -> onTextChar(c);
+                case FENCE_INFO -> onFenceInfoChar(c);
+                case CODE -> onCodeChar(c);
+                case SKIP -> onSkipChar(c);
+            }
+        }
+        flushContent();
+    }
+
+    /**
+     * 流正常结束
+     * 未闭合的代码块按已接收的内容保存；HTML 模式下没有代码块时使用整段内容
+     */
+    public void finish() {
+        if (finished) {
+            return;
+        }
+        if (state == State.CODE) {
+            log.warn("代码块未闭合，按已接收内容保存");
+            endBlock();
+        }
+        if (codeGenType == CodeGenTypeEnum.HTML && !writtenFiles.contains("index.html")) {
+            writeFallback();
+        }
+        finished = true;
+        fallback = null;
+    }
+
+    /**
+     * 流异常结束或被取消
+     */
+    public void abort() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        fallback = null;
+        handler.onAbort();
+    }
+
+    private void onTextChar(char c) {
+        if (c == '`') {
+            if (++backtickCount == 3) {
+                backtickCount = 0;
+                fenceInfo.setLength(0);
+                state = State.FENCE_INFO;
+            }
+            return;
+        }
+        backtickCount = 0;
+    }
+
+    private void onFenceInfoChar(char c) {
+        if (c == '\n') {
+            String fileName = resolveFileName(fenceInfo.toString().trim().toLowerCase(Locale.ROOT));
+            if (fileName != null && writtenFiles.add(fileName)) {
+                state = State.CODE;
+                leadingWhitespace = true;
+                // 出现代码块后不再需要兜底内容
+                fallback = null;
+                handler.onBlockStart(fileName);
+            } else {
+                state = State.SKIP;
+            }
+            return;
+        }
+        if (c == '`' || fenceInfo.length() >= MAX_FENCE_INFO_LENGTH) {
+            // 行内反引号或过长的信息行，不是代码块
+            state = State.TEXT;
+            onTextChar(c);
+            return;
+        }
+        fenceInfo.append(c);
+    }
+
+    private void onCodeChar(char c) {
+        if (c == '`') {
+            if (++backtickCount == 3) {
+                backtickCount = 0;
+                endBlock();
+            }
+            return;
+        }
+        if (backtickCount > 0) {
+            // 不足三个的反引号属于代码内容
+            for (int i = 0; i < backtickCount; i++) {
+                appendContent('`');
+            }
+            backtickCount = 0;
+        }
+        appendContent(c);
+    }
+
+    private void onSkipChar(char c) {
+        if (c == '`') {
+            if (++backtickCount == 3) {
+                backtickCount = 0;
+                state = State.TEXT;
+            }
+            return;
+        }
+        backtickCount = 0;
+    }
+
+    private void appendContent(char c) {
+        boolean whitespace = Character.isWhitespace(c);
+        if (leadingWhitespace) {
+            if (whitespace) {
+                return;
+            }
+            leadingWhitespace = false;
+        }
+        if (whitespace) {
+            // 暂存空白，若之后是闭合围栏则丢弃（等价于 trim）
+            pendingWhitespace.append(c);
+            if (pendingWhitespace.length() >= MAX_PENDING_WHITESPACE) {
+                content.append(pendingWhitespace);
+                pendingWhitespace.setLength(0);
+            }
+            return;
+        }
+        if (!pendingWhitespace.isEmpty()) {
+            content.append(pendingWhitespace);
+            pendingWhitespace.setLength(0);
+        }
+        content.append(c);
+        if (content.length() >= CONTENT_FLUSH_SIZE) {
+            flushContent();
+        }
+    }
+
+    private void flushContent() {
+        if (state == State.CODE && !content.isEmpty()) {
+            handler.onBlockContent(content);
+            content.setLength(0);
+        }
+    }
+
+    private void endBlock() {
+        flushContent();
+        pendingWhitespace.setLength(0);
+        handler.onBlockEnd();
+        state = State.TEXT;
+    }
+
+    private void writeFallback() {
+        if (fallback == null) {
+            log.warn("未找到 HTML 代码块，且输出内容过长，放弃兜底保存");
+            return;
+        }
+        String html = fallback.toString().trim();
+        if (html.isEmpty()) {
+            return;
+        }
+        handler.onBlockStart("index.html");
+        handler.onBlockContent(html);
+        handler.onBlockEnd();
+    }
+
+    private void appendFallback(String chunk) {
+        if (fallback == null) {
+            return;
+        }
+        if (fallback.length() + chunk.length() > MAX_FALLBACK_LENGTH) {
+            fallback = null;
+            return;
+        }
+        fallback.append(chunk);
+    }
+
+    /**
+     * 根据代码块语言获取要写入的文件名，不需要保存时返回 null
+     */
+    private String resolveFileName(String language) {
+        return switch (language) {
+            case "html" -> "index.html";
+            case "css" -> codeGenType == CodeGenTypeEnum.MULTI_FILE ? "style.css" : null;
+            case "js", "javascript" -> codeGenType == CodeGenTypeEnum.MULTI_FILE ? "script.js" : null;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.code.core.saver;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import com.example.code.ai.model.enums.CodeGenTypeEnum;
+import com.example.code.constant.AppConstant;
+import com.example.code.core.parser.StreamingCodeHandler;
+import com.example.code.exception.BusinessException;
+import com.example.code.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 流式代码文件保存器
+ * 代码块内容边生成边写入临时文件，代码块闭合后原子替换目标文件，预览时不会读到写了一半的文件
+ * 目录规则与 {@link CodeFileSaverTemplate} 一致：tmp/code_output/{codeType}_{appId}
+ */
+@Slf4j
+public class StreamingCodeFileSaver implements StreamingCodeHandler {
+
+    /**
+     * 临时文件后缀
+     */
+    private static final String PART_SUFFIX = ".part";
+
+    private final String baseDirPath;
+
+    private String currentFileName;
+
+    private Path currentPartFile;
+
+    private BufferedWriter currentWriter;
+
+    private boolean currentHasContent;
+
+    public StreamingCodeFileSaver(CodeGenTypeEnum codeGenType, Long appId) {
+        if (appId == null) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "应用 ID 不能为空");
+        }
+        String uniqueDirName = StrUtil.format("{}_{}", codeGenType.getValue(), appId);
+        this.baseDirPath = AppConstant.CODE_OUTPUT_ROOT_DIR + File.separator + uniqueDirName;
+        FileUtil.mkdir(baseDirPath);
+    }
+
+    @Override
+    public void onBlockStart(String fileName) {
+        closeQuietly();
+        currentFileName = fileName;
+        currentPartFile = Path.of(baseDirPath, fileName + PART_SUFFIX);
+        currentHasContent = false;
+        try {
+            currentWriter = Files.newBufferedWriter(currentPartFile, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.error("创建文件失败: {}, 错误: {}", currentPartFile, e.getMessage());
+            currentWriter = null;
+        }
+    }
+
+    @Override
+    public void onBlockContent(CharSequence content) {
+        if (currentWriter == null) {
+            return;
+        }
+        try {
+            currentWriter.append(content);
+            currentHasContent = true;
+        } catch (IOException e) {
+            log.error("写入文件失败: {}, 错误: {}", currentPartFile, e.getMessage());
+            discardCurrent();
+        }
+    }
+
+    @Override
+    public void onBlockEnd() {
+        if (currentWriter == null) {
+            return;
+        }
+        try {
+            currentWriter.close();
+            currentWriter = null;
+            // 空代码块不覆盖已有文件
+            if (!currentHasContent) {
+                Files.deleteIfExists(currentPartFile);
+                currentPartFile = null;
+                return;
+            }
+            Path target = Path.of(baseDirPath, currentFileName);
+            moveReplacing(currentPartFile, target);
+            currentPartFile = null;
+            log.info("保存成功，路径为：{}", target);
+        } catch (IOException e) {
+            log.error("保存文件失败: {}, 错误: {}", currentFileName, e.getMessage());
+            discardCurrent();
+        }
+    }
+
+    @Override
+    public void onAbort() {
+        discardCurrent();
+    }
+
+    private void moveReplacing(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void discardCurrent() {
+        closeQuietly();
+        if (currentPartFile != null) {
+            FileUtil.del(currentPartFile);
+            currentPartFile = null;
+        }
+    }
+
+    private void closeQuietly() {
+        if (currentWriter != null) {
+            try {
+                currentWriter.close();
+            } catch (IOException ignored) {
+                // 关闭失败不影响后续处理
+            }
+            currentWriter = null;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.code.core.staticfile;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.ZipUtil;
+import cn.hutool.crypto.SecureUtil;
+import com.example.code.constant.AppConstant;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * 静态文件热点缓存
+ * 按站点（deployKey）缓存查找结果，站点内再按资源路径索引：小文件连同内容、ETag 和预先压缩好的 gzip 版本
+ * 一起放在内存中，热门站点的请求不再读取文件内容；大文件只缓存元数据
+ * 每次命中都比对文件的修改时间和大小（一次 stat），文件被改写后重新加载；
+ * 部署切换和重新生成后调用 {@link #invalidate(String)} 一次丢弃整个站点
+ */
+@Slf4j
+@Component
+public class StaticFileCache {
+
+    // 应用生成根目录（用于浏览）
+    private static final String PREVIEW_ROOT_DIR = AppConstant.CODE_OUTPUT_ROOT_DIR;
+    // 应用部署根目录
+    private static final String DEPLOY_ROOT_DIR = AppConstant.CODE_DEPLOY_ROOT_DIR;
+
+    /**
+     * Vite 构建产物中带内容哈希的文件，例如 assets/index-BvQ2kX9a.js
+     * 只匹配 Vite 默认的输出形式：名称后是恰好 8 位、同时含字母和数字的哈希，且是构建会产出的资源类型；
+     * 从 public/assets 原样复制的普通文件名（如 hero-background.jpg）不能被当作不可变文件长期缓存
+     */
+    private static final Pattern HASHED_ASSET_PATTERN = Pattern.compile(
+            ".*/assets/[^/]+-(?=[A-Za-z0-9_-]{0,7}[0-9])(?=[A-Za-z0-9_-]{0,7}[A-Za-z])[A-Za-z0-9_-]{8}"
+                    + "\\.(js|mjs|css|png|jpe?g|gif|svg|webp|avif|ico|woff2?|ttf|otf|wasm|mp4|webm|mp3)$");
+
+    /**
+     * 前端项目中常见、但 MIME 表里可能缺失或不准确的类型
+     */
+    private static final Map<String, MediaType> WEB_MEDIA_TYPES = Map.ofEntries(
+            Map.entry("html", MediaType.TEXT_HTML),
+            Map.entry("css", MediaType.valueOf("text/css")),
+            Map.entry("js", MediaType.valueOf("application/javascript")),
+            Map.entry("mjs", MediaType.valueOf("application/javascript")),
+            Map.entry("json", MediaType.APPLICATION_JSON),
+            Map.entry("map", MediaType.APPLICATION_JSON),
+            Map.entry("webmanifest", MediaType.valueOf("application/manifest+json")),
+            Map.entry("svg", MediaType.valueOf("image/svg+xml")),
+            Map.entry("webp", MediaType.valueOf("image/webp")),
+            Map.entry("avif", MediaType.valueOf("image/avif")),
+            Map.entry("ico", MediaType.valueOf("image/x-icon")),
+            Map.entry("woff", MediaType.valueOf("font/woff")),
+            Map.entry("woff2", MediaType.valueOf("font/woff2")),
+            Map.entry("ttf", MediaType.valueOf("font/ttf")),
+            Map.entry("otf", MediaType.valueOf("font/otf")),
+            Map.entry("wasm", MediaType.valueOf("application/wasm")),
+            Map.entry("mp4", MediaType.valueOf("video/mp4")),
+            Map.entry("webm", MediaType.valueOf("video/webm")),
+            Map.entry("mp3", MediaType.valueOf("audio/mpeg"))
+    );
+
+    /**
+     * 小于该大小的文本文件不压缩
+     */
+    private static final int MIN_COMPRESS_BYTES = 1024;
+
+    /**
+     * 缓存占用的最大内存（字节）
+     */
+    @Value("${code-gen.static.cache-max-bytes:67108864}")
+    private long cacheMaxBytes;
+
+    /**
+     * 内容可以放入缓存的单个文件大小上限（字节）
+     */
+    @Value("${code-gen.static.cache-max-file-bytes:1048576}")
+    private long cacheMaxFileBytes;
+
+    /**
+     * deployKey -> 站点缓存
+     */
+    private Cache<String, Site> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxBytes)
+                .weigher((String key, Site site) -> site.weight())
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+    }
+
+    /**
+     * 查找静态文件：优先部署目录，其次预览目录
+     *
+     * @param deployKey    部署标识（或预览目录名）
+     * @param resourcePath 以 / 开头的资源路径
+     * @return 静态文件，不存在时返回 null
+     */
+    public StaticFile resolve(String deployKey, String resourcePath) {
+        Site site = cache.getIfPresent(deployKey);
+        StaticFile cached = site == null ? null : site.files.get(resourcePath);
+        // 生成过程中文件会被改写，修改时间或大小变化时重新加载
+        if (cached != null && cached.isUpToDate()) {
+            return cached;
+        }
+        File file = new File(DEPLOY_ROOT_DIR + "/" + deployKey + resourcePath);
+        if (!file.isFile()) {
+            file = new File(PREVIEW_ROOT_DIR + "/" + deployKey + resourcePath);
+            // 不存在的路径不缓存，生成中的文件写完后可以立即访问
+            if (!file.isFile()) {
+                if (cached != null) {
+                    site.files.remove(resourcePath, cached);
+                }
+                return null;
+            }
+        }
+        StaticFile staticFile = load(file, resourcePath);
+        cache.get(deployKey, key -> new Site()).files.put(resourcePath, staticFile);
+        // 站点内容变化后重新计算权重
+        cache.asMap().computeIfPresent(deployKey, (key, value) -> value);
+        return staticFile;
+    }
+
+    /**
+     * 清除站点的所有缓存
+     *
+     * @param deployKey 部署标识（或预览目录名）
+     */
+    public void invalidate(String deployKey) {
+        cache.invalidate(deployKey);
+        log.info("清除静态文件缓存: {}", deployKey);
+    }
+
+    private StaticFile load(File file, String resourcePath) {
+        String contentType = getContentTypeWithCharset(file.getName());
+        long lastModified = file.lastModified();
+        boolean immutable = HASHED_ASSET_PATTERN.matcher(resourcePath).matches();
+        long length = file.length();
+        if (length > cacheMaxFileBytes) {
+            // 大文件只缓存元数据，内容由调用方直接从磁盘读取
+            String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+            return new StaticFile(file, length, contentType, etag, lastModified, immutable, null, null);
+        }
+        // 读取期间文件被改写时内容长度与 length 不一致，下次命中会重新加载
+        byte[] content = FileUtil.readBytes(file);
+        String etag = "\"" + SecureUtil.sha256().digestHex(content).substring(0, 32) + "\"";
+        byte[] gzipContent = null;
+        if (content.length >= MIN_COMPRESS_BYTES && isCompressible(contentType)) {
+            byte[] compressed = ZipUtil.gzip(content);
+            // 压缩效果不明显时不保留压缩版本
+            if (compressed.length < content.length * 0.9) {
+                gzipContent = compressed;
+            }
+        }
+        return new StaticFile(file, content.length, contentType, etag, lastModified, immutable, content, gzipContent);
+    }
+
+    private boolean isCompressible(String contentType) {
+        return contentType.startsWith("text/") || contentType.contains("javascript") || contentType.contains("json")
+                || contentType.contains("xml") || contentType.contains("svg");
+    }
+
+    /**
+     * 根据文件扩展名返回 Content-Type，文本类型带上 UTF-8 编码
+     * 优先使用前端常见类型的映射，其余按 Spring 内置的 MIME 表（mime.types）查找
+     */
+    private String getContentTypeWithCharset(String fileName) {
+        String extension = FileUtil.extName(fileName).toLowerCase();
+        MediaType mediaType = WEB_MEDIA_TYPES.get(extension);
+        if (mediaType == null) {
+            mediaType = MediaTypeFactory.getMediaType(fileName).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        }
+        String contentType = mediaType.toString();
+        if (isCompressible(contentType) && mediaType.getCharset() == null) {
+            return contentType + ";charset=UTF-8";
+        }
+        return contentType;
+    }
+
+    /**
+     * 一个站点缓存的文件，资源路径 -> 静态文件
+     */
+    private static class Site {
+
+        private final Map<String, StaticFile> files = new ConcurrentHashMap<>();
+
+        private int weight() {
+            long weight = 64;
+            for (StaticFile staticFile : files.values()) {
+                weight += staticFile.weight();
+            }
+            return (int) Math.min(Integer.MAX_VALUE, weight);
+        }
+    }
+
+    /**
+     * 缓存的静态文件
+     */
+    @Getter
+    public static class StaticFile {
+
+        private final File file;
+
+        /**
+         * 文件大小（字节）
+         */
+        private final long length;
+
+        private final String contentType;
+
+        private final String etag;
+
+        private final long lastModified;
+
+        /**
+         * 是否为带内容哈希的构建产物（可以长期缓存）
+         */
+        private final boolean immutable;
+
+        /**
+         * 文件内容，大文件为 null
+         */
+        private final byte[] content;
+
+        /**
+         * gzip 压缩后的内容，不适合压缩时为 null
+         */
+        private final byte[] gzipContent;
+
+        private StaticFile(File file, long length, String contentType, String etag, long lastModified, boolean immutable,
+                           byte[] content, byte[] gzipContent) {
+            this.file = file;
+            this.length = length;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.immutable = immutable;
+            this.content = content;
+            this.gzipContent = gzipContent;
+        }
+
+        /**
+         * 磁盘上的文件是否仍是缓存时的版本（修改时间和大小都未变化）
+         */
+        private boolean isUpToDate() {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+                return attributes.isRegularFile() && attributes.size() == length
+                        && attributes.lastModifiedTime().toMillis() == lastModified;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        private int weight() {
+            // 元数据按 256 字节估算
+            return 256 + (content == null ? 0 : content.length) + (gzipContent == null ? 0 : gzipContent.length);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.code.core.stream;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 生成流事件
+ * 每个事件带有所属生成的 ID 和单调递增的序号，用作 SSE 的事件 ID，断线重连时据此续传
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GenerationEvent {
+
+    /**
+     * 事件 ID 中生成 ID 与序号的分隔符
+     */
+    public static final String ID_SEPARATOR = "-";
+
+    /**
+     * 生成 ID（每次生成唯一）
+     */
+    private String generationId;
+
+    /**
+     * 序号，从 1 开始
+     */
+    private long seq;
+
+    /**
+     * 输出内容
+     */
+    private String data;
+
+    /**
+     * 获取 SSE 事件 ID：{generationId}-{seq}
+     */
+    public String getEventId() {
+        return generationId + ID_SEPARATOR + seq;
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.code.core.stream;
+
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RList;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 生成流回放日志
+ * 内存中的环形缓冲区只保留最近的消息块，完整的输出按批追加到 Redis 列表中，
+ * 断线重连时可以从任意序号续传，生成结束后在过期时间内仍可回放
+ */
+@Slf4j
+@Component
+public class GenerationReplayLog {
+
+    private static final String KEY_PREFIX = "code_gen:replay:";
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    /**
+     * 累积多少个消息块写一次 Redis
+     */
+    @Value("${code-gen.stream.spill-batch-size:64}")
+    private int spillBatchSize;
+
+    /**
+     * 回放日志保留时间（分钟）
+     */
+    @Value("${code-gen.stream.replay-ttl-minutes:30}")
+    private long replayTtlMinutes;
+
+    /**
+     * 为一次生成打开日志写入器
+     *
+     * @param appId        应用 ID
+     * @param generationId 生成 ID
+     * @return 日志写入器
+     */
+    public Spiller openSpiller(Long appId, String generationId) {
+        return new Spiller(getList(appId, generationId));
+    }
+
+    /**
+     * 读取指定序号之后的所有事件
+     *
+     * @param appId        应用 ID
+     * @param generationId 生成 ID
+     * @param afterSeq     已收到的最后一个序号
+     * @return 事件流，日志不存在时为空
+     */
+    public Flux<GenerationEvent> read(Long appId, String generationId, long afterSeq) {
+        RList<String> list = getList(appId, generationId);
+        // 序号从 1 开始，列表下标从 0 开始，序号 afterSeq 之后的第一条正好是下标 afterSeq
+        return Mono.fromCompletionStage(list.rangeAsync((int) afterSeq, -1))
+                .onErrorResume(error -> {
+                    log.error("读取生成回放日志失败，generationId: {}, 错误: {}", generationId, error.getMessage());
+                    return Mono.just(List.of());
+                })
+                .flatMapIterable(dataList -> {
+                    List<GenerationEvent> events = new ArrayList<>(dataList.size());
+                    long seq = afterSeq;
+                    for (String data : dataList) {
+                        events.add(new GenerationEvent(generationId, ++seq, data));
+                    }
+                    return events;
+                });
+    }
+
+    private RList<String> getList(Long appId, String generationId) {
+        // key 中带上 appId，避免通过生成 ID 读取其他应用的输出
+        return redissonClient.getList(KEY_PREFIX + appId + ":" + generationId, StringCodec.INSTANCE);
+    }
+
+    /**
+     * 单次生成的日志写入器
+     * 消息块先在本地攒批，再按顺序异步追加到 Redis，每次追加后刷新过期时间；
+     * 读取时按列表下标推算序号，因此某一批写入失败后不再继续写入，并删除已写入的部分，
+     * 避免后续批次错位（续传只能拿到内存缓冲区中的内容）；写入失败不影响生成流
+     */
+    public class Spiller {
+
+        private final RList<String> list;
+
+        private List<String> pending = new ArrayList<>();
+
+        /**
+         * 上一次写入，后续写入串在它之后，保证追加顺序
+         */
+        private CompletionStage<?> lastWrite = CompletableFuture.completedFuture(null);
+
+        /**
+         * 是否已有批次写入失败
+         */
+        private final AtomicBoolean failed = new AtomicBoolean();
+
+        private Spiller(RList<String> list) {
+            this.list = list;
+        }
+
+        /**
+         * 追加一个消息块
+         */
+        public synchronized void append(String data) {
+            if (failed.get()) {
+                return;
+            }
+            pending.add(data);
+            if (pending.size() >= spillBatchSize) {
+                flush();
+            }
+        }
+
+        /**
+         * 生成结束，写入剩余内容
+         */
+        public synchronized void close() {
+            flush();
+        }
+
+        private void flush() {
+            if (pending.isEmpty() || failed.get()) {
+                return;
+            }
+            List<String> batch = pending;
+            pending = new ArrayList<>();
+            // 前一批失败时后面的批次不会执行（异常沿链传递），保证列表下标与序号一一对应
+            // 每批都刷新过期时间，生成中途进程退出时日志也会过期
+            lastWrite = lastWrite
+                    .thenCompose(ignored -> list.addAllAsync(batch))
+                    .thenCompose(ignored -> list.expireAsync(Duration.ofMinutes(replayTtlMinutes)));
+            lastWrite.whenComplete((ignored, error) -> {
+                if (error != null && failed.compareAndSet(false, true)) {
+                    log.error("写入生成回放日志失败，停止写入并删除已写入的日志，key: {}, 错误: {}",
+                            list.getName(), error.getMessage());
+                    list.deleteAsync();
+                }
+            });
+        }
+    }
+}
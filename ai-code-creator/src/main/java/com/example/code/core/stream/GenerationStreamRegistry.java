@@ -0,0 +1,186 @@
+package com.example.code.core.stream;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 生成流注册表（按 appId 单飞）
+ * 同一个应用同一时间只允许一次生成，后来的相同消息的请求（例如重复提交、刷新页面）直接挂到进行中的流上，
+ * 并从有界环形缓冲区中回放已经输出的内容，避免重复调用模型和并发写同一个输出目录；
+ * 消息不同的请求不会挂到进行中的流上，由调用方拒绝
+ * 每个消息块都带有 {generationId}-{seq} 形式的事件 ID，客户端断线后可通过 Last-Event-ID 续传
+ * 返回给每个订阅者的流都经过 {@link SubscriberBufferLimiter}，慢订阅者不会拖慢共享流
+ */
+@Slf4j
+@Component
+public class GenerationStreamRegistry {
+
+    /**
+     * 每个生成流最多回放的消息块数量
+     */
+    @Value("${code-gen.stream.replay-size:4096}")
+    private int replaySize;
+
+    @Resource
+    private GenerationReplayLog generationReplayLog;
+
+    @Resource
+    private SubscriberBufferLimiter subscriberBufferLimiter;
+
+    /**
+     * appId -> 进行中的生成
+     */
+    private final Map<Long, GenerationSession> inFlightSessions = new ConcurrentHashMap<>();
+
+    /**
+     * 获取进行中的生成流
+     *
+     * @param appId 应用 ID
+     * @return 共享生成流，没有进行中的生成时返回 null
+     */
+    public Flux<GenerationEvent> getInFlight(Long appId) {
+        GenerationSession session = inFlightSessions.get(appId);
+        return session == null ? null : subscriberBufferLimiter.limit(session.events);
+    }
+
+    /**
+     * 获取同一消息进行中的生成流，不存在时注册新的生成
+     * generationSupplier 在第一个订阅者到来时才会执行，不会在注册表锁内做耗时操作
+     *
+     * @param appId              应用 ID
+     * @param message            用户消息，只有消息相同时才挂到进行中的生成上
+     * @param generationSupplier 新生成流的提供者
+     * @param finishInBackground 所有订阅者都断开后是否继续生成到结束；为 false 时取消生成（一直取消到模型请求）
+     * @return 共享生成流，进行中的生成的消息不同时返回 null
+     */
+    public Flux<GenerationEvent> getOrStart(Long appId, String message, Supplier<Flux<String>> generationSupplier,
+                                            boolean finishInBackground) {
+        GenerationSession session = inFlightSessions.computeIfAbsent(appId,
+                id -> share(id, message, generationSupplier, finishInBackground));
+        if (!session.message.equals(message)) {
+            log.info("应用正在生成其他消息，不合并请求，appId: {}, generationId: {}", appId, session.generationId);
+            return null;
+        }
+        return subscriberBufferLimiter.limit(session.events);
+    }
+
+    /**
+     * 注册新的生成，已有进行中的生成时不挂到该流上
+     * 判断和注册在注册表内原子完成，generationSupplier 同样在第一个订阅者到来时才会执行
+     *
+     * @param appId              应用 ID
+     * @param message            用户消息
+     * @param generationSupplier 新生成流的提供者
+     * @param finishInBackground 所有订阅者都断开后是否继续生成到结束
+     * @return 新的生成流，已有进行中的生成时返回 null
+     */
+    public Flux<GenerationEvent> start(Long appId, String message, Supplier<Flux<String>> generationSupplier,
+                                       boolean finishInBackground) {
+        AtomicBoolean started = new AtomicBoolean();
+        GenerationSession session = inFlightSessions.computeIfAbsent(appId, id -> {
+            started.set(true);
+            return share(id, message, generationSupplier, finishInBackground);
+        });
+        return started.get() ? subscriberBufferLimiter.limit(session.events) : null;
+    }
+
+    /**
+     * 从上次收到的事件之后续传
+     * 生成仍在进行时，先从回放日志补齐缺失的部分，再接上进行中的流；生成已结束时只回放日志
+     *
+     * @param appId       应用 ID
+     * @param lastEventId 客户端最后收到的事件 ID
+     * @return 续传的事件流，lastEventId 格式不正确时返回 null
+     */
+    public Flux<GenerationEvent> resume(Long appId, String lastEventId) {
+        String generationId = StrUtil.subBefore(lastEventId, GenerationEvent.ID_SEPARATOR, true);
+        String seqStr = StrUtil.subAfter(lastEventId, GenerationEvent.ID_SEPARATOR, true);
+        if (StrUtil.isBlank(generationId) || !StrUtil.isNumeric(seqStr)) {
+            return null;
+        }
+        long lastSeq = Long.parseLong(seqStr);
+        GenerationSession session = inFlightSessions.get(appId);
+        if (session == null || !session.generationId.equals(generationId)) {
+            log.info("续传已结束的生成，appId: {}, generationId: {}, lastSeq: {}", appId, generationId, lastSeq);
+            return subscriberBufferLimiter.limit(generationReplayLog.read(appId, generationId, lastSeq));
+        }
+        log.info("续传进行中的生成，appId: {}, generationId: {}, lastSeq: {}", appId, generationId, lastSeq);
+        // 日志与内存缓冲区可能有重叠，按已发出的最大序号去重
+        AtomicLong emittedSeq = new AtomicLong(lastSeq);
+        return subscriberBufferLimiter.limit(Flux.concat(
+                generationReplayLog.read(appId, generationId, lastSeq)
+                        .doOnNext(event -> emittedSeq.set(event.getSeq())),
+                Flux.defer(() -> session.events.filter(event -> event.getSeq() > emittedSeq.get()))
+        ));
+    }
+
+    /**
+     * 将生成流包装为可共享、可回放的流
+     * 所有订阅者都取消后上游也随之取消，或者（finishInBackground）由注册表继续拉取到结束，之后仍可从回放日志续传；
+     * 流结束（或被取消）时从注册表移除
+     */
+    private GenerationSession share(Long appId, String message, Supplier<Flux<String>> generationSupplier,
+                                    boolean finishInBackground) {
+        String generationId = IdUtil.getSnowflakeNextIdStr();
+        GenerationSession session = new GenerationSession(generationId, message);
+        GenerationReplayLog.Spiller spiller = generationReplayLog.openSpiller(appId, generationId);
+        session.events = Flux.defer(generationSupplier)
+                .index((index, data) -> new GenerationEvent(generationId, index + 1, data))
+                .doOnNext(event -> spiller.append(event.getData()))
+                // 在结束信号传给订阅者之前移除，保证之后的请求会开始新的生成而不是重连到已结束的流
+                .doOnTerminate(() -> inFlightSessions.remove(appId, session))
+                .doOnCancel(() -> inFlightSessions.remove(appId, session))
+                .doFinally(signal -> spiller.close())
+                .replay(replaySize)
+                .refCount(1);
+        if (finishInBackground) {
+            // 注册表自己作为一个订阅者拉取到结束，引用计数不会归零；第一个客户端订阅时才开始生成
+            Flux<GenerationEvent> events = session.events;
+            session.events = Flux.defer(() -> {
+                if (session.drained.compareAndSet(false, true)) {
+                    events.subscribe(event -> {
+                    }, error -> log.warn("后台生成失败，appId: {}, generationId: {}", appId, generationId, error));
+                }
+                return events;
+            });
+        }
+        log.info("注册生成流，appId: {}, generationId: {}, 断开后继续生成: {}", appId, generationId, finishInBackground);
+        return session;
+    }
+
+    /**
+     * 进行中的一次生成
+     */
+    private static class GenerationSession {
+
+        private final String generationId;
+
+        /**
+         * 触发本次生成的用户消息
+         */
+        private final String message;
+
+        private Flux<GenerationEvent> events;
+
+        /**
+         * 后台拉取的订阅是否已建立
+         */
+        private final AtomicBoolean drained = new AtomicBoolean();
+
+        private GenerationSession(String generationId, String message) {
+            this.generationId = generationId;
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.code.core.stream;
+
+/**
+ * SSE 数据编码器
+ * 把输出内容编码为 {"d":"..."}，前端解析结果与 JSONUtil.toJsonStr(Map.of("d", data)) 相同，
+ * 但只做字符串转义，不经过 Map 和通用序列化，每帧只分配结果字符串
+ * 编码在线程本地的缓冲区中完成，缓冲区在帧之间复用
+ */
+public final class SseDataEncoder {
+
+    private static final char LINE_SEPARATOR = 0x2028;
+
+    private static final char PARAGRAPH_SEPARATOR = 0x2029;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * 复用缓冲区的最大容量，超出后丢弃，避免个别大帧长期占用内存
+     */
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+
+    private SseDataEncoder() {
+    }
+
+    /**
+     * 编码输出内容
+     *
+     * @param data 输出内容
+     * @return JSON 字符串 {"d":"..."}
+     */
+    public static String encode(String data) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        buffer.append("{\"d\":\"");
+        appendEscaped(buffer, data == null ? "" : data);
+        buffer.append("\"}");
+        String result = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            BUFFER.remove();
+        }
+        return result;
+    }
+
+    /**
+     * 按 JSON 字符串规则转义
+     */
+    static void appendEscaped(StringBuilder out, String value) {
+        int length = value.length();
+        // 连续的无需转义的字符整段复制
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String replacement;
+            switch (c) {
+                case '"' -> replacement = "\\\"";
+                case '\\' -> replacement = "\\\\";
+                case '\n' -> replacement = "\\n";
+                case '\r' -> replacement = "\\r";
+                case '\t' -> replacement = "\\t";
+                case '\b' -> replacement = "\\b";
+                case '\f' -> replacement = "\\f";
+                default -> {
+                    // 其余控制字符和行/段落分隔符（部分 JavaScript 解析器视为换行）使用 \\uXXXX
+                    if (c >= 0x20 && c != LINE_SEPARATOR && c != PARAGRAPH_SEPARATOR) {
+                        continue;
+                    }
+                    replacement = null;
+                }
+            }
+            out.append(value, start, i);
+            if (replacement != null) {
+                out.append(replacement);
+            } else {
+                out.append("\\u").append(HEX[c >> 12 & 0xF]).append(HEX[c >> 8 & 0xF]).append(HEX[c >> 4 & 0xF]).append(HEX[c & 0xF]);
+            }
+            start = i + 1;
+        }
+        out.append(value, start, length);
+    }
+}
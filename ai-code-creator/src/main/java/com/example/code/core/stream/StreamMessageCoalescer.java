@@ -0,0 +1,126 @@
+package com.example.code.core.stream;
+
+import com.example.code.ai.model.message.AiResponseMessage;
+import com.example.code.ai.model.message.StreamMessage;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 生成事件合并器
+ * 模型每次只输出几个字符，逐个转发会产生大量很小的 SSE 帧（每帧一次序列化、一次写出和一次刷新）
+ * 连续的文本片段先合并，满足以下任一条件时作为一个事件发出：
+ * - 第一个片段到达后经过了 maxDelay；
+ * - 合并的字符数达到 maxChars；
+ * - 遇到工具事件（先发出已合并的文本，再立即发出工具事件）；
+ * - 上游结束或出错
+ * 下游取消时同时取消上游和定时器
+ */
+public final class StreamMessageCoalescer {
+
+    private StreamMessageCoalescer() {
+    }
+
+    /**
+     * 合并事件流中连续的文本片段
+     *
+     * @param source    原始事件流
+     * @param maxDelay  文本最多等待多久发出，为 0 时不合并
+     * @param maxChars  合并的最大字符数
+     * @param scheduler 定时发出用的调度器
+     * @return 合并后的事件流
+     */
+    public static Flux<StreamMessage> coalesce(Flux<StreamMessage> source, Duration maxDelay, int maxChars, Scheduler scheduler) {
+        if (maxDelay.isZero() || maxDelay.isNegative()) {
+            return source;
+        }
+        return Flux.create(sink -> {
+            Coalescer coalescer = new Coalescer(sink, maxDelay.toMillis(), maxChars, scheduler);
+            Disposable upstream = source.subscribe(coalescer::onNext, coalescer::onError, coalescer::onComplete);
+            sink.onDispose(() -> {
+                upstream.dispose();
+                coalescer.cancelTimer();
+            });
+        });
+    }
+
+    /**
+     * 单个订阅的合并状态，上游和定时器在不同线程上回调，以自身加锁
+     */
+    private static final class Coalescer {
+
+        private final FluxSink<StreamMessage> sink;
+
+        private final long maxDelayMillis;
+
+        private final int maxChars;
+
+        private final Scheduler scheduler;
+
+        private final StringBuilder pending = new StringBuilder();
+
+        private Disposable timer;
+
+        private Coalescer(FluxSink<StreamMessage> sink, long maxDelayMillis, int maxChars, Scheduler scheduler) {
+            this.sink = sink;
+            this.maxDelayMillis = maxDelayMillis;
+            this.maxChars = maxChars;
+            this.scheduler = scheduler;
+        }
+
+        synchronized void onNext(StreamMessage message) {
+            if (message instanceof AiResponseMessage aiResponseMessage) {
+                String data = aiResponseMessage.getData();
+                if (data == null || data.isEmpty()) {
+                    return;
+                }
+                pending.append(data);
+                if (pending.length() >= maxChars) {
+                    flush();
+                } else if (timer == null) {
+                    timer = scheduler.schedule(this::onTimer, maxDelayMillis, TimeUnit.MILLISECONDS);
+                }
+                return;
+            }
+            // 工具事件：保持顺序，先发出已合并的文本
+            flush();
+            sink.next(message);
+        }
+
+        synchronized void onError(Throwable error) {
+            flush();
+            sink.error(error);
+        }
+
+        synchronized void onComplete() {
+            flush();
+            sink.complete();
+        }
+
+        synchronized void cancelTimer() {
+            if (timer != null) {
+                timer.dispose();
+                timer = null;
+            }
+        }
+
+        private synchronized void onTimer() {
+            timer = null;
+            flush();
+        }
+
+        private void flush() {
+            cancelTimer();
+            if (pending.isEmpty()) {
+                return;
+            }
+            String data = pending.toString();
+            pending.setLength(0);
+            sink.next(new AiResponseMessage(data));
+        }
+    }
+}
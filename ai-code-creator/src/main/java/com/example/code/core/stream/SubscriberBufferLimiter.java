@@ -0,0 +1,201 @@
+package com.example.code.core.stream;
+
+import com.example.code.exception.BusinessException;
+import com.example.code.exception.ErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 订阅者缓冲限制器
+ * 共享的生成流（replay）按最慢的订阅者的消费速度向上游请求数据，浏览器卡住时整个剩余生成都会堆积在上游的无界缓冲区里
+ * 每个订阅者在共享流之后加一层有界缓冲：
+ * - 向共享流请求无限量数据，慢订阅者不再拖慢生成和其他订阅者；
+ * - 订阅者没有请求时，待发送的事件合并为一个（内容拼接，事件 ID 取最后一个，断线续传不受影响）；
+ * - 单个订阅者待发送的字符数超过上限，或整个节点所有订阅者待发送的字符数超过上限时，断开该订阅者，
+ *   客户端可以带上 Last-Event-ID 从回放日志续传
+ * 指标：code_gen.stream.buffered_chars（节点待发送字符数）、code_gen.stream.lagging_subscribers（当前落后的订阅者数）、
+ * code_gen.stream.lagging_subscribers_total（累计落后次数）、code_gen.stream.dropped_subscribers（因超限断开的订阅者数）
+ */
+@Slf4j
+@Component
+public class SubscriberBufferLimiter {
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 单个订阅者最多缓冲的字符数
+     */
+    @Value("${code-gen.stream.subscriber-max-chars:1048576}")
+    private long subscriberMaxChars;
+
+    /**
+     * 整个节点所有订阅者最多缓冲的字符数
+     */
+    @Value("${code-gen.stream.node-max-chars:33554432}")
+    private long nodeMaxChars;
+
+    /**
+     * 缓冲的字符数超过多少时认为订阅者落后
+     */
+    @Value("${code-gen.stream.lag-threshold-chars:65536}")
+    private long lagThresholdChars;
+
+    private final AtomicLong bufferedChars = new AtomicLong();
+
+    private final AtomicInteger laggingSubscribers = new AtomicInteger();
+
+    private Counter laggingCounter;
+
+    private Counter droppedCounter;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("code_gen.stream.buffered_chars", bufferedChars, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("code_gen.stream.lagging_subscribers", laggingSubscribers, AtomicInteger::get).register(meterRegistry);
+        laggingCounter = meterRegistry.counter("code_gen.stream.lagging_subscribers_total");
+        droppedCounter = meterRegistry.counter("code_gen.stream.dropped_subscribers");
+    }
+
+    /**
+     * 为一个订阅者的事件流加上有界缓冲
+     *
+     * @param source 共享的生成事件流
+     * @return 每次订阅独立缓冲的事件流
+     */
+    public Flux<GenerationEvent> limit(Flux<GenerationEvent> source) {
+        // 只在有请求时发出，缓冲由这里管理，FluxSink 自身不缓冲
+        return Flux.create(sink -> {
+            SubscriberBuffer buffer = new SubscriberBuffer(sink);
+            sink.onRequest(n -> buffer.drain());
+            Disposable upstream = source.subscribe(buffer::onNext, buffer::onError, buffer::onComplete);
+            sink.onDispose(() -> {
+                upstream.dispose();
+                buffer.release();
+            });
+        }, FluxSink.OverflowStrategy.ERROR);
+    }
+
+    /**
+     * 当前节点缓冲的字符数
+     */
+    public long getBufferedChars() {
+        return bufferedChars.get();
+    }
+
+    /**
+     * 单个订阅者的缓冲，上游和下游请求在不同线程上回调，以自身加锁
+     * 同一个订阅者的事件来自同一次生成，待发送的事件可以直接合并
+     */
+    private final class SubscriberBuffer {
+
+        private final FluxSink<GenerationEvent> sink;
+
+        private final StringBuilder pending = new StringBuilder();
+
+        private GenerationEvent lastPending;
+
+        private boolean lagging;
+
+        private boolean done;
+
+        private Throwable error;
+
+        private boolean terminated;
+
+        private SubscriberBuffer(FluxSink<GenerationEvent> sink) {
+            this.sink = sink;
+        }
+
+        synchronized void onNext(GenerationEvent event) {
+            if (terminated) {
+                return;
+            }
+            if (lastPending == null && sink.requestedFromDownstream() > 0) {
+                sink.next(event);
+                return;
+            }
+            String data = event.getData() == null ? "" : event.getData();
+            long total = bufferedChars.addAndGet(data.length());
+            pending.append(data);
+            lastPending = event;
+            if (pending.length() > subscriberMaxChars || total > nodeMaxChars) {
+                log.warn("订阅者接收过慢，断开连接，generationId: {}, 缓冲字符数: {}, 节点缓冲字符数: {}",
+                        event.getGenerationId(), pending.length(), total);
+                droppedCounter.increment();
+                terminated = true;
+                release();
+                sink.error(new BusinessException(ErrorCode.SYSTEM_ERROR, "接收过慢，请重新连接继续接收"));
+                return;
+            }
+            if (!lagging && pending.length() > lagThresholdChars) {
+                lagging = true;
+                laggingSubscribers.incrementAndGet();
+                laggingCounter.increment();
+            }
+            drain();
+        }
+
+        synchronized void onError(Throwable throwable) {
+            error = throwable;
+            done = true;
+            drain();
+        }
+
+        synchronized void onComplete() {
+            done = true;
+            drain();
+        }
+
+        /**
+         * 有请求时把待发送的内容合并为一个事件发出，上游已结束时随后发出结束信号
+         */
+        synchronized void drain() {
+            if (terminated) {
+                return;
+            }
+            if (lastPending != null) {
+                if (sink.requestedFromDownstream() <= 0) {
+                    return;
+                }
+                GenerationEvent merged = new GenerationEvent(lastPending.getGenerationId(), lastPending.getSeq(), pending.toString());
+                release();
+                sink.next(merged);
+            }
+            if (done) {
+                terminated = true;
+                if (error != null) {
+                    sink.error(error);
+                } else {
+                    sink.complete();
+                }
+            }
+        }
+
+        /**
+         * 清空缓冲并归还节点计数
+         */
+        synchronized void release() {
+            bufferedChars.addAndGet(-pending.length());
+            pending.setLength(0);
+            pending.trimToSize();
+            lastPending = null;
+            if (lagging) {
+                lagging = false;
+                laggingSubscribers.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.code.core.workspace;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * 项目目录索引
+ * 以树的形式保存项目中的文件（相对项目根目录），首次使用时扫描一次磁盘建立，
+ * 之后由工作区的写入和删除增量维护，列目录和渲染目录结构不再访问磁盘
+ * 子节点按名称排序，渲染时目录在前、文件在后
+ * 非线程安全，由 {@link ProjectWorkspace} 加锁访问
+ */
+class DirectoryIndex {
+
+    /**
+     * 文件节点没有状态，共用一个实例
+     */
+    private static final Node FILE = new Node(null);
+
+    private final Node root = new Node(new TreeMap<>());
+
+    /**
+     * 索引中的文件数量
+     */
+    private int fileCount;
+
+    /**
+     * 添加文件，自动创建中间目录
+     *
+     * @param relativePath 相对项目根目录的文件路径
+     * @throws IllegalArgumentException 该路径已是目录（不会用文件覆盖整个目录，索引保持不变）
+     */
+    void addFile(Path relativePath) {
+        Node node = root;
+        int count = relativePath.getNameCount();
+        for (int i = 0; i < count - 1; i++) {
+            String name = relativePath.getName(i).toString();
+            Node child = node.children.get(name);
+            if (child == null || child.isFile()) {
+                if (child != null) {
+                    // 同名文件被目录取代
+                    fileCount--;
+                }
+                child = new Node(new TreeMap<>());
+                node.children.put(name, child);
+            }
+            node = child;
+        }
+        String name = relativePath.getFileName().toString();
+        Node existing = node.children.get(name);
+        if (existing != null && !existing.isFile()) {
+            throw new IllegalArgumentException("路径是已存在的目录: " + relativePath);
+        }
+        if (node.children.put(name, FILE) == null) {
+            fileCount++;
+        }
+    }
+
+    /**
+     * 删除文件，删除后为空的目录一并移除
+     *
+     * @param relativePath 相对项目根目录的文件路径
+     */
+    void removeFile(Path relativePath) {
+        removeFile(root, relativePath, 0);
+    }
+
+    private boolean removeFile(Node dir, Path relativePath, int index) {
+        String name = relativePath.getName(index).toString();
+        Node child = dir.children.get(name);
+        if (child == null) {
+            return false;
+        }
+        if (index == relativePath.getNameCount() - 1) {
+            if (child.isFile()) {
+                dir.children.remove(name);
+                fileCount--;
+            }
+        } else if (!child.isFile() && removeFile(child, relativePath, index + 1) && child.children.isEmpty()) {
+            dir.children.remove(name);
+        }
+        return true;
+    }
+
+    /**
+     * 是否存在该目录（空路径表示根目录，根目录在有文件时存在）
+     */
+    boolean isDirectory(Path relativeDir) {
+        Node node = find(relativeDir);
+        return node != null && !node.isFile() && (node != root || !root.children.isEmpty());
+    }
+
+    /**
+     * 列出目录下的所有文件（相对项目根目录）
+     */
+    List<Path> listFiles(Path relativeDir) {
+        List<Path> result = new ArrayList<>();
+        Node node = find(relativeDir);
+        if (node != null && !node.isFile()) {
+            collectFiles(node, relativeDir, result);
+        }
+        return result;
+    }
+
+    private void collectFiles(Node dir, Path dirPath, List<Path> result) {
+        dir.children.forEach((name, child) -> {
+            Path childPath = dirPath.resolve(name);
+            if (child.isFile()) {
+                result.add(childPath);
+            } else {
+                collectFiles(child, childPath, result);
+            }
+        });
+    }
+
+    /**
+     * 把目录渲染为缩进的树形文本，每个条目一行，目录名以 / 结尾
+     *
+     * @param relativeDir 要渲染的目录
+     * @param ignored     需要忽略的文件或目录名（目录被忽略时整个子树不显示）
+     */
+    void render(Path relativeDir, Predicate<String> ignored, StringBuilder out) {
+        Node node = find(relativeDir);
+        if (node != null && !node.isFile()) {
+            render(node, 0, ignored, out);
+        }
+    }
+
+    private void render(Node dir, int depth, Predicate<String> ignored, StringBuilder out) {
+        String indent = "  ".repeat(depth);
+        for (Map.Entry<String, Node> entry : dir.children.entrySet()) {
+            if (!entry.getValue().isFile() && !ignored.test(entry.getKey())) {
+                out.append(indent).append(entry.getKey()).append("/\n");
+                render(entry.getValue(), depth + 1, ignored, out);
+            }
+        }
+        for (Map.Entry<String, Node> entry : dir.children.entrySet()) {
+            if (entry.getValue().isFile() && !ignored.test(entry.getKey())) {
+                out.append(indent).append(entry.getKey()).append('\n');
+            }
+        }
+    }
+
+    /**
+     * 估算占用的内存（字节）
+     */
+    int weight() {
+        return fileCount * 128;
+    }
+
+    private Node find(Path relativeDir) {
+        Node node = root;
+        if (relativeDir.toString().isEmpty()) {
+            return node;
+        }
+        for (Path name : relativeDir) {
+            if (node.isFile()) {
+                return null;
+            }
+            node = node.children.get(name.toString());
+            if (node == null) {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * 索引节点，文件的 children 为 null
+     */
+    private record Node(TreeMap<String, Node> children) {
+
+        boolean isFile() {
+            return children == null;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.example.code.core.workspace;
+
+import cn.hutool.core.util.IdUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * 项目工作区
+ * 一次生成过程中工具对项目文件的读写都在内存中完成：
+ * - 读取过的文件内容缓存在内存中，写入和删除只修改内存并标记为脏；
+ * - 首次列目录时扫描一次磁盘建立目录索引（{@link DirectoryIndex}），之后由写入和删除增量维护；
+ * - {@link #flush()} 把脏文件写回磁盘（临时文件 + 改名），在一轮对话结束或构建前调用
+ * 文件以规范化后的绝对路径为键
+ */
+@Slf4j
+public class ProjectWorkspace {
+
+    /**
+     * 建立目录索引时跳过的目录（依赖和构建产物，工具不会读写其中的文件）
+     */
+    private static final Set<String> SKIPPED_DIRS = Set.of("node_modules", ".git", "dist");
+
+    private final Path root;
+
+    /**
+     * 已加载或修改过的文件
+     */
+    private final Map<Path, FileState> files = new ConcurrentHashMap<>();
+
+    /**
+     * 目录索引（首次使用时建立），访问时以索引自身加锁
+     */
+    private volatile DirectoryIndex directoryIndex;
+
+    public ProjectWorkspace(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * 读取文件内容
+     *
+     * @return 文件内容，文件不存在时返回 null
+     */
+    public String read(Path file) throws IOException {
+        FileState state = files.get(file);
+        if (state != null) {
+            return state.content;
+        }
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        String content = Files.readString(file);
+        // 并发读取时以先放入的为准，避免覆盖刚写入的内容
+        FileState existing = files.putIfAbsent(file, new FileState(content, false));
+        return existing == null ? content : existing.content;
+    }
+
+    public boolean isFile(Path file) {
+        FileState state = files.get(file);
+        if (state != null) {
+            return state.content != null;
+        }
+        return Files.isRegularFile(file);
+    }
+
+    /**
+     * 目录中有文件（包括尚未写回磁盘的文件）
+     */
+    public boolean isDirectory(Path dir) throws IOException {
+        if (!dir.startsWith(root)) {
+            return false;
+        }
+        DirectoryIndex index = getDirectoryIndex();
+        synchronized (index) {
+            return index.isDirectory(root.relativize(dir));
+        }
+    }
+
+    public void write(Path file, String content) {
+        write(Map.of(file, content));
+    }
+
+    /**
+     * 写入多个文件，任一路径是已存在的目录（磁盘上或尚未写回的）时一个都不写入
+     *
+     * @throws IllegalArgumentException 路径是已存在的目录
+     */
+    public void write(Map<Path, String> contents) {
+        DirectoryIndex index = directoryIndex;
+        if (index == null) {
+            for (Path file : contents.keySet()) {
+                // 没有索引时检查磁盘和尚未写回的文件
+                boolean hasPendingChildren = files.entrySet().stream()
+                        .anyMatch(entry -> entry.getValue().content != null && entry.getKey().startsWith(file)
+                                && !entry.getKey().equals(file));
+                if (Files.isDirectory(file) || hasPendingChildren) {
+                    throw new IllegalArgumentException("路径是已存在的目录: " + root.relativize(file));
+                }
+            }
+            contents.forEach((file, content) -> files.put(file, new FileState(content, true)));
+            return;
+        }
+        synchronized (index) {
+            for (Path file : contents.keySet()) {
+                if (Files.isDirectory(file) || file.startsWith(root) && index.isDirectory(root.relativize(file))) {
+                    throw new IllegalArgumentException("路径是已存在的目录: " + root.relativize(file));
+                }
+            }
+            contents.forEach((file, content) -> {
+                files.put(file, new FileState(content, true));
+                if (file.startsWith(root)) {
+                    index.addFile(root.relativize(file));
+                }
+            });
+        }
+    }
+
+    public void delete(Path file) {
+        files.put(file, new FileState(null, true));
+        DirectoryIndex index = directoryIndex;
+        if (index != null && file.startsWith(root)) {
+            synchronized (index) {
+                index.removeFile(root.relativize(file));
+            }
+        }
+    }
+
+    /**
+     * 列出目录下的所有文件（包含尚未写回磁盘的文件，不包含已删除的文件）
+     */
+    public List<Path> listFiles(Path dir) throws IOException {
+        if (!dir.startsWith(root)) {
+            return List.of();
+        }
+        DirectoryIndex index = getDirectoryIndex();
+        List<Path> relativeFiles;
+        synchronized (index) {
+            relativeFiles = index.listFiles(root.relativize(dir));
+        }
+        return relativeFiles.stream().map(root::resolve).toList();
+    }
+
+    /**
+     * 把目录渲染为缩进的树形文本，每个条目一行
+     *
+     * @param dir     要渲染的目录
+     * @param ignored 需要忽略的文件或目录名
+     */
+    public String renderTree(Path dir, Predicate<String> ignored) throws IOException {
+        StringBuilder out = new StringBuilder();
+        if (dir.startsWith(root)) {
+            DirectoryIndex index = getDirectoryIndex();
+            synchronized (index) {
+                index.render(root.relativize(dir), ignored, out);
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * 把脏文件写回磁盘
+     *
+     * @return 写回的文件数量
+     */
+    public synchronized int flush() {
+        int flushed = 0;
+        for (Map.Entry<Path, FileState> entry : files.entrySet()) {
+            FileState state = entry.getValue();
+            if (!state.dirty) {
+                continue;
+            }
+            Path file = entry.getKey();
+            try {
+                if (state.content == null) {
+                    Files.deleteIfExists(file);
+                } else {
+                    writeToDisk(file, state.content);
+                }
+                // 写回期间又被修改时保留脏标记
+                files.replace(file, state, new FileState(state.content, false));
+                flushed++;
+            } catch (IOException e) {
+                log.error("工作区文件写回失败: {}, 错误: {}", file, e.getMessage(), e);
+            }
+        }
+        if (flushed > 0) {
+            log.info("工作区写回 {} 个文件: {}", flushed, root);
+        }
+        return flushed;
+    }
+
+    public boolean isDirty() {
+        return files.values().stream().anyMatch(state -> state.dirty);
+    }
+
+    /**
+     * 估算占用的内存（字节）
+     */
+    public int weight() {
+        long bytes = 0;
+        for (FileState state : files.values()) {
+            bytes += 64 + (state.content == null ? 0 : state.content.length() * 2L);
+        }
+        DirectoryIndex index = directoryIndex;
+        if (index != null) {
+            synchronized (index) {
+                bytes += index.weight();
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    private DirectoryIndex getDirectoryIndex() throws IOException {
+        DirectoryIndex index = directoryIndex;
+        if (index != null) {
+            return index;
+        }
+        synchronized (files) {
+            if (directoryIndex == null) {
+                DirectoryIndex scanned = new DirectoryIndex();
+                if (Files.isDirectory(root)) {
+                    Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                        @Override
+                        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                            return !dir.equals(root) && SKIPPED_DIRS.contains(dir.getFileName().toString())
+                                    ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                            if (attrs.isRegularFile()) {
+                                scanned.addFile(root.relativize(file));
+                            }
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+                }
+                // 发布前合并内存中尚未写回的修改，发布后的修改由 write/delete 直接更新索引
+                directoryIndex = scanned;
+                synchronized (scanned) {
+                    files.forEach((file, state) -> {
+                        if (!file.startsWith(root)) {
+                            return;
+                        }
+                        if (state.content == null) {
+                            scanned.removeFile(root.relativize(file));
+                        } else {
+                            try {
+                                scanned.addFile(root.relativize(file));
+                            } catch (IllegalArgumentException e) {
+                                log.warn("工作区文件与目录冲突，未加入目录索引: {}", file);
+                            }
+                        }
+                    });
+                }
+            }
+            return directoryIndex;
+        }
+    }
+
+    private void writeToDisk(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tempFile = file.resolveSibling("." + file.getFileName() + ".tmp-" + IdUtil.fastSimpleUUID());
+        Files.writeString(tempFile, content, StandardCharsets.UTF_8);
+        try {
+            Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 文件状态，不可变，修改时整体替换
+     *
+     * @param content 文件内容，null 表示已删除
+     * @param dirty   是否尚未写回磁盘
+     */
+    private record FileState(String content, boolean dirty) {
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.code.core.workspace;
+
+import com.example.code.constant.AppConstant;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * 项目工作区管理器
+ * 按应用维护 Vue 项目的内存工作区，同一应用的所有文件工具共享：
+ * - 工具的读写都在工作区中完成，不直接访问磁盘；
+ * - 一轮对话结束或构建前调用 {@link #flush(Long)} 写回磁盘；
+ * - 工作区按内容大小加权，超出内存预算或长时间未访问时淘汰，淘汰前写回磁盘
+ * 修改操作在缓存的 compute 中执行，与淘汰互斥，不会写到已经淘汰的工作区上；
+ * 淘汰时的写回在淘汰的原子操作内同步完成，写回结束前同一应用的访问会等待，不会从磁盘读到旧内容
+ */
+@Slf4j
+@Component
+public class ProjectWorkspaceManager {
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 所有工作区最多占用的内存（字节）
+     */
+    @Value("${code-gen.workspace.max-bytes:67108864}")
+    private long maxBytes;
+
+    /**
+     * 工作区多久未访问后淘汰（分钟）
+     */
+    @Value("${code-gen.workspace.expire-minutes:30}")
+    private long expireMinutes;
+
+    private Cache<Long, ProjectWorkspace> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long appId, ProjectWorkspace workspace) -> workspace.weight())
+                .expireAfterAccess(Duration.ofMinutes(expireMinutes))
+                .recordStats()
+                .evictionListener((Long appId, ProjectWorkspace workspace, RemovalCause cause) -> {
+                    // 被动淘汰时写回，主动丢弃（EXPLICIT）和重新计算权重（REPLACED）不写回
+                    // 监听器内不能再修改缓存，写回失败的文件无法放回，只能记录
+                    if (workspace != null) {
+                        workspace.flush();
+                        if (workspace.isDirty()) {
+                            meterRegistry.counter("code_gen.workspace.eviction_write_failures").increment();
+                            log.error("工作区淘汰时部分文件写回失败，修改已丢失，appId: {}", appId);
+                        }
+                    }
+                })
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "project_workspace");
+    }
+
+    /**
+     * 获取应用的 Vue 项目根目录
+     */
+    public static Path getProjectRoot(Long appId) {
+        return Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, "vue_project_" + appId).toAbsolutePath().normalize();
+    }
+
+    /**
+     * 把工具传入的路径解析为规范化的绝对路径（相对路径基于项目根目录）
+     *
+     * @throws IllegalArgumentException 路径超出项目目录（包括 ../ 和项目外的绝对路径）
+     */
+    public Path resolve(Long appId, String path) {
+        Path projectRoot = getProjectRoot(appId);
+        Path resolved = projectRoot.resolve(path == null ? "" : path).normalize();
+        if (!resolved.startsWith(projectRoot)) {
+            throw new IllegalArgumentException("路径超出项目目录: " + path);
+        }
+        return resolved;
+    }
+
+    /**
+     * 读取文件内容
+     *
+     * @return 文件内容，文件不存在时返回 null
+     */
+    public String readFile(Long appId, Path file) throws IOException {
+        String content = getWorkspace(appId).read(file);
+        // 新加载的内容计入权重
+        cache.asMap().computeIfPresent(appId, (key, workspace) -> workspace);
+        return content;
+    }
+
+    public boolean isFile(Long appId, Path file) {
+        return getWorkspace(appId).isFile(file);
+    }
+
+    public boolean isDirectory(Long appId, Path dir) throws IOException {
+        return getWorkspace(appId).isDirectory(dir);
+    }
+
+    /**
+     * 列出目录下的所有文件（包含尚未写回磁盘的文件）
+     */
+    public List<Path> listFiles(Long appId, Path dir) throws IOException {
+        return getWorkspace(appId).listFiles(dir);
+    }
+
+    /**
+     * 把目录渲染为缩进的树形文本（包含尚未写回磁盘的文件）
+     *
+     * @param ignored 需要忽略的文件或目录名
+     */
+    public String renderTree(Long appId, Path dir, Predicate<String> ignored) throws IOException {
+        String tree = getWorkspace(appId).renderTree(dir, ignored);
+        // 新建立的目录索引计入权重
+        cache.asMap().computeIfPresent(appId, (key, workspace) -> workspace);
+        return tree;
+    }
+
+    public void writeFile(Long appId, Path file, String content) {
+        update(appId, workspace -> workspace.write(file, content));
+    }
+
+    /**
+     * 一次写入多个文件，对其他工具同时可见
+     */
+    public void writeFiles(Long appId, Map<Path, String> contents) {
+        update(appId, workspace -> workspace.write(contents));
+    }
+
+    public void deleteFile(Long appId, Path file) {
+        update(appId, workspace -> workspace.delete(file));
+    }
+
+    /**
+     * 把应用工作区的修改写回磁盘（一轮对话结束或构建前调用）
+     *
+     * @param appId 应用 ID
+     */
+    public void flush(Long appId) {
+        ProjectWorkspace workspace = cache.getIfPresent(appId);
+        if (workspace != null) {
+            workspace.flush();
+        }
+    }
+
+    /**
+     * 丢弃应用的工作区（包括未写回的修改），删除应用时调用
+     *
+     * @param appId 应用 ID
+     */
+    public void discard(Long appId) {
+        cache.invalidate(appId);
+    }
+
+    /**
+     * 写回所有工作区
+     */
+    @PreDestroy
+    public void flushAll() {
+        cache.asMap().values().forEach(ProjectWorkspace::flush);
+    }
+
+    private ProjectWorkspace getWorkspace(Long appId) {
+        return cache.get(appId, key -> new ProjectWorkspace(getProjectRoot(key)));
+    }
+
+    private void update(Long appId, Consumer<ProjectWorkspace> action) {
+        cache.asMap().compute(appId, (key, workspace) -> {
+            ProjectWorkspace target = workspace != null ? workspace : new ProjectWorkspace(getProjectRoot(key));
+            action.accept(target);
+            return target;
+        });
+    }
+}
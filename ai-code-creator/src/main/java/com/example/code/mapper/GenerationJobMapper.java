@@ -0,0 +1,24 @@
+package com.example.code.mapper;
+
+import com.mybatisflex.core.BaseMapper;
+import com.example.code.model.entity.GenerationJob;
+import com.example.code.model.enums.GenerationJobStatusEnum;
+import com.mybatisflex.core.query.QueryWrapper;
+
+/**
+ * 生成任务 映射层。
+ */
+public interface GenerationJobMapper extends BaseMapper<GenerationJob> {
+
+    /**
+     * 查询应用未结束（排队中或执行中）的任务数量
+     *
+     * @param appId 应用 ID
+     * @return 未结束的任务数量
+     */
+    default long countActiveByAppId(Long appId) {
+        return selectCountByQuery(QueryWrapper.create()
+                .eq("appId", appId)
+                .in("status", GenerationJobStatusEnum.QUEUED.getValue(), GenerationJobStatusEnum.RUNNING.getValue()));
+    }
+}
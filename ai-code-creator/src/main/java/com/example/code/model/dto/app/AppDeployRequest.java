@@ -13,5 +13,10 @@ public class AppDeployRequest implements Serializable {
      */
     private Long appId;
 
+    /**
+     * 是否强制重新构建（忽略构建指纹，仅 Vue 项目有效）
+     */
+    private Boolean forceRebuild;
+
     private static final long serialVersionUID = 1L;
 }
@@ -0,0 +1,22 @@
+package com.example.code.model.dto.generationjob;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+@Data
+/// 提交生成任务请求类
+public class GenerationJobSubmitRequest implements Serializable {
+
+    /**
+     * 应用 id
+     */
+    private Long appId;
+
+    /**
+     * 用户消息
+     */
+    private String message;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,131 @@
+package com.example.code.model.entity;
+
+import com.mybatisflex.annotation.Column;
+import com.mybatisflex.annotation.Id;
+import com.mybatisflex.annotation.KeyType;
+import com.mybatisflex.annotation.Table;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import java.io.Serial;
+
+import com.mybatisflex.core.keygen.KeyGenerators;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 生成任务 实体类。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("generation_job")
+public class GenerationJob implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * id
+     */
+    @Id(keyType = KeyType.Generator, value = KeyGenerators.snowFlakeId)
+    private Long id;
+
+    /**
+     * 应用id
+     */
+    @Column("appId")
+    private Long appId;
+
+    /**
+     * 创建用户id
+     */
+    @Column("userId")
+    private Long userId;
+
+    /**
+     * 用户消息
+     */
+    private String message;
+
+    /**
+     * 代码生成类型（枚举）
+     */
+    @Column("codeGenType")
+    private String codeGenType;
+
+    /**
+     * 状态：queued/running/succeeded/failed
+     */
+    private String status;
+
+    /**
+     * 生成流 ID（订阅和断线续传）
+     */
+    @Column("generationId")
+    private String generationId;
+
+    /**
+     * 已输出的消息块数
+     */
+    @Column("eventCount")
+    private Long eventCount;
+
+    /**
+     * 已输出的字符数
+     */
+    @Column("outputChars")
+    private Long outputChars;
+
+    /**
+     * 失败原因
+     */
+    @Column("errorMessage")
+    private String errorMessage;
+
+    /**
+     * 开始时间
+     */
+    @Column("startTime")
+    private LocalDateTime startTime;
+
+    /**
+     * 结束时间
+     */
+    @Column("finishTime")
+    private LocalDateTime finishTime;
+
+    /**
+     * 执行任务的服务实例
+     */
+    @Column("ownerNode")
+    private String ownerNode;
+
+    /**
+     * 执行实例最近一次续约时间
+     */
+    @Column("heartbeatTime")
+    private LocalDateTime heartbeatTime;
+
+    /**
+     * 创建时间
+     */
+    @Column("createTime")
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    @Column("updateTime")
+    private LocalDateTime updateTime;
+
+    /**
+     * 是否删除
+     */
+    @Column(value = "isDelete", isLogicDelete = true)
+    private Integer isDelete;
+
+}
@@ -0,0 +1,47 @@
+package com.example.code.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+@Getter
+public enum GenerationJobStatusEnum {
+
+    QUEUED("排队中", "queued"),
+    RUNNING("生成中", "running"),
+    SUCCEEDED("已完成", "succeeded"),
+    FAILED("失败", "failed");
+
+    private final String text;
+
+    private final String value;
+
+    GenerationJobStatusEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 是否已结束（不会再变化）
+     */
+    public boolean isFinished() {
+        return this == SUCCEEDED || this == FAILED;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 枚举值的value
+     * @return 枚举值
+     */
+    public static GenerationJobStatusEnum getEnumByValue(String value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (GenerationJobStatusEnum anEnum : GenerationJobStatusEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.code.model.vo;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 生成任务返回对象
+ */
+@Data
+public class GenerationJobVO {
+
+    private Long id;
+
+    private Long appId;
+
+    private String codeGenType;
+
+    /**
+     * 状态：queued/running/succeeded/failed
+     */
+    private String status;
+
+    /**
+     * 排队位置（从 1 开始），不在排队时为 0
+     */
+    private Integer queuePosition;
+
+    /**
+     * 生成流 ID，订阅时作为 Last-Event-ID 的前缀
+     */
+    private String generationId;
+
+    /**
+     * 已输出的消息块数
+     */
+    private Long eventCount;
+
+    /**
+     * 已输出的字符数
+     */
+    private Long outputChars;
+
+    private String errorMessage;
+
+    private LocalDateTime startTime;
+
+    private LocalDateTime finishTime;
+
+    private LocalDateTime createTime;
+}
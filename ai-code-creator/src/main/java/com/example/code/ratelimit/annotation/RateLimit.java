@@ -35,4 +35,10 @@ public @interface RateLimit {
      * 限流提示信息
      */
     String message() default "请求过于频繁，请稍后再试";
+
+    /**
+     * 断线续传请求（带 Last-Event-ID 请求头或 lastEventId 参数）是否跳过限流
+     * 只能用于续传时不会发起新请求的接口
+     */
+    boolean skipOnResume() default false;
 }
@@ -1,5 +1,6 @@
 package com.example.code.ratelimit.aspect;
 
+import cn.hutool.core.util.StrUtil;
 import com.example.code.exception.BusinessException;
 import com.example.code.exception.ErrorCode;
 import com.example.code.model.entity.User;
@@ -36,6 +37,9 @@ public class RateLimitAspect {
 
     @Before("@annotation(rateLimit)")
     public void doBefore(JoinPoint point, RateLimit rateLimit) {
+        if (rateLimit.skipOnResume() && isResumeRequest()) {
+            return;
+        }
         String key = generateRateLimitKey(point, rateLimit);
         // 使用Redisson的分布式限流器
         RRateLimiter rateLimiter = redissonClient.getRateLimiter(key);
@@ -95,6 +99,16 @@ public class RateLimitAspect {
 
 
 
+    private boolean isResumeRequest() {
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return false;
+        }
+        HttpServletRequest request = attributes.getRequest();
+        return StrUtil.isNotBlank(request.getHeader("Last-Event-ID"))
+                || StrUtil.isNotBlank(request.getParameter("lastEventId"));
+    }
+
     private String getClientIP() {
         ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
         if (attributes == null) {
@@ -1,6 +1,7 @@
 package com.example.code.service;
 
 import com.mybatisflex.core.service.IService;
+import com.example.code.core.stream.GenerationEvent;
 import com.example.code.model.entity.App;
 import com.example.code.model.dto.app.*;
 import com.mybatisflex.core.paginate.Page;
@@ -64,11 +65,24 @@ public interface AppService extends IService<App> {
      */
     public Flux<String> chatToGenCode(Long appId, String message, User loginUser);
 
+    /**
+     * 聊天生成代码（带事件 ID，支持断线续传）
+     * @param lastEventId 客户端最后收到的事件 ID，为空时开始（或挂到进行中的）生成
+     */
+    public Flux<GenerationEvent> chatToGenCode(Long appId, String message, User loginUser, String lastEventId);
+
+    /**
+     * 发起一次新的生成（供后台生成任务使用）
+     * 与 chatToGenCode 不同，应用已有进行中的生成时直接报错，不挂到进行中的生成上
+     */
+    public Flux<GenerationEvent> startGenCode(Long appId, String message, User loginUser);
+
 
     /**
      *部署服务
+     * @param forceRebuild 是否强制重新构建（Vue 项目默认在代码未变化时跳过构建）
      */
-    public String deployApp(Long appId, User loginUser);
+    public String deployApp(Long appId, User loginUser, boolean forceRebuild);
 
 
     /**
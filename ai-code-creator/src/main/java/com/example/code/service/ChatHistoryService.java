@@ -6,7 +6,7 @@ import com.mybatisflex.core.paginate.Page;
 import com.mybatisflex.core.query.QueryWrapper;
 import com.mybatisflex.core.service.IService;
 import com.example.code.model.entity.ChatHistory;
-import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
 
 import java.time.LocalDateTime;
 
@@ -54,8 +54,10 @@ public interface ChatHistoryService extends IService<ChatHistory> {
 
     /**
      *将数据库的历史加入记忆内存
+     * 在内存中组装好记忆窗口后一次性写入存储；存储中已有等价内容时不写入
+     * @param chatMemoryStore 对话记忆存储（memoryId 为 appId）
      */
-    public int loadChatHistoryToMemory(Long appId, MessageWindowChatMemory chatMemory, int maxCount) ;
+    public int loadChatHistoryToMemory(Long appId, ChatMemoryStore chatMemoryStore, int maxCount) ;
 
 
 }
@@ -0,0 +1,45 @@
+package com.example.code.service;
+
+import com.example.code.core.stream.GenerationEvent;
+import com.example.code.model.entity.GenerationJob;
+import com.example.code.model.entity.User;
+import com.example.code.model.vo.GenerationJobVO;
+import com.mybatisflex.core.service.IService;
+import reactor.core.publisher.Flux;
+
+/**
+ * 生成任务 服务层。
+ * 生成以任务的形式在后台执行，不依赖客户端连接；客户端通过轮询查询状态和进度，或通过 SSE 订阅输出
+ */
+public interface GenerationJobService extends IService<GenerationJob> {
+
+    /**
+     * 提交生成任务，同一应用同一时间只能有一个未结束的任务
+     *
+     * @param appId     应用 ID
+     * @param message   用户消息
+     * @param loginUser 登录用户
+     * @return 任务 ID
+     */
+    Long submitJob(Long appId, String message, User loginUser);
+
+    /**
+     * 查询任务状态和进度（仅任务创建者）
+     *
+     * @param jobId     任务 ID
+     * @param loginUser 登录用户
+     * @return 任务状态
+     */
+    GenerationJobVO getJobVO(Long jobId, User loginUser);
+
+    /**
+     * 订阅任务的输出（仅任务创建者）
+     * 从头回放已经输出的内容，再接上进行中的生成；任务已结束时只回放日志
+     *
+     * @param jobId       任务 ID
+     * @param lastEventId 断线重连时客户端最后收到的事件 ID，可为空
+     * @param loginUser   登录用户
+     * @return 生成事件流
+     */
+    Flux<GenerationEvent> subscribe(Long jobId, String lastEventId, User loginUser);
+}
@@ -3,12 +3,20 @@ package com.example.code.service.impl;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.RandomUtil;
+import com.example.code.ai.memory.TieredChatMemoryStore;
 import com.example.code.ai.model.enums.CodeGenTypeEnum;
+import com.example.code.ai.model.message.StreamMessage;
 import com.example.code.constant.AppConstant;
 import com.example.code.core.AiCodeGeneratorFacade;
 import com.example.code.core.builder.VueProjectBuilder;
 import com.example.code.core.handler.StreamHandlerExecutor;
+import com.example.code.core.deploy.DeploySnapshotStore;
+import com.example.code.core.staticfile.StaticFileCache;
+import com.example.code.core.stream.GenerationEvent;
+import com.example.code.core.stream.GenerationStreamRegistry;
+import com.example.code.core.workspace.ProjectWorkspaceManager;
 import com.example.code.exception.ThrowUtils;
+import com.example.code.mapper.GenerationJobMapper;
 import com.example.code.model.enums.ChatHistoryMessageTypeEnum;
 import com.example.code.model.vo.UserVO;
 import com.example.code.service.ChatHistoryService;
@@ -19,6 +27,7 @@ import com.example.code.model.entity.App;
 import com.example.code.mapper.AppMapper;
 import com.example.code.service.AppService;
 import jakarta.annotation.Resource;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import com.example.code.model.dto.app.*;
 import com.example.code.model.entity.User;
@@ -68,6 +77,30 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App>  implements AppS
     @Resource
     VueProjectBuilder vueProjectBuilder;
 
+    @Resource
+    GenerationStreamRegistry generationStreamRegistry;
+
+    @Resource
+    DeploySnapshotStore deploySnapshotStore;
+
+    @Resource
+    StaticFileCache staticFileCache;
+
+    @Resource
+    TieredChatMemoryStore tieredChatMemoryStore;
+
+    @Resource
+    ProjectWorkspaceManager projectWorkspaceManager;
+
+    @Resource
+    GenerationJobMapper generationJobMapper;
+
+    /**
+     * 客户端全部断开后继续在后台生成到结束的生成类型（值为 CodeGenTypeEnum 的 value），其余类型断开即取消生成
+     */
+    @Value("${code-gen.stream.finish-in-background:vue_project}")
+    private Set<String> finishInBackgroundTypes;
+
 
 
 
@@ -192,6 +225,51 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App>  implements AppS
      */
     @Override
     public Flux<String> chatToGenCode(Long appId, String message, User loginUser) {
+        return chatToGenCode(appId, message, loginUser, null).map(GenerationEvent::getData);
+    }
+
+    /**
+     *聊天生成代码（带事件 ID，支持断线续传）
+     */
+    @Override
+    public Flux<GenerationEvent> chatToGenCode(Long appId, String message, User loginUser, String lastEventId) {
+        CodeGenTypeEnum codeGenTypeEnum = checkGenCodeRequest(appId, message, loginUser);
+        // 5. 断线重连：从上次收到的事件之后续传，不重新发起生成（续传请求不计入限流，不能退化为新的生成）
+        if (StrUtil.isNotBlank(lastEventId)) {
+            Flux<GenerationEvent> resumed = generationStreamRegistry.resume(appId, lastEventId);
+            ThrowUtils.throwIf(resumed == null, ErrorCode.PARAMS_ERROR, "续传事件 ID 无效");
+            return resumed;
+        }
+        // 6. 应用有未结束的后台生成任务时不发起交互式生成，任务的输出通过订阅任务获取
+        ThrowUtils.throwIf(generationJobMapper.countActiveByAppId(appId) > 0, ErrorCode.OPERATION_ERROR,
+                "该应用有进行中的生成任务，请等待任务结束");
+        // 同一应用同一时间只生成一次：已有相同消息的生成时直接挂到该流上（回放已输出的内容），不再重复调用模型；
+        // 正在生成其他消息时拒绝，避免新消息被静默丢弃
+        // 客户端全部断开时按生成类型决定取消（一直取消到模型请求和工具循环）还是在后台生成到结束
+        boolean finishInBackground = finishInBackgroundTypes.contains(codeGenTypeEnum.getValue());
+        Flux<GenerationEvent> events = generationStreamRegistry.getOrStart(appId, message,
+                () -> generate(appId, message, loginUser, codeGenTypeEnum), finishInBackground);
+        ThrowUtils.throwIf(events == null, ErrorCode.OPERATION_ERROR, "该应用正在生成中，请等待当前生成结束后再发送");
+        return events;
+    }
+
+    /**
+     *发起新的生成（后台生成任务）
+     */
+    @Override
+    public Flux<GenerationEvent> startGenCode(Long appId, String message, User loginUser) {
+        CodeGenTypeEnum codeGenTypeEnum = checkGenCodeRequest(appId, message, loginUser);
+        // 任务自己拉取到结束，不依赖客户端连接
+        Flux<GenerationEvent> events = generationStreamRegistry.start(appId, message,
+                () -> generate(appId, message, loginUser, codeGenTypeEnum), true);
+        ThrowUtils.throwIf(events == null, ErrorCode.OPERATION_ERROR, "该应用正在生成中，请稍后再试");
+        return events;
+    }
+
+    /**
+     * 校验生成请求并返回应用的代码生成类型
+     */
+    private CodeGenTypeEnum checkGenCodeRequest(Long appId, String message, User loginUser) {
         // 1. 参数校验
         ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 ID 不能为空");
         ThrowUtils.throwIf(StrUtil.isBlank(message), ErrorCode.PARAMS_ERROR, "用户消息不能为空");
@@ -208,13 +286,27 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App>  implements AppS
         if (codeGenTypeEnum == null) {
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "不支持的代码生成类型");
         }
-        // 5. 通过校验后，添加用户消息到对话历史
-        chatHistoryService.addChatMessage(appId, message, ChatHistoryMessageTypeEnum.USER.getValue(), loginUser.getId());
-// 6. 调用 AI 生成代码（流式）
-        Flux<String> codeStream = aiCodeGeneratorFacade.generateAndSaveCodeStream(message, codeGenTypeEnum, appId);
-// 7. 收集 AI 响应内容并在完成后记录到对话历史
-        return streamHandlerExecutor.doExecute(codeStream, chatHistoryService, appId, loginUser, codeGenTypeEnum);
+        return codeGenTypeEnum;
+    }
 
+    /**
+     * 一次生成：记录用户消息，调用 AI 生成代码，结束后写回对话记忆和工作区
+     */
+    private Flux<String> generate(Long appId, String message, User loginUser, CodeGenTypeEnum codeGenTypeEnum) {
+        // 7. 通过校验后，添加用户消息到对话历史
+        chatHistoryService.addChatMessage(appId, message, ChatHistoryMessageTypeEnum.USER.getValue(), loginUser.getId());
+        // 8. 调用 AI 生成代码（流式）
+        Flux<StreamMessage> codeStream = aiCodeGeneratorFacade.generateAndSaveCodeStream(message, codeGenTypeEnum, appId);
+        // 9. 收集 AI 响应内容并在完成后记录到对话历史
+        return streamHandlerExecutor.doExecute(codeStream, chatHistoryService, appId, loginUser, codeGenTypeEnum)
+                .doFinally(signal -> {
+                    // 10. 一轮对话结束，对话记忆写回 Redis
+                    tieredChatMemoryStore.flush(appId);
+                    // 11. 工具在工作区中的修改写回磁盘（生成中途失败或取消时也要落盘）
+                    projectWorkspaceManager.flush(appId);
+                    // 12. 预览目录的文件已更新，清除静态文件缓存
+                    staticFileCache.invalidate(codeGenTypeEnum.getValue() + "_" + appId);
+                });
     }
 
 
@@ -242,6 +334,14 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App>  implements AppS
             // 记录日志但不阻止应用删除
            // log.error("删除应用关联对话历史失败: {}", e.getMessage());
         }
+        // 下线已部署的站点，快照由快照存储延迟回收
+        App app = this.getById(appId);
+        if (app != null && StrUtil.isNotBlank(app.getDeployKey())) {
+            deploySnapshotStore.unpublish(app.getDeployKey());
+            staticFileCache.invalidate(app.getDeployKey());
+        }
+        // 丢弃应用的项目工作区
+        projectWorkspaceManager.discard(appId);
         // 删除应用
         return super.removeById(id);
     }
@@ -255,7 +355,7 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App>  implements AppS
      *部署服务
      */
     @Override
-    public String deployApp(Long appId, User loginUser) {
+    public String deployApp(Long appId, User loginUser, boolean forceRebuild) {
         // 1. 参数校验
         ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 ID 不能为空");
         ThrowUtils.throwIf(loginUser == null, ErrorCode.NOT_LOGIN_ERROR, "用户未登录");
@@ -266,10 +366,12 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App>  implements AppS
         if (!app.getUserId().equals(loginUser.getId())) {
             throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "无权限部署该应用");
         }
-        // 4. 保存旧的部署信息（用于后续清理）
-        String oldDeployKey = app.getDeployKey();
-        // 5. 生成新的 deployKey（6 位大小写字母 + 数字）
-        String deployKey = RandomUtil.randomString(6);
+        // 4. 沿用已有的 deployKey，重新部署时原地切换到新版本，访问地址不变
+        String deployKey = app.getDeployKey();
+        // 5. 首次部署时生成 deployKey（6 位大小写字母 + 数字）
+        if (StrUtil.isBlank(deployKey)) {
+            deployKey = RandomUtil.randomString(6);
+        }
         // 6. 获取代码生成类型，构建源目录路径
         String codeGenType = app.getCodeGenType();
         String sourceDirName = codeGenType + "_" + appId;
@@ -282,8 +384,11 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App>  implements AppS
         // 8. Vue 项目特殊处理：执行构建
         CodeGenTypeEnum codeGenTypeEnum = CodeGenTypeEnum.getEnumByValue(codeGenType);
         if (codeGenTypeEnum == CodeGenTypeEnum.VUE_PROJECT) {
-            // Vue 项目需要构建
-            boolean buildSuccess = vueProjectBuilder.buildProject(sourceDirPath);
+            // Vue 项目需要构建，先把工作区中尚未写回的修改落盘
+            projectWorkspaceManager.flush(appId);
+            boolean buildSuccess = vueProjectBuilder.buildProject(sourceDirPath, loginUser.getId(), forceRebuild);
+            // 预览地址下的 dist 可能已经重新生成
+            staticFileCache.invalidate(sourceDirName);
             ThrowUtils.throwIf(!buildSuccess, ErrorCode.SYSTEM_ERROR, "Vue 项目构建失败，请检查代码和依赖");
             // 检查 dist 目录是否存在
             File distDir = new File(sourceDirPath, "dist");
@@ -293,37 +398,18 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App>  implements AppS
            // log.info("Vue 项目构建成功，将部署 dist 目录: {}", distDir.getAbsolutePath());
         }
 
-        // 9. 复制文件到部署目录
-        String deployDirPath = AppConstant.CODE_DEPLOY_ROOT_DIR + File.separator + deployKey;
-        try {
-            FileUtil.copyContent(sourceDir, new File(deployDirPath), true);
-        } catch (Exception e) {
-            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "部署失败：" + e.getMessage());
-        }
-        // 10. 更新应用的 deployKey 和部署时间（先更新数据库，确保新部署成功）
+        // 9. 发布为不可变快照并原子切换部署目录，只写入内容有变化的文件，访问者不会看到写了一半的目录
+        deploySnapshotStore.publish(sourceDir, deployKey);
+        staticFileCache.invalidate(deployKey);
+        // 10. 更新应用的 deployKey 和部署时间
         App updateApp = new App();
         updateApp.setId(appId);
         updateApp.setDeployKey(deployKey);
         updateApp.setDeployedTime(LocalDateTime.now());
         boolean updateResult = this.updateById(updateApp);
         ThrowUtils.throwIf(!updateResult, ErrorCode.OPERATION_ERROR, "更新应用部署信息失败");
-        
-        // 11. 新部署成功后，清理旧的部署（删除旧文件和清空旧数据）
-        if (StrUtil.isNotBlank(oldDeployKey)) {
-            // 11.1 删除旧的部署目录
-            String oldDeployDirPath = AppConstant.CODE_DEPLOY_ROOT_DIR + File.separator + oldDeployKey;
-            File oldDeployDir = new File(oldDeployDirPath);
-            if (oldDeployDir.exists() && oldDeployDir.isDirectory()) {
-                try {
-                    FileUtil.del(oldDeployDir);
-                } catch (Exception e) {
-                    // 记录日志但不阻止部署流程（新部署已成功）
-                    // log.warn("删除旧部署目录失败: {}", oldDeployDirPath, e);
-                }
-            }
-            // 注意：不需要再清空数据库，因为已经在步骤10中更新为新值
-        }
-        
+        // 11. 旧版本快照由快照存储延迟回收，这里不需要删除
+
         // 12. 构建应用访问 URL（用于返回给前端）
         String appDeployUrl = String.format("%s/%s/", AppConstant.CODE_DEPLOY_HOST, deployKey);
         
@@ -19,14 +19,19 @@ import com.example.code.mapper.ChatHistoryMapper;
 import com.example.code.service.ChatHistoryService;
 import com.example.code.utils.ChatHistoryFilterUtils;
 import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
 import dev.langchain4j.data.message.UserMessage;
-import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.Resource;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 对话历史 服务层实现。
@@ -47,6 +52,9 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
     @Lazy
     AppService appService;
 
+    @Resource
+    MeterRegistry meterRegistry;
+
     /**
      *添加对话历史
      */
@@ -160,7 +168,9 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
      *将数据库的历史加入记忆内存
      */
     @Override
-    public int loadChatHistoryToMemory(Long appId, MessageWindowChatMemory chatMemory, int maxCount) {
+    public int loadChatHistoryToMemory(Long appId, ChatMemoryStore chatMemoryStore, int maxCount) {
+        long startTime = System.nanoTime();
+        String result = "error";
         try {
             // 直接构造查询条件，起始点为 1 而不是 0，用于排除最新的用户消息
             QueryWrapper queryWrapper = QueryWrapper.create()
@@ -169,34 +179,45 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
                     .limit(1, maxCount);
             List<ChatHistory> historyList = this.list(queryWrapper);
             if (CollUtil.isEmpty(historyList)) {
+                result = "empty";
                 return 0;
             }
             // 反转列表，确保按时间正序（老的在前，新的在后）
             historyList = historyList.reversed();
-            // 按时间顺序添加到记忆中
-            int loadedCount = 0;
-            // 先清理历史缓存，防止重复加载
-            chatMemory.clear();
+            // 按时间顺序在内存中组装记忆窗口
+            List<ChatMessage> messages = new ArrayList<>(historyList.size());
             for (ChatHistory history : historyList) {
                 if (ChatHistoryMessageTypeEnum.USER.getValue().equals(history.getMessageType())) {
-                    chatMemory.add(UserMessage.from(history.getMessage()));
-                    loadedCount++;
+                    messages.add(UserMessage.from(history.getMessage()));
                 } else if (ChatHistoryMessageTypeEnum.AI.getValue().equals(history.getMessageType())) {
                     // 过滤AI消息中的工具调用文本，只保留纯文本回复
                     String filteredMessage = ChatHistoryFilterUtils.filterToolCallText(history.getMessage());
                     // 如果过滤后的消息不为空，才添加到记忆中
                     if (StrUtil.isNotBlank(filteredMessage)) {
-                        chatMemory.add(AiMessage.from(filteredMessage));
-                        loadedCount++;
+                        messages.add(AiMessage.from(filteredMessage));
                     }
                 }
             }
-          //  log.info("成功为 appId: {} 加载了 {} 条历史对话", appId, loadedCount);
-            return loadedCount;
+            // 存储中已经是相同的对话（系统消息由 AI 服务自行维护，不参与比较）时不再写入
+            List<ChatMessage> storedMessages = chatMemoryStore.getMessages(appId).stream()
+                    .filter(message -> !(message instanceof SystemMessage))
+                    .toList();
+            if (storedMessages.equals(messages)) {
+                result = "skipped";
+            } else {
+                // 一次性覆盖写入，代替先清空再逐条追加
+                chatMemoryStore.updateMessages(appId, messages);
+                result = "written";
+            }
+          //  log.info("成功为 appId: {} 加载了 {} 条历史对话", appId, messages.size());
+            return messages.size();
         } catch (Exception e) {
          //   log.error("加载历史对话失败，appId: {}, error: {}", appId, e.getMessage(), e);
             // 加载失败不影响系统运行，只是没有历史上下文
             return 0;
+        } finally {
+            meterRegistry.timer("code_gen.chat_memory.hydration", "result", result)
+                    .record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
         }
     }
 
@@ -0,0 +1,321 @@
+package com.example.code.service.impl;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.example.code.core.job.GenerationJobExecutor;
+import com.example.code.core.stream.GenerationEvent;
+import com.example.code.core.stream.GenerationStreamRegistry;
+import com.example.code.exception.BusinessException;
+import com.example.code.exception.ErrorCode;
+import com.example.code.exception.ThrowUtils;
+import com.example.code.mapper.GenerationJobMapper;
+import com.example.code.model.entity.App;
+import com.example.code.model.entity.GenerationJob;
+import com.example.code.model.entity.User;
+import com.example.code.model.enums.GenerationJobStatusEnum;
+import com.example.code.model.vo.GenerationJobVO;
+import com.example.code.service.AppService;
+import com.example.code.service.GenerationJobService;
+import com.example.code.service.UserService;
+import com.mybatisflex.core.query.QueryWrapper;
+import com.mybatisflex.spring.service.impl.ServiceImpl;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 生成任务 服务层实现。
+ * 任务由 {@link GenerationJobExecutor} 在本节点执行：任务自己订阅生成流直到结束，
+ * 生成流仍走 {@link GenerationStreamRegistry}，客户端订阅时从回放日志补齐并接上进行中的流。
+ * 多个节点共用任务表：每个任务记录执行它的服务实例，实例定期为自己的未结束任务续约，
+ * 租约过期（实例已退出）的任务由任一节点标记为失败；状态只从未结束变为结束，结束后不再被覆盖
+ */
+@Slf4j
+@Service
+public class GenerationJobServiceImpl extends ServiceImpl<GenerationJobMapper, GenerationJob> implements GenerationJobService {
+
+    private static final int MAX_ERROR_MESSAGE_LENGTH = 1000;
+
+    private static final String SUBMIT_LOCK_PREFIX = "code_gen:job:submit:";
+
+    private static final List<String> ACTIVE_STATUSES = List.of(
+            GenerationJobStatusEnum.QUEUED.getValue(), GenerationJobStatusEnum.RUNNING.getValue());
+
+    /**
+     * 本服务实例的标识，每次启动不同，重启前的任务由租约过期回收
+     */
+    private final String instanceId = IdUtil.fastSimpleUUID();
+
+    private final ScheduledExecutorService heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofVirtual().name("generation-job-heartbeat").factory());
+
+    @Resource
+    AppService appService;
+
+    @Resource
+    UserService userService;
+
+    @Resource
+    GenerationJobExecutor generationJobExecutor;
+
+    @Resource
+    GenerationStreamRegistry generationStreamRegistry;
+
+    @Resource
+    RedissonClient redissonClient;
+
+    /**
+     * 进度最多多久写一次数据库（毫秒）
+     */
+    @Value("${code-gen.job.progress-interval-millis:2000}")
+    private long progressIntervalMillis;
+
+    /**
+     * 任务续约间隔（秒）
+     */
+    @Value("${code-gen.job.heartbeat-interval-seconds:15}")
+    private long heartbeatIntervalSeconds;
+
+    /**
+     * 任务租约时长（秒），超过该时长未续约的未结束任务视为执行实例已退出
+     */
+    @Value("${code-gen.job.lease-seconds:60}")
+    private long leaseSeconds;
+
+    @Override
+    public Long submitJob(Long appId, String message, User loginUser) {
+        // 1. 参数校验
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 ID 不能为空");
+        ThrowUtils.throwIf(StrUtil.isBlank(message), ErrorCode.PARAMS_ERROR, "用户消息不能为空");
+        // 2. 仅应用创建者可以提交
+        App app = appService.getById(appId);
+        ThrowUtils.throwIf(app == null, ErrorCode.NOT_FOUND_ERROR, "应用不存在");
+        if (!app.getUserId().equals(loginUser.getId())) {
+            throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "无权限访问该应用");
+        }
+        // 3. 应用正在交互式生成时不提交任务，否则任务开始时会与之冲突
+        ThrowUtils.throwIf(generationStreamRegistry.getInFlight(appId) != null, ErrorCode.OPERATION_ERROR,
+                "该应用正在生成中，请稍后再提交");
+        // 4. 同一应用同一时间只有一个未结束的任务，检查和保存在应用级分布式锁内完成，避免并发提交同时通过检查
+        GenerationJob job = GenerationJob.builder()
+                .appId(appId)
+                .userId(loginUser.getId())
+                .message(message)
+                .codeGenType(app.getCodeGenType())
+                .status(GenerationJobStatusEnum.QUEUED.getValue())
+                .ownerNode(instanceId)
+                .heartbeatTime(LocalDateTime.now())
+                .eventCount(0L)
+                .outputChars(0L)
+                .build();
+        RLock lock = redissonClient.getLock(SUBMIT_LOCK_PREFIX + appId);
+        lock.lock();
+        try {
+            ThrowUtils.throwIf(getMapper().countActiveByAppId(appId) > 0, ErrorCode.OPERATION_ERROR, "该应用已有进行中的生成任务");
+            ThrowUtils.throwIf(!this.save(job), ErrorCode.OPERATION_ERROR, "数据库操作失败");
+        } finally {
+            lock.unlock();
+        }
+        // 5. 提交执行
+        Long jobId = job.getId();
+        try {
+            generationJobExecutor.submit(jobId, () -> runJob(jobId));
+        } catch (BusinessException e) {
+            finish(jobId, GenerationJobStatusEnum.FAILED, null, e.getMessage());
+            throw e;
+        }
+        log.info("提交生成任务，jobId: {}, appId: {}", jobId, appId);
+        return jobId;
+    }
+
+    @Override
+    public GenerationJobVO getJobVO(Long jobId, User loginUser) {
+        GenerationJob job = getOwnJob(jobId, loginUser);
+        GenerationJobVO jobVO = BeanUtil.copyProperties(job, GenerationJobVO.class);
+        jobVO.setQueuePosition(generationJobExecutor.getQueuePosition(jobId));
+        return jobVO;
+    }
+
+    @Override
+    public Flux<GenerationEvent> subscribe(Long jobId, String lastEventId, User loginUser) {
+        GenerationJob job = getOwnJob(jobId, loginUser);
+        Long appId = job.getAppId();
+        // 断线重连：从上次收到的事件之后续传
+        if (StrUtil.isNotBlank(lastEventId)) {
+            Flux<GenerationEvent> resumed = generationStreamRegistry.resume(appId, lastEventId);
+            if (resumed != null) {
+                return resumed;
+            }
+        }
+        // 已知生成 ID 时从头回放：进行中的生成先读日志再接上，已结束的生成只读日志
+        if (StrUtil.isNotBlank(job.getGenerationId())) {
+            return generationStreamRegistry.resume(appId, job.getGenerationId() + GenerationEvent.ID_SEPARATOR + 0);
+        }
+        GenerationJobStatusEnum status = GenerationJobStatusEnum.getEnumByValue(job.getStatus());
+        if (status == GenerationJobStatusEnum.RUNNING) {
+            Flux<GenerationEvent> inFlight = generationStreamRegistry.getInFlight(appId);
+            if (inFlight != null) {
+                return inFlight;
+            }
+        }
+        if (status == GenerationJobStatusEnum.FAILED) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, StrUtil.blankToDefault(job.getErrorMessage(), "生成失败"));
+        }
+        throw new BusinessException(ErrorCode.OPERATION_ERROR, "任务尚未开始，请稍后订阅");
+    }
+
+    @PostConstruct
+    public void init() {
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, heartbeatIntervalSeconds, heartbeatIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatExecutor.shutdownNow();
+    }
+
+    /**
+     * 为本实例的未结束任务续约，并将租约过期的任务（执行实例已退出或重启）标记为失败
+     */
+    void heartbeat() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            this.update(GenerationJob.builder().heartbeatTime(now).build(), QueryWrapper.create()
+                    .eq("ownerNode", instanceId)
+                    .in("status", ACTIVE_STATUSES));
+            GenerationJob update = GenerationJob.builder()
+                    .status(GenerationJobStatusEnum.FAILED.getValue())
+                    .errorMessage("执行任务的服务实例已退出，任务中断")
+                    .finishTime(now)
+                    .build();
+            boolean updated = this.update(update, QueryWrapper.create()
+                    .in("status", ACTIVE_STATUSES)
+                    .lt("heartbeatTime", now.minusSeconds(leaseSeconds)));
+            if (updated) {
+                log.warn("已将租约过期的生成任务标记为失败");
+            }
+        } catch (Exception e) {
+            log.error("生成任务续约失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 执行任务：发起新的生成并订阅到结束，期间按间隔写入进度
+     * 应用正在交互式生成时（提交后才开始的）不挂到该生成上，任务直接失败，保证任务的消息一定被发送
+     * 在执行器的虚拟线程上运行，事件通过有界队列交给本线程处理，数据库写入不占用模型回调线程
+     */
+    private void runJob(Long jobId) {
+        GenerationJob job = this.getById(jobId);
+        if (job == null) {
+            return;
+        }
+        // 排队期间租约已过期（被判定为中断）的任务不再执行
+        boolean started = this.update(GenerationJob.builder()
+                .status(GenerationJobStatusEnum.RUNNING.getValue())
+                .startTime(LocalDateTime.now())
+                .build(), QueryWrapper.create()
+                .eq("id", jobId)
+                .eq("status", GenerationJobStatusEnum.QUEUED.getValue()));
+        if (!started) {
+            log.warn("生成任务已不在排队状态，跳过执行，jobId: {}", jobId);
+            return;
+        }
+        JobProgress progress = new JobProgress(jobId);
+        try {
+            User user = userService.getById(job.getUserId());
+            ThrowUtils.throwIf(user == null, ErrorCode.NOT_FOUND_ERROR, "用户不存在");
+            for (GenerationEvent event : appService.startGenCode(job.getAppId(), job.getMessage(), user).toIterable()) {
+                progress.onEvent(event);
+            }
+            finish(jobId, GenerationJobStatusEnum.SUCCEEDED, progress, null);
+            log.info("生成任务完成，jobId: {}, 消息块数: {}", jobId, progress.eventCount);
+        } catch (Exception e) {
+            log.error("生成任务失败，jobId: {}, 错误: {}", jobId, e.getMessage(), e);
+            finish(jobId, GenerationJobStatusEnum.FAILED, progress, StrUtil.blankToDefault(e.getMessage(), "生成失败"));
+        }
+    }
+
+    /**
+     * 结束任务，只更新仍未结束的任务，已被判定为中断的任务保持失败状态
+     */
+    private void finish(Long jobId, GenerationJobStatusEnum status, JobProgress progress, String errorMessage) {
+        GenerationJob update = progress == null ? new GenerationJob() : progress.toUpdate();
+        update.setStatus(status.getValue());
+        update.setErrorMessage(StrUtil.maxLength(errorMessage, MAX_ERROR_MESSAGE_LENGTH));
+        update.setFinishTime(LocalDateTime.now());
+        if (!updateActive(jobId, update)) {
+            log.warn("生成任务已结束，忽略状态 {}，jobId: {}", status.getValue(), jobId);
+        }
+    }
+
+    private boolean updateActive(Long jobId, GenerationJob update) {
+        return this.update(update, QueryWrapper.create()
+                .eq("id", jobId)
+                .in("status", ACTIVE_STATUSES));
+    }
+
+    private GenerationJob getOwnJob(Long jobId, User loginUser) {
+        ThrowUtils.throwIf(jobId == null || jobId <= 0, ErrorCode.PARAMS_ERROR, "任务 ID 不能为空");
+        GenerationJob job = this.getById(jobId);
+        ThrowUtils.throwIf(job == null, ErrorCode.NOT_FOUND_ERROR, "任务不存在");
+        if (!job.getUserId().equals(loginUser.getId())) {
+            throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "无权限访问该任务");
+        }
+        return job;
+    }
+
+    /**
+     * 单个任务的进度，只在任务线程上访问
+     */
+    private class JobProgress {
+
+        private final Long jobId;
+
+        private String generationId;
+
+        private long eventCount;
+
+        private long outputChars;
+
+        private long lastSavedMillis;
+
+        private JobProgress(Long jobId) {
+            this.jobId = jobId;
+        }
+
+        void onEvent(GenerationEvent event) {
+            // 慢消费时多个事件会合并为一个，消息块数以序号为准
+            eventCount = event.getSeq();
+            outputChars += event.getData() == null ? 0 : event.getData().length();
+            boolean firstEvent = generationId == null;
+            generationId = event.getGenerationId();
+            long now = System.currentTimeMillis();
+            // 拿到生成 ID 后立即写入，客户端才能订阅
+            if (firstEvent || now - lastSavedMillis >= progressIntervalMillis) {
+                lastSavedMillis = now;
+                updateActive(jobId, toUpdate());
+            }
+        }
+
+        GenerationJob toUpdate() {
+            return GenerationJob.builder()
+                    .generationId(generationId)
+                    .eventCount(eventCount)
+                    .outputChars(outputChars)
+                    .build();
+        }
+    }
+}
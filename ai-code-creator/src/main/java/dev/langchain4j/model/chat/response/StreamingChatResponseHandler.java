@@ -58,4 +58,15 @@ public interface StreamingChatResponseHandler {
      * @param error The error that occurred
      */
     void onError(Throwable error);
+
+    /**
+     * Returns whether the consumer is no longer interested in the response.
+     * Once this returns {@code true}, the {@link StreamingChatModel} may stop reading the response
+     * and no further callbacks are expected, except possibly {@link #onError} caused by the abort.
+     *
+     * @return {@code true} if the response should be abandoned
+     */
+    default boolean isCancelled() {
+        return false;
+    }
 }
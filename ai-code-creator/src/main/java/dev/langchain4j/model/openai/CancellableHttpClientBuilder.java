@@ -0,0 +1,129 @@
+package dev.langchain4j.model.openai;
+
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpClientBuilder;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+import dev.langchain4j.http.client.sse.ServerSentEventParser;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Wraps an {@link HttpClientBuilder} so that streaming requests can be aborted.
+ * <p>
+ * {@code ResponseHandle.cancel()} of the OpenAI client is not implemented, and exceptions thrown by
+ * the event listener are swallowed by the event parser, so the only way to stop reading a response is
+ * from below the parser: the body stream fails its next read once the request is cancelled, the parser
+ * reports the failure to the listener and closes the stream, releasing the connection.
+ * <p>
+ * The cancellation of a request is taken from the thread that executes it, see {@link #execute}.
+ */
+class CancellableHttpClientBuilder implements HttpClientBuilder {
+
+    private static final ThreadLocal<BooleanSupplier> CANCELLATION = new ThreadLocal<>();
+
+    private final HttpClientBuilder delegate;
+
+    CancellableHttpClientBuilder(HttpClientBuilder delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Runs the request so that the streaming calls it makes stop reading once the cancellation returns {@code true}.
+     */
+    static void execute(BooleanSupplier cancellation, Runnable request) {
+        CANCELLATION.set(cancellation);
+        try {
+            request.run();
+        } finally {
+            CANCELLATION.remove();
+        }
+    }
+
+    @Override
+    public Duration connectTimeout() {
+        return delegate.connectTimeout();
+    }
+
+    @Override
+    public HttpClientBuilder connectTimeout(Duration timeout) {
+        delegate.connectTimeout(timeout);
+        return this;
+    }
+
+    @Override
+    public Duration readTimeout() {
+        return delegate.readTimeout();
+    }
+
+    @Override
+    public HttpClientBuilder readTimeout(Duration timeout) {
+        delegate.readTimeout(timeout);
+        return this;
+    }
+
+    @Override
+    public HttpClient build() {
+        return new CancellableHttpClient(delegate.build());
+    }
+
+    private static class CancellableHttpClient implements HttpClient {
+
+        private final HttpClient delegate;
+
+        private CancellableHttpClient(HttpClient delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public SuccessfulHttpResponse execute(HttpRequest request) {
+            return delegate.execute(request);
+        }
+
+        @Override
+        public void execute(HttpRequest request, ServerSentEventParser parser, ServerSentEventListener listener) {
+            BooleanSupplier cancellation = CANCELLATION.get();
+            if (cancellation == null) {
+                delegate.execute(request, parser, listener);
+                return;
+            }
+            // the parser may run on another thread, the cancellation is captured here
+            delegate.execute(request,
+                    (inputStream, eventListener) -> parser.parse(new CancellableInputStream(inputStream, cancellation), eventListener),
+                    listener);
+        }
+    }
+
+    private static class CancellableInputStream extends FilterInputStream {
+
+        private final BooleanSupplier cancellation;
+
+        private CancellableInputStream(InputStream in, BooleanSupplier cancellation) {
+            super(in);
+            this.cancellation = cancellation;
+        }
+
+        @Override
+        public int read() throws IOException {
+            ensureNotCancelled();
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            ensureNotCancelled();
+            return super.read(b, off, len);
+        }
+
+        private void ensureNotCancelled() throws IOException {
+            if (cancellation.getAsBoolean()) {
+                throw new IOException("Streaming response cancelled");
+            }
+        }
+    }
+}
@@ -20,10 +20,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static dev.langchain4j.internal.Utils.copy;
 import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
@@ -57,6 +64,8 @@ class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler
     private final Map<String, ToolExecutor> toolExecutors;
     private final List<String> responseBuffer = new ArrayList<>();
     private final boolean hasOutputGuardrails;
+    private final Function<ToolExecutionRequest, String> toolResourceKeyExtractor;
+    private final BooleanSupplier cancellation;
 
     AiServiceStreamingResponseHandler(
             ChatExecutor chatExecutor,
@@ -73,7 +82,9 @@ class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler
             List<ToolSpecification> toolSpecifications,
             Map<String, ToolExecutor> toolExecutors,
             GuardrailRequestParams commonGuardrailParams,
-            Object methodKey) {
+            Object methodKey,
+            Function<ToolExecutionRequest, String> toolResourceKeyExtractor,
+            BooleanSupplier cancellation) {
         this.chatExecutor = ensureNotNull(chatExecutor, "chatExecutor");
         this.context = ensureNotNull(context, "context");
         this.memoryId = ensureNotNull(memoryId, "memoryId");
@@ -93,10 +104,20 @@ class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler
         this.toolSpecifications = copy(toolSpecifications);
         this.toolExecutors = copy(toolExecutors);
         this.hasOutputGuardrails = context.guardrailService().hasOutputGuardrails(methodKey);
+        this.toolResourceKeyExtractor = toolResourceKeyExtractor;
+        this.cancellation = cancellation;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancellation != null && cancellation.getAsBoolean();
     }
 
     @Override
     public void onPartialResponse(String partialResponse) {
+        if (isCancelled()) {
+            return;
+        }
         // If we're using output guardrails, then buffer the partial response until the guardrails have completed
         if (hasOutputGuardrails) {
             responseBuffer.add(partialResponse);
@@ -107,6 +128,9 @@ class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler
 
     @Override
     public void onPartialToolExecutionRequest(int index, ToolExecutionRequest partialToolExecutionRequest) {
+        if (isCancelled()) {
+            return;
+        }
         // If we're using output guardrails, then buffer the partial response until the guardrails have completed
         partialToolExecutionRequestHandler.accept(index, partialToolExecutionRequest);
     }
@@ -114,23 +138,25 @@ class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler
     @Override
     public void onCompleteResponse(ChatResponse completeResponse) {
         AiMessage aiMessage = completeResponse.aiMessage();
+        if (isCancelled()) {
+            // Tool requests without results would make the memory unusable for the next request,
+            // so they are dropped together with the rest of the tool loop
+            if (!aiMessage.hasToolExecutionRequests()) {
+                addToMemory(aiMessage);
+            }
+            LOG.debug("Streaming cancelled, skipping {} tool execution request(s)",
+                    aiMessage.hasToolExecutionRequests() ? aiMessage.toolExecutionRequests().size() : 0);
+            return;
+        }
         addToMemory(aiMessage);
 
         if (aiMessage.hasToolExecutionRequests()) {
-            for (ToolExecutionRequest toolExecutionRequest : aiMessage.toolExecutionRequests()) {
-                String toolName = toolExecutionRequest.name();
-                ToolExecutor toolExecutor = toolExecutors.get(toolName);
-                String toolExecutionResult = toolExecutor.execute(toolExecutionRequest, memoryId);
-                ToolExecutionResultMessage toolExecutionResultMessage =
-                        ToolExecutionResultMessage.from(toolExecutionRequest, toolExecutionResult);
-                addToMemory(toolExecutionResultMessage);
-
-                if (toolExecutionHandler != null) {
-                    ToolExecution toolExecution = ToolExecution.builder()
-                            .request(toolExecutionRequest)
-                            .result(toolExecutionResult)
-                            .build();
-                    toolExecutionHandler.accept(toolExecution);
+            List<ToolExecutionRequest> toolExecutionRequests = aiMessage.toolExecutionRequests();
+            if (toolResourceKeyExtractor != null && toolExecutionRequests.size() > 1) {
+                executeToolsConcurrently(toolExecutionRequests);
+            } else {
+                for (ToolExecutionRequest toolExecutionRequest : toolExecutionRequests) {
+                    onToolExecuted(toolExecutionRequest, executeTool(toolExecutionRequest));
                 }
             }
 
@@ -154,8 +180,14 @@ class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler
                     toolSpecifications,
                     toolExecutors,
                     commonGuardrailParams,
-                    methodKey);
+                    methodKey,
+                    toolResourceKeyExtractor,
+                    cancellation);
 
+            if (isCancelled()) {
+                LOG.debug("Streaming cancelled during tool execution, not sending tool results to the model");
+                return;
+            }
             context.streamingChatModel.chat(chatRequest, handler);
         } else {
             if (completeResponseHandler != null) {
@@ -199,6 +231,144 @@ class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler
         }
     }
 
+    private String executeTool(ToolExecutionRequest toolExecutionRequest) {
+        ToolExecutor toolExecutor = toolExecutors.get(toolExecutionRequest.name());
+        return toolExecutor.execute(toolExecutionRequest, memoryId);
+    }
+
+    private void onToolExecuted(ToolExecutionRequest toolExecutionRequest, String toolExecutionResult) {
+        addToMemory(ToolExecutionResultMessage.from(toolExecutionRequest, toolExecutionResult));
+        notifyToolExecuted(toolExecutionRequest, toolExecutionResult);
+    }
+
+    private void notifyToolExecuted(ToolExecutionRequest toolExecutionRequest, String toolExecutionResult) {
+        if (toolExecutionHandler != null) {
+            ToolExecution toolExecution = ToolExecution.builder()
+                    .request(toolExecutionRequest)
+                    .result(toolExecutionResult)
+                    .build();
+            toolExecutionHandler.accept(toolExecution);
+        }
+    }
+
+    /**
+     * Executes the tool requests of one model response concurrently on virtual threads.
+     * Requests touching the same resource run one after another in their original order; requests without
+     * a resource key act as barriers and run alone after everything before them has finished.
+     * Results are added to memory and reported to the tool execution handler in request order, each one as
+     * soon as it and every result before it have finished.
+     */
+    private void executeToolsConcurrently(List<ToolExecutionRequest> toolExecutionRequests) {
+        int batchStart = 0;
+        for (int i = 0; i <= toolExecutionRequests.size(); i++) {
+            String resourceKey = i < toolExecutionRequests.size()
+                    ? toolResourceKeyExtractor.apply(toolExecutionRequests.get(i))
+                    : null;
+            if (resourceKey != null) {
+                continue;
+            }
+            executeBatchConcurrently(toolExecutionRequests.subList(batchStart, i));
+            if (i < toolExecutionRequests.size()) {
+                ToolExecutionRequest barrier = toolExecutionRequests.get(i);
+                onToolExecuted(barrier, executeTool(barrier));
+            }
+            batchStart = i + 1;
+        }
+    }
+
+    private void executeBatchConcurrently(List<ToolExecutionRequest> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<String, List<Integer>> indexesByResource = new LinkedHashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            indexesByResource
+                    .computeIfAbsent(toolResourceKeyExtractor.apply(batch.get(i)), key -> new ArrayList<>())
+                    .add(i);
+        }
+        if (indexesByResource.size() == 1) {
+            for (ToolExecutionRequest request : batch) {
+                onToolExecuted(request, executeTool(request));
+            }
+            return;
+        }
+        OrderedToolResults results = new OrderedToolResults(batch);
+        RuntimeException failure = null;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>(indexesByResource.size());
+            for (List<Integer> indexes : indexesByResource.values()) {
+                futures.add(executor.submit(() -> {
+                    for (int index : indexes) {
+                        results.complete(index, executeTool(batch.get(index)));
+                    }
+                }));
+            }
+            // wait for every worker, so that the results of all finished tools are known even if one of them failed
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof RuntimeException runtimeException
+                                ? runtimeException
+                                : new RuntimeException(e.getCause());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = new RuntimeException(e);
+        }
+        if (failure != null) {
+            // the tool calls of the AI message must not be left without the results that do exist
+            results.completeRemaining();
+            throw failure;
+        }
+    }
+
+    /**
+     * Results of a concurrently executed batch, handed to memory and the tool execution handler in request order.
+     */
+    private class OrderedToolResults {
+
+        private final List<ToolExecutionRequest> batch;
+
+        private final String[] results;
+
+        private final boolean[] finished;
+
+        private int cursor;
+
+        private OrderedToolResults(List<ToolExecutionRequest> batch) {
+            this.batch = batch;
+            this.results = new String[batch.size()];
+            this.finished = new boolean[batch.size()];
+        }
+
+        /**
+         * Records a finished tool and emits every result that is now next in request order.
+         */
+        private synchronized void complete(int index, String result) {
+            results[index] = result;
+            finished[index] = true;
+            while (cursor < batch.size() && finished[cursor]) {
+                onToolExecuted(batch.get(cursor), results[cursor]);
+                cursor++;
+            }
+        }
+
+        /**
+         * Emits the finished results left behind a failed tool, still in request order.
+         */
+        private synchronized void completeRemaining() {
+            for (; cursor < batch.size(); cursor++) {
+                if (finished[cursor]) {
+                    onToolExecuted(batch.get(cursor), results[cursor]);
+                }
+            }
+        }
+    }
+
     private ChatMemory getMemory() {
         return getMemory(memoryId);
     }
@@ -217,6 +387,11 @@ class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler
 
     @Override
     public void onError(Throwable error) {
+        if (isCancelled()) {
+            // Most likely caused by aborting the response, nobody is listening anymore
+            LOG.debug("Ignored error after cancellation", error);
+            return;
+        }
         if (errorHandler != null) {
             try {
                 errorHandler.accept(error);
@@ -19,6 +19,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static dev.langchain4j.internal.Utils.copy;
 import static dev.langchain4j.internal.ValidationUtils.ensureNotEmpty;
@@ -43,6 +44,9 @@ public class AiServiceTokenStream implements TokenStream {
     private Consumer<Throwable> errorHandler;
     private BiConsumer<Integer, ToolExecutionRequest> partialToolExecutionRequestHandler;
     private BiConsumer<Integer, ToolExecutionRequest> completeToolExecutionRequestHandler;
+    private Function<ToolExecutionRequest, String> toolResourceKeyExtractor;
+
+    private volatile boolean cancelled;
 
     private int onPartialResponseInvoked;
     private int onCompleteResponseInvoked;
@@ -116,6 +120,12 @@ public class AiServiceTokenStream implements TokenStream {
         return this;
     }
 
+    @Override
+    public TokenStream parallelToolExecution(Function<ToolExecutionRequest, String> resourceKeyExtractor) {
+        this.toolResourceKeyExtractor = resourceKeyExtractor;
+        return this;
+    }
+
     @Override
     public TokenStream ignoreErrors() {
         this.errorHandler = null;
@@ -152,7 +162,9 @@ public class AiServiceTokenStream implements TokenStream {
                 toolSpecifications,
                 toolExecutors,
                 commonGuardrailParams,
-                methodKey);
+                methodKey,
+                toolResourceKeyExtractor,
+                () -> cancelled);
 
         if (contentsHandler != null && retrievedContents != null) {
             contentsHandler.accept(retrievedContents);
@@ -161,6 +173,11 @@ public class AiServiceTokenStream implements TokenStream {
         context.streamingChatModel.chat(chatRequest, handler);
     }
 
+    @Override
+    public void cancel() {
+        this.cancelled = true;
+    }
+
     private void validateConfiguration() {
         if (onPartialResponseInvoked != 1) {
             throw new IllegalConfigurationException("onPartialResponse must be invoked on TokenStream exactly 1 time");
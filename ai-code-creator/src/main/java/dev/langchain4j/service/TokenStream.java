@@ -9,6 +9,7 @@ import dev.langchain4j.service.tool.ToolExecution;
 import java.util.List;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Represents a token stream from the model to which you can subscribe and receive updates
@@ -67,6 +68,21 @@ public interface TokenStream {
      */
     TokenStream onError(Consumer<Throwable> errorHandler);
 
+    /**
+     * Enables concurrent execution of the tool requests returned in a single model response.
+     * <p>
+     * The extractor maps each request to the resource it touches (for example a file path). Requests with
+     * the same key are executed sequentially in their original order, requests returning {@code null} are
+     * executed alone. Results are still added to memory and passed to {@link #onToolExecuted(Consumer)}
+     * in request order, each one as soon as every result before it is available. Disabled (strictly sequential execution) unless this method is invoked.
+     *
+     * @param resourceKeyExtractor maps a tool execution request to the resource it touches, or {@code null}
+     * @return token stream instance used to configure or start stream processing
+     */
+    default TokenStream parallelToolExecution(Function<ToolExecutionRequest, String> resourceKeyExtractor) {
+        return this;
+    }
+
     /**
      * All errors during streaming will be ignored (but will be logged with a WARN log level).
      *
@@ -80,4 +96,13 @@ public interface TokenStream {
      * Will send a request to LLM and start response streaming.
      */
     void start();
+
+    /**
+     * Cancels a started stream. The response currently being streamed is abandoned (the model
+     * stops reading it) and tool requests the model has not yet got results for are not executed,
+     * so no further round trips to the model are made. No handler is invoked after cancellation.
+     * Does nothing unless the implementation supports cancellation.
+     */
+    default void cancel() {
+    }
 }
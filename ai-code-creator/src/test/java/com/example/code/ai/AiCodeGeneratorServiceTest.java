@@ -19,26 +19,26 @@ class AiCodeGeneratorServiceTest {
 
     @Test
     void generateHtmlCode() {
-        HtmlCodeResult result = aiCodeGeneratorService.generateHtmlCode("做个程序员鱼皮的工作记录小工具");
+        HtmlCodeResult result = aiCodeGeneratorService.generateHtmlCode(1L, "做个程序员鱼皮的工作记录小工具");
         Assertions.assertNotNull(result);
     }
 
     @Test
     void generateMultiFileCode() {
-        MultiFileCodeResult multiFileCode = aiCodeGeneratorService.generateMultiFileCode("做个程序员鱼皮的留言板");
+        MultiFileCodeResult multiFileCode = aiCodeGeneratorService.generateMultiFileCode(1L, "做个程序员鱼皮的留言板");
         Assertions.assertNotNull(multiFileCode);
     }
 
 
     @Test
     void testChatMemory() {
-        HtmlCodeResult result = aiCodeGeneratorService.generateHtmlCode( "做个程序员鱼皮的工具网站，总代码量不超过 20 行");
+        HtmlCodeResult result = aiCodeGeneratorService.generateHtmlCode(1L, "做个程序员鱼皮的工具网站，总代码量不超过 20 行");
         Assertions.assertNotNull(result);
-        result = aiCodeGeneratorService.generateHtmlCode("不要生成网站，告诉我你刚刚做了什么？");
+        result = aiCodeGeneratorService.generateHtmlCode(1L, "不要生成网站，告诉我你刚刚做了什么？");
         Assertions.assertNotNull(result);
-        result = aiCodeGeneratorService.generateHtmlCode( "做个程序员鱼皮的工具网站，总代码量不超过 20 行");
+        result = aiCodeGeneratorService.generateHtmlCode(1L, "做个程序员鱼皮的工具网站，总代码量不超过 20 行");
         Assertions.assertNotNull(result);
-        result = aiCodeGeneratorService.generateHtmlCode( "不要生成网站，告诉我你刚刚做了什么？");
+        result = aiCodeGeneratorService.generateHtmlCode(1L, "不要生成网站，告诉我你刚刚做了什么？");
         Assertions.assertNotNull(result);
     }
 
@@ -0,0 +1,81 @@
+package com.example.code.ai.memory;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedisListChatMemoryStoreTest {
+
+    @Test
+    void dropCountFindsSlidingWindowOverlap() {
+        // 只追加
+        assertEquals(0, RedisListChatMemoryStore.findDropCount(List.of("a", "b"), List.of("a", "b", "c")));
+        // 窗口滑动：删除头部一条再追加
+        assertEquals(1, RedisListChatMemoryStore.findDropCount(List.of("a", "b", "c"), List.of("b", "c", "d")));
+        // 没有重叠时整体重写
+        assertEquals(2, RedisListChatMemoryStore.findDropCount(List.of("a", "b"), List.of("x", "y")));
+        assertEquals(0, RedisListChatMemoryStore.findDropCount(List.of(), List.of("a")));
+    }
+
+    @Test
+    void compactedToolMessagesKeepTheirStableKey() {
+        AiMessage toolCall = AiMessage.from(ToolExecutionRequest.builder()
+                .id("call_1")
+                .name("writeFile")
+                .arguments("{\"relativeFilePath\":\"src/App.vue\",\"content\":\"" + "x".repeat(500) + "\"}")
+                .build());
+        AiMessage compacted = AiMessage.from(ToolExecutionRequest.builder()
+                .id("call_1")
+                .name("writeFile")
+                .arguments("{\"relativeFilePath\":\"src/App.vue\",\"content\":\"[已省略 500 字符]\"}")
+                .build());
+        UserMessage userMessage = UserMessage.from("hi");
+        List<String> stored = List.of(hash(userMessage), hash(toolCall));
+        List<String> updated = List.of(hash(userMessage), hash(compacted), hash(AiMessage.from("done")));
+
+        // 压缩后仍能对齐，只需替换第二条并追加第三条
+        assertNotEquals(stored.get(1), updated.get(1));
+        assertEquals(0, RedisListChatMemoryStore.findDropCount(RedisListChatMemoryStore.stableKeys(stored),
+                RedisListChatMemoryStore.stableKeys(updated)));
+    }
+
+    @Test
+    void windowStartsAtTurnBoundary() {
+        AiMessage toolCall = AiMessage.from(ToolExecutionRequest.builder().id("call_1").name("writeFile").arguments("{}").build());
+        ToolExecutionResultMessage toolResult = ToolExecutionResultMessage.from("call_1", "writeFile", "ok");
+        List<ChatMessage> messages = List.of(UserMessage.from("u1"), toolCall, toolResult, AiMessage.from("a1"),
+                UserMessage.from("u2"), AiMessage.from("a2"));
+        assertEquals(0, RedisListChatMemoryStore.findWindowStart(messages, 10));
+        // 截断点落在工具执行结果上时顺延到下一轮
+        assertEquals(4, RedisListChatMemoryStore.findWindowStart(messages, 4));
+        // 单轮超出上限时不从工具执行结果开始
+        assertEquals(3, RedisListChatMemoryStore.findWindowStart(messages.subList(0, 4), 2));
+    }
+
+    @Test
+    void codecRoundTripsAndCompressesLargeMessages() {
+        String content = "<template><div class=\"item\">hello</div></template>\n".repeat(200);
+        AiMessage toolCall = AiMessage.from(ToolExecutionRequest.builder()
+                .id("call_1")
+                .name("writeFile")
+                .arguments("{\"relativeFilePath\":\"src/App.vue\",\"content\":\"" + content.replace("\"", "\\\"").replace("\n", "\\n") + "\"}")
+                .build());
+        byte[] encoded = ChatMessageCodec.encode(toolCall);
+        assertTrue(encoded.length < content.length() / 5);
+        assertEquals(toolCall, ChatMessageCodec.decode(encoded));
+
+        ChatMessage small = UserMessage.from("hi");
+        assertEquals(small, ChatMessageCodec.decode(ChatMessageCodec.encode(small)));
+    }
+
+    private static String hash(ChatMessage message) {
+        return RedisListChatMemoryStore.hash(message, ChatMessageCodec.encode(message));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.code.ai.memory;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.store.memory.chat.InMemoryChatMemoryStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RAtomicLong;
+import org.redisson.api.RedissonClient;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class TieredChatMemoryStoreTest {
+
+    private final TieredChatMemoryStore store = new TieredChatMemoryStore();
+
+    private final AtomicInteger delegateWrites = new AtomicInteger();
+
+    private final InMemoryChatMemoryStore delegate = new InMemoryChatMemoryStore() {
+        @Override
+        public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+            delegateWrites.incrementAndGet();
+            super.updateMessages(memoryId, messages);
+        }
+    };
+
+    private final AtomicLong version = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        RAtomicLong atomicLong = mock(RAtomicLong.class);
+        when(atomicLong.get()).thenAnswer(invocation -> version.get());
+        when(atomicLong.incrementAndGet()).thenAnswer(invocation -> version.incrementAndGet());
+        RedissonClient redissonClient = mock(RedissonClient.class);
+        when(redissonClient.getAtomicLong(anyString())).thenReturn(atomicLong);
+        ReflectionTestUtils.setField(store, "delegate", delegate);
+        ReflectionTestUtils.setField(store, "redissonClient", redissonClient);
+        ReflectionTestUtils.setField(store, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(store, "maxChars", 1_000_000L);
+        ReflectionTestUtils.setField(store, "expireMinutes", 30L);
+        ReflectionTestUtils.setField(store, "ttlSeconds", 3600L);
+        store.init();
+    }
+
+    @Test
+    void writesAreCoalescedUntilFlush() {
+        for (int i = 0; i < 10; i++) {
+            List<ChatMessage> messages = new ArrayList<>(store.getMessages(1L));
+            messages.add(UserMessage.from("m" + i));
+            store.updateMessages(1L, messages);
+        }
+        assertEquals(0, delegateWrites.get());
+        assertEquals(10, store.getMessages(1L).size());
+
+        store.flush(1L);
+        assertEquals(1, delegateWrites.get());
+        assertEquals(10, delegate.getMessages(1L).size());
+        // 没有新的修改时不重复写回
+        store.flush(1L);
+        assertEquals(1, delegateWrites.get());
+    }
+
+    @Test
+    void reloadsWhenAnotherNodeWrote() {
+        store.updateMessages(1L, List.of(UserMessage.from("hi")));
+        store.flush(1L);
+        // 模拟其他节点写回了新的内容
+        delegate.updateMessages(1L, List.of(UserMessage.from("hi"), AiMessage.from("hello")));
+        version.incrementAndGet();
+
+        assertEquals(2, store.getMessages(1L).size());
+    }
+}
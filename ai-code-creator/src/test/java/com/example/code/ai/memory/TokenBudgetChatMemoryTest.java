@@ -0,0 +1,126 @@
+package com.example.code.ai.memory;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.TokenCountEstimator;
+import dev.langchain4j.store.memory.chat.InMemoryChatMemoryStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBudgetChatMemoryTest {
+
+    /**
+     * 按字符数 / 4 粗略估算
+     */
+    private final TokenCountEstimator estimator = new TokenCountEstimator() {
+        @Override
+        public int estimateTokenCountInText(String text) {
+            return text.length() / 4;
+        }
+
+        @Override
+        public int estimateTokenCountInMessage(ChatMessage message) {
+            return message.toString().length() / 4;
+        }
+
+        @Override
+        public int estimateTokenCountInMessages(Iterable<ChatMessage> messages) {
+            int total = 0;
+            for (ChatMessage message : messages) {
+                total += estimateTokenCountInMessage(message);
+            }
+            return total;
+        }
+    };
+
+    @Test
+    void oldToolArgumentsAreReplacedWithReferences() {
+        TokenBudgetChatMemory memory = new TokenBudgetChatMemory(1L, new InMemoryChatMemoryStore(), estimator, 100_000, 2000);
+        memory.add(SystemMessage.from("system"));
+        memory.add(UserMessage.from("做一个待办应用"));
+        String content = "x".repeat(5000);
+        memory.add(AiMessage.from(writeFile("call_1", "src/App.vue", content)));
+        memory.add(ToolExecutionResultMessage.from("call_1", "writeFile", "ok"));
+        // 最近一次工具调用保持原样
+        assertTrue(((AiMessage) memory.messages().get(2)).toolExecutionRequests().get(0).arguments().contains(content));
+
+        memory.add(AiMessage.from(writeFile("call_2", "src/main.js", content)));
+        String compacted = ((AiMessage) memory.messages().get(2)).toolExecutionRequests().get(0).arguments();
+        assertFalse(compacted.contains(content));
+        assertTrue(compacted.contains("src/App.vue"));
+        assertTrue(compacted.contains("已省略 5000 字符"));
+    }
+
+    @Test
+    void evictedTurnsAreFoldedIntoSummary() {
+        TokenBudgetChatMemory memory = new TokenBudgetChatMemory(1L, new InMemoryChatMemoryStore(), estimator, 800, 2000);
+        memory.add(SystemMessage.from("system"));
+        for (int i = 0; i < 10; i++) {
+            memory.add(UserMessage.from("需求 " + i + " " + "y".repeat(300)));
+            memory.add(AiMessage.from("回复 " + i + " " + "z".repeat(300)));
+        }
+        List<ChatMessage> messages = memory.messages();
+        // 摘要附在系统消息末尾，系统消息之后直接是保留下来的最早一轮
+        String systemText = ((SystemMessage) messages.get(0)).text();
+        assertTrue(systemText.startsWith("system\n\n" + TokenBudgetChatMemory.SUMMARY_PREFIX + "\n"));
+        assertTrue(systemText.contains("需求 8"));
+        assertTrue(systemText.length() <= "system\n\n".length() + 2000 + TokenBudgetChatMemory.SUMMARY_PREFIX.length() + 1);
+        assertTrue(((UserMessage) messages.get(1)).singleText().startsWith("需求 "));
+        // 最近一轮完整保留
+        assertTrue(((AiMessage) messages.get(messages.size() - 1)).text().startsWith("回复 9"));
+        assertTrue(estimator.estimateTokenCountInMessages(messages) <= 800);
+    }
+
+    @Test
+    void sameSystemPromptKeepsSummary() {
+        TokenBudgetChatMemory memory = new TokenBudgetChatMemory(1L, new InMemoryChatMemoryStore(), estimator, 800, 2000);
+        memory.add(SystemMessage.from("system"));
+        for (int i = 0; i < 10; i++) {
+            memory.add(UserMessage.from("需求 " + i + " " + "y".repeat(300)));
+            memory.add(AiMessage.from("回复 " + i + " " + "z".repeat(300)));
+        }
+        SystemMessage withSummary = (SystemMessage) memory.messages().get(0);
+        memory.add(SystemMessage.from("system"));
+        assertEquals(withSummary, memory.messages().get(0));
+
+        memory.add(SystemMessage.from("new system"));
+        String systemText = ((SystemMessage) memory.messages().get(0)).text();
+        assertTrue(systemText.startsWith("new system\n\n" + TokenBudgetChatMemory.SUMMARY_PREFIX));
+        assertTrue(systemText.contains("需求 8"));
+    }
+
+    @Test
+    void historyIsCompactedOnlyOnce() {
+        InMemoryChatMemoryStore store = new InMemoryChatMemoryStore();
+        TokenBudgetChatMemory memory = new TokenBudgetChatMemory(1L, store, estimator, 100_000, 2000);
+        memory.add(SystemMessage.from("system"));
+        memory.add(UserMessage.from("做一个待办应用"));
+        memory.add(AiMessage.from(writeFile("call_1", "src/App.vue", "x".repeat(5000))));
+        memory.add(ToolExecutionResultMessage.from("call_1", "readFile", "r".repeat(5000)));
+        memory.add(AiMessage.from("完成"));
+        memory.add(UserMessage.from("改一下标题"));
+        List<ChatMessage> afterFirstTurn = memory.messages();
+        assertTrue(((ToolExecutionResultMessage) afterFirstTurn.get(3)).text().contains("已省略 4500 字符"));
+
+        // 之后的轮次只追加，已压缩的历史不再变化
+        memory.add(AiMessage.from("好的"));
+        memory.add(UserMessage.from("再加一个按钮"));
+        memory.add(AiMessage.from("好的"));
+        assertEquals(afterFirstTurn, memory.messages().subList(0, afterFirstTurn.size()));
+    }
+
+    private static ToolExecutionRequest writeFile(String id, String path, String content) {
+        return ToolExecutionRequest.builder()
+                .id(id)
+                .name("writeFile")
+                .arguments("{\"relativeFilePath\":\"" + path + "\",\"content\":\"" + content + "\"}")
+                .build();
+    }
+}
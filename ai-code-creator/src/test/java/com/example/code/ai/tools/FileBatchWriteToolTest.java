@@ -0,0 +1,70 @@
+package com.example.code.ai.tools;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.RandomUtil;
+import com.example.code.constant.AppConstant;
+import com.example.code.core.workspace.ProjectWorkspaceManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileBatchWriteToolTest {
+
+    private final FileBatchWriteTool fileBatchWriteTool = new FileBatchWriteTool();
+
+    private final long appId = RandomUtil.randomLong(1_000_000_000L, 2_000_000_000L);
+
+    private final File projectDir = new File(AppConstant.CODE_OUTPUT_ROOT_DIR, "vue_project_" + appId);
+
+    private final ProjectWorkspaceManager projectWorkspaceManager = new ProjectWorkspaceManager();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(projectWorkspaceManager, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(projectWorkspaceManager, "maxBytes", 1L << 20);
+        ReflectionTestUtils.setField(projectWorkspaceManager, "expireMinutes", 30L);
+        projectWorkspaceManager.init();
+        ReflectionTestUtils.setField(fileBatchWriteTool, "projectWorkspaceManager", projectWorkspaceManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        FileUtil.del(projectDir);
+    }
+
+    @Test
+    void writesAllFiles() {
+        String result = fileBatchWriteTool.writeFiles(List.of(
+                new FileBatchWriteTool.FileItem("package.json", "{}"),
+                new FileBatchWriteTool.FileItem("src/App.vue", "<template></template>")
+        ), appId);
+
+        assertTrue(result.startsWith("文件批量写入成功"));
+        // 写回前只在工作区中
+        assertFalse(projectDir.exists());
+        projectWorkspaceManager.flush(appId);
+        assertEquals("{}", FileUtil.readUtf8String(new File(projectDir, "package.json")));
+        assertEquals("<template></template>", FileUtil.readUtf8String(new File(projectDir, "src/App.vue")));
+        // 不留下临时文件
+        assertEquals(1, FileUtil.ls(new File(projectDir, "src").getPath()).length);
+    }
+
+    @Test
+    void writesNothingWhenAnyPathIsInvalid() {
+        String result = fileBatchWriteTool.writeFiles(List.of(
+                new FileBatchWriteTool.FileItem("src/App.vue", "<template></template>"),
+                new FileBatchWriteTool.FileItem("../escape.txt", "x")
+        ), appId);
+
+        assertTrue(result.startsWith("批量写入失败"));
+        projectWorkspaceManager.flush(appId);
+        assertFalse(projectDir.exists());
+    }
+}
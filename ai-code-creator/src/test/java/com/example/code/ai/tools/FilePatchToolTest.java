@@ -0,0 +1,71 @@
+package com.example.code.ai.tools;
+
+import com.example.code.core.workspace.ProjectWorkspaceManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilePatchToolTest {
+
+    private static final String CONTENT = """
+            <template>
+              <h1>标题</h1>
+              <p>内容</p>
+            </template>
+            <script setup>
+            const count = 0
+            </script>
+            """;
+
+    @Test
+    void appliesAllHunksAgainstOriginalContent() {
+        FilePatchTool.PatchResult result = FilePatchTool.applyHunks(CONTENT, List.of(
+                new FilePatchTool.Hunk("const count = 0", "const count = ref(0)"),
+                new FilePatchTool.Hunk("<h1>标题</h1>", "<h1>新标题</h1>")
+        ));
+
+        assertTrue(result.success());
+        assertTrue(result.content().contains("<h1>新标题</h1>"));
+        assertTrue(result.content().contains("const count = ref(0)"));
+        assertTrue(result.report().contains("修改 1：第 6 行"));
+        assertTrue(result.report().contains("修改 2：第 2 行"));
+    }
+
+    @Test
+    void rejectsWholePatchWhenAnyHunkFails() {
+        FilePatchTool.PatchResult result = FilePatchTool.applyHunks(CONTENT, List.of(
+                new FilePatchTool.Hunk("<h1>标题</h1>", "<h1>新标题</h1>"),
+                new FilePatchTool.Hunk("不存在", "x"),
+                new FilePatchTool.Hunk("template>", "div>")
+        ));
+
+        assertFalse(result.success());
+        assertEquals(CONTENT, result.content());
+        assertTrue(result.report().contains("修改 2：失败，文件中未找到旧内容"));
+        assertTrue(result.report().contains("修改 3：失败，旧内容在文件中出现多次"));
+    }
+
+    @Test
+    void rejectsOverlappingHunks() {
+        FilePatchTool.PatchResult result = FilePatchTool.applyHunks(CONTENT, List.of(
+                new FilePatchTool.Hunk("<h1>标题</h1>\n  <p>", "x"),
+                new FilePatchTool.Hunk("<p>内容</p>", "y")
+        ));
+
+        assertFalse(result.success());
+        assertTrue(result.report().contains("重叠"));
+    }
+
+    @Test
+    void rejectsPathsOutsideProject() {
+        FilePatchTool filePatchTool = new FilePatchTool();
+        ReflectionTestUtils.setField(filePatchTool, "projectWorkspaceManager", new ProjectWorkspaceManager());
+        List<FilePatchTool.Hunk> hunks = List.of(new FilePatchTool.Hunk("a", "b"));
+
+        assertTrue(filePatchTool.patchFile("../escape.txt", hunks, 1L).contains("路径超出项目目录"));
+        assertTrue(filePatchTool.patchFile("/etc/hosts", hunks, 1L).contains("路径超出项目目录"));
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.code.core.builder;
+
+import cn.hutool.core.io.FileUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BuildFingerprintTest {
+
+    private final BuildFingerprint buildFingerprint = new BuildFingerprint();
+
+    @Test
+    void upToDateUntilSourceChanges(@TempDir File projectDir) {
+        FileUtil.writeUtf8String("{}", new File(projectDir, "package.json"));
+        FileUtil.writeUtf8String("<template></template>", new File(projectDir, "src/App.vue"));
+        BuildFingerprint.Manifest manifest = buildFingerprint.snapshot(projectDir);
+        // 没有 dist 时不能跳过
+        buildFingerprint.record(projectDir, manifest);
+        assertFalse(buildFingerprint.isUpToDate(projectDir, buildFingerprint.snapshot(projectDir)));
+
+        FileUtil.mkdir(new File(projectDir, "dist"));
+        assertTrue(buildFingerprint.isUpToDate(projectDir, buildFingerprint.snapshot(projectDir)));
+
+        // 忽略的目录不影响指纹
+        FileUtil.writeUtf8String("x", new File(projectDir, "node_modules/vue/index.js"));
+        FileUtil.writeUtf8String("x", new File(projectDir, "dist/index.html"));
+        assertTrue(buildFingerprint.isUpToDate(projectDir, buildFingerprint.snapshot(projectDir)));
+
+        FileUtil.writeUtf8String("<template><div/></template>", new File(projectDir, "src/App.vue"));
+        assertFalse(buildFingerprint.isUpToDate(projectDir, buildFingerprint.snapshot(projectDir)));
+
+        buildFingerprint.record(projectDir, buildFingerprint.snapshot(projectDir));
+        assertTrue(buildFingerprint.isUpToDate(projectDir, buildFingerprint.snapshot(projectDir)));
+        buildFingerprint.invalidate(projectDir);
+        assertFalse(buildFingerprint.isUpToDate(projectDir, buildFingerprint.snapshot(projectDir)));
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.code.core.builder;
+
+import cn.hutool.core.io.FileUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NodeModulesStoreTest {
+
+    private final NodeModulesStore nodeModulesStore = new NodeModulesStore();
+
+    @Test
+    void hashIgnoresNameAndKeyOrder(@TempDir File dir1, @TempDir File dir2) {
+        FileUtil.writeUtf8String("""
+                {"name": "vue_project_1", "dependencies": {"vue": "^3.4.0", "vue-router": "^4.2.0"}}
+                """, new File(dir1, "package.json"));
+        FileUtil.writeUtf8String("""
+                {
+                  "dependencies": {
+                    "vue-router": "^4.2.0",
+                    "vue": "^3.4.0"
+                  },
+                  "name": "vue_project_2"
+                }
+                """, new File(dir2, "package.json"));
+        assertEquals(nodeModulesStore.computeDependencyHash(dir1), nodeModulesStore.computeDependencyHash(dir2));
+    }
+
+    @Test
+    void hashChangesWithDependenciesAndLockFile(@TempDir File dir1, @TempDir File dir2) {
+        FileUtil.writeUtf8String("{\"dependencies\": {\"vue\": \"^3.4.0\"}}", new File(dir1, "package.json"));
+        FileUtil.writeUtf8String("{\"dependencies\": {\"vue\": \"^3.5.0\"}}", new File(dir2, "package.json"));
+        String hash1 = nodeModulesStore.computeDependencyHash(dir1);
+        assertNotEquals(hash1, nodeModulesStore.computeDependencyHash(dir2));
+        FileUtil.writeUtf8String("{\"lockfileVersion\": 3}", new File(dir1, "package-lock.json"));
+        assertNotEquals(hash1, nodeModulesStore.computeDependencyHash(dir1));
+    }
+
+    @Test
+    void gcRemovesOnlyUnreferencedEntries(@TempDir Path storeRoot, @TempDir Path projectsRoot) throws Exception {
+        ReflectionTestUtils.setField(nodeModulesStore, "storeRoot", storeRoot);
+        ReflectionTestUtils.setField(nodeModulesStore, "projectsRoot", projectsRoot);
+        ReflectionTestUtils.setField(nodeModulesStore, "retainDays", 0L);
+        Path used = Files.createDirectories(storeRoot.resolve("used").resolve("node_modules"));
+        Files.createDirectories(storeRoot.resolve("unused").resolve("node_modules"));
+        Files.createDirectories(storeRoot.resolve("unused.tmp-abc"));
+        Path project = Files.createDirectories(projectsRoot.resolve("vue_project_1"));
+        Files.createSymbolicLink(project.resolve("node_modules"), used);
+        Thread.sleep(20);
+
+        assertEquals(2, nodeModulesStore.collectGarbage());
+        assertTrue(Files.isDirectory(used));
+        assertFalse(Files.exists(storeRoot.resolve("unused")));
+        assertFalse(Files.exists(storeRoot.resolve("unused.tmp-abc")));
+        // 删除的依赖组合不再保留锁
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(nodeModulesStore, "hashLocks")).isEmpty());
+    }
+}
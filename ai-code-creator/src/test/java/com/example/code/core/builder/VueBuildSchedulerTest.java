@@ -0,0 +1,86 @@
+package com.example.code.core.builder;
+
+import com.example.code.core.builder.VueBuildScheduler.BuildPriority;
+import com.example.code.exception.BusinessException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VueBuildSchedulerTest {
+
+    private VueBuildScheduler scheduler;
+
+    private final List<String> executed = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new VueBuildScheduler();
+        ReflectionTestUtils.setField(scheduler, "maxConcurrent", 1);
+        ReflectionTestUtils.setField(scheduler, "maxQueueSize", 5);
+    }
+
+    @Test
+    void deployFirstThenRoundRobinPerUser() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> blocker = scheduler.submit(0L, BuildPriority.PREVIEW, () -> await(release), null);
+        List<Integer> positions = new CopyOnWriteArrayList<>();
+        scheduler.submit(1L, BuildPriority.PREVIEW, record("a1"), positions::add);
+        scheduler.submit(1L, BuildPriority.PREVIEW, record("a2"), null);
+        scheduler.submit(2L, BuildPriority.PREVIEW, record("b1"), null);
+        CompletableFuture<Boolean> last = scheduler.submit(3L, BuildPriority.DEPLOY, record("deploy"), null);
+        // 部署任务插到了 a1 前面
+        assertEquals(List.of(1, 2), positions);
+        release.countDown();
+        assertTrue(blocker.get(5, TimeUnit.SECONDS));
+        last.get(5, TimeUnit.SECONDS);
+        waitForSize(4);
+        assertEquals(List.of("deploy", "a1", "b1", "a2"), executed);
+    }
+
+    @Test
+    void rejectWhenQueueIsFullAndRemoveCancelledTask() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.submit(0L, BuildPriority.PREVIEW, () -> await(release), null);
+        CompletableFuture<Boolean> cancelled = scheduler.submit(1L, BuildPriority.PREVIEW, record("cancelled"), null);
+        for (int i = 0; i < 4; i++) {
+            scheduler.submit(1L, BuildPriority.PREVIEW, record("task" + i), null);
+        }
+        assertThrows(BusinessException.class, () -> scheduler.submit(2L, BuildPriority.PREVIEW, record("rejected"), null));
+        cancelled.cancel(false);
+        // 取消后腾出了队列位置
+        scheduler.submit(2L, BuildPriority.PREVIEW, record("accepted"), null);
+        release.countDown();
+        waitForSize(5);
+        assertFalse(executed.contains("cancelled"));
+        assertTrue(executed.contains("accepted"));
+    }
+
+    private BooleanSupplier record(String name) {
+        return () -> executed.add(name);
+    }
+
+    private boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void waitForSize(int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executed.size() < size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
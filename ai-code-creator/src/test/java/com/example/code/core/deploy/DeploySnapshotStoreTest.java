@@ -0,0 +1,119 @@
+package com.example.code.core.deploy;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.RandomUtil;
+import cn.hutool.crypto.SecureUtil;
+import com.example.code.constant.AppConstant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeploySnapshotStoreTest {
+
+    private final DeploySnapshotStore deploySnapshotStore = new DeploySnapshotStore();
+
+    private final String deployKey = "test_" + RandomUtil.randomString(6);
+
+    @AfterEach
+    void tearDown() {
+        deploySnapshotStore.unpublish(deployKey);
+        deploySnapshotStore.shutdown();
+    }
+
+    @Test
+    void publishSwitchesPointerAndSharesUnchangedFiles(@TempDir File v1, @TempDir File v2) throws Exception {
+        ReflectionTestUtils.setField(deploySnapshotStore, "gcDelayMinutes", 10L);
+        FileUtil.writeUtf8String("<html>v1</html>", new File(v1, "index.html"));
+        FileUtil.writeUtf8String("body{}", new File(v1, "assets/style.css"));
+        FileUtil.writeUtf8String("<html>v2</html>", new File(v2, "index.html"));
+        FileUtil.writeUtf8String("body{}", new File(v2, "assets/style.css"));
+        Path pointer = Path.of(AppConstant.CODE_DEPLOY_ROOT_DIR, deployKey);
+
+        deploySnapshotStore.publish(v1, deployKey);
+        assertTrue(Files.isSymbolicLink(pointer));
+        Path firstSnapshot = Files.readSymbolicLink(pointer);
+        assertEquals("<html>v1</html>", Files.readString(pointer.resolve("index.html")));
+
+        deploySnapshotStore.publish(v2, deployKey);
+        Path secondSnapshot = Files.readSymbolicLink(pointer);
+        assertNotEquals(firstSnapshot, secondSnapshot);
+        assertEquals("<html>v2</html>", Files.readString(pointer.resolve("index.html")));
+        // 旧快照在回收前仍然完整可读
+        assertEquals("<html>v1</html>", Files.readString(firstSnapshot.resolve("index.html")));
+        // 未变化的文件只存一份
+        assertTrue(Files.isSameFile(firstSnapshot.resolve("assets/style.css"), secondSnapshot.resolve("assets/style.css")));
+
+        // 相同内容复用同一个快照
+        deploySnapshotStore.publish(v1, deployKey);
+        assertEquals(firstSnapshot, Files.readSymbolicLink(pointer));
+    }
+
+    @Test
+    void republishDoesNotTouchSharedFilesAndGcRemovesUnreferencedSnapshots(@TempDir File v1, @TempDir File v2) throws Exception {
+        ReflectionTestUtils.setField(deploySnapshotStore, "gcDelayMinutes", 0L);
+        FileUtil.writeUtf8String("<html>v1</html>", new File(v1, "index.html"));
+        FileUtil.writeUtf8String("body{}", new File(v1, "assets/style.css"));
+        FileUtil.writeUtf8String("<html>v2</html>", new File(v2, "index.html"));
+        FileUtil.writeUtf8String("body{}", new File(v2, "assets/style.css"));
+        Path pointer = Path.of(AppConstant.CODE_DEPLOY_ROOT_DIR, deployKey);
+
+        deploySnapshotStore.publish(v1, deployKey);
+        Path firstSnapshot = Files.readSymbolicLink(pointer);
+        FileTime styleModified = Files.getLastModifiedTime(firstSnapshot.resolve("assets/style.css"));
+        Thread.sleep(20);
+        deploySnapshotStore.publish(v2, deployKey);
+        Path secondSnapshot = Files.readSymbolicLink(pointer);
+        // 未变化的文件（与对象是同一个 inode）修改时间不变，客户端缓存仍然有效
+        assertEquals(styleModified, Files.getLastModifiedTime(secondSnapshot.resolve("assets/style.css")));
+
+        deploySnapshotStore.collectGarbage();
+        assertFalse(Files.exists(firstSnapshot));
+        assertEquals("<html>v2</html>", Files.readString(pointer.resolve("index.html")));
+        assertEquals("body{}", Files.readString(pointer.resolve("assets/style.css")));
+    }
+
+    @Test
+    void publishCopiesSnapshotWhenSymbolicLinksAreUnsupported(@TempDir File v1, @TempDir File v2) throws Exception {
+        ReflectionTestUtils.setField(deploySnapshotStore, "gcDelayMinutes", 10L);
+        ((AtomicBoolean) ReflectionTestUtils.getField(deploySnapshotStore, "symbolicLinkUnsupported")).set(true);
+        FileUtil.writeUtf8String("<html>v1</html>", new File(v1, "index.html"));
+        FileUtil.writeUtf8String("<html>v2</html>", new File(v2, "index.html"));
+        Path pointer = Path.of(AppConstant.CODE_DEPLOY_ROOT_DIR, deployKey);
+
+        deploySnapshotStore.publish(v1, deployKey);
+        assertFalse(Files.isSymbolicLink(pointer));
+        assertEquals("<html>v1</html>", Files.readString(pointer.resolve("index.html")));
+
+        deploySnapshotStore.publish(v2, deployKey);
+        assertFalse(Files.isSymbolicLink(pointer));
+        assertEquals("<html>v2</html>", Files.readString(pointer.resolve("index.html")));
+    }
+
+    @Test
+    void copyModeDoesNotKeepObjects(@TempDir File v1) throws Exception {
+        ReflectionTestUtils.setField(deploySnapshotStore, "gcDelayMinutes", 0L);
+        ((AtomicBoolean) ReflectionTestUtils.getField(deploySnapshotStore, "hardLinkUnsupported")).set(true);
+        String content = "<html>" + RandomUtil.randomString(16) + "</html>";
+        FileUtil.writeUtf8String(content, new File(v1, "index.html"));
+        String hash = SecureUtil.sha256(content);
+        Path object = Path.of(AppConstant.CODE_DEPLOY_STORE_DIR, "objects", hash.substring(0, 2), hash);
+        Path pointer = Path.of(AppConstant.CODE_DEPLOY_ROOT_DIR, deployKey);
+
+        deploySnapshotStore.publish(v1, deployKey);
+        assertEquals(content, Files.readString(pointer.resolve("index.html")));
+        assertFalse(Files.exists(object));
+
+        deploySnapshotStore.unpublish(deployKey);
+        deploySnapshotStore.collectGarbage();
+        assertFalse(Files.exists(object));
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.code.core.handler;
+
+import com.example.code.ai.model.message.AiResponseMessage;
+import com.example.code.ai.model.message.StreamMessage;
+import com.example.code.ai.model.message.ToolExecutedMessage;
+import com.example.code.ai.model.message.ToolRequestMessage;
+import com.example.code.ai.tools.FileWriteTool;
+import com.example.code.ai.tools.ToolManager;
+import com.example.code.core.builder.VueProjectBuilder;
+import com.example.code.core.workspace.ProjectWorkspaceManager;
+import com.example.code.model.entity.User;
+import com.example.code.model.enums.ChatHistoryMessageTypeEnum;
+import com.example.code.service.ChatHistoryService;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.service.tool.ToolExecution;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class JsonMessageStreamHandlerTest {
+
+    private final JsonMessageStreamHandler handler = new JsonMessageStreamHandler();
+
+    private final ChatHistoryService chatHistoryService = mock(ChatHistoryService.class);
+
+    private final User loginUser = new User();
+
+    @BeforeEach
+    void setUp() {
+        ToolManager toolManager = mock(ToolManager.class);
+        when(toolManager.getTool("writeFile")).thenReturn(new FileWriteTool());
+        VueProjectBuilder vueProjectBuilder = mock(VueProjectBuilder.class);
+        when(vueProjectBuilder.buildProjectWithProgress(anyString(), any())).thenReturn(Flux.just("[构建完成]"));
+        ReflectionTestUtils.setField(handler, "toolManager", toolManager);
+        ReflectionTestUtils.setField(handler, "vueProjectBuilder", vueProjectBuilder);
+        ReflectionTestUtils.setField(handler, "projectWorkspaceManager", mock(ProjectWorkspaceManager.class));
+        loginUser.setId(7L);
+    }
+
+    @Test
+    void convertsTypedEventsWithoutJsonRoundTrip() {
+        ToolExecutionRequest request = ToolExecutionRequest.builder()
+                .id("call_1")
+                .name("writeFile")
+                .arguments("{\"relativeFilePath\":\"src/App.vue\",\"content\":\"<template/>\"}")
+                .build();
+        Flux<StreamMessage> events = Flux.just(
+                new AiResponseMessage("开始"),
+                new ToolRequestMessage(request),
+                // 同一个工具调用的后续参数片段不重复输出
+                new ToolRequestMessage(request),
+                new ToolExecutedMessage(ToolExecution.builder().request(request).result("ok").build()),
+                new AiResponseMessage("完成")
+        );
+
+        List<String> output = handler.handle(events, chatHistoryService, 1L, loginUser).collectList().block();
+
+        assertNotNull(output);
+        assertEquals(5, output.size());
+        assertEquals("开始", output.get(0));
+        assertEquals("\n\n[选择工具] 写入文件\n\n", output.get(1));
+        assertTrue(output.get(2).contains("[工具调用] 写入文件 src/App.vue"));
+        assertTrue(output.get(2).contains("<template/>"));
+        assertEquals("完成", output.get(3));
+        assertEquals("[构建完成]", output.get(4));
+        // 对话历史只记录文本和工具执行结果
+        verify(chatHistoryService).addChatMessage(eq(1L), argThat(history -> history.startsWith("开始\n\n[工具调用]")
+                && history.endsWith("完成") && !history.contains("[选择工具]")), eq(ChatHistoryMessageTypeEnum.AI.getValue()), eq(7L));
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.code.core.job;
+
+import com.example.code.exception.BusinessException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenerationJobExecutorTest {
+
+    private GenerationJobExecutor executor;
+
+    private final List<Long> executed = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        executor = new GenerationJobExecutor();
+        ReflectionTestUtils.setField(executor, "maxConcurrent", 1);
+        ReflectionTestUtils.setField(executor, "maxQueueSize", 2);
+    }
+
+    @Test
+    void runsQueuedJobsInOrderWhenSlotFrees() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.submit(1L, () -> {
+            started.countDown();
+            await(release);
+            executed.add(1L);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.submit(2L, () -> executed.add(2L));
+        executor.submit(3L, () -> executed.add(3L));
+
+        assertEquals(0, executor.getQueuePosition(1L));
+        assertEquals(1, executor.getQueuePosition(2L));
+        assertEquals(2, executor.getQueuePosition(3L));
+        // 正在执行的任务不占用队列位置，队列满时拒绝
+        assertThrows(BusinessException.class, () -> executor.submit(4L, () -> executed.add(4L)));
+
+        release.countDown();
+        waitForSize(3);
+        assertEquals(List.of(1L, 2L, 3L), executed);
+        assertEquals(0, executor.getQueuePosition(3L));
+    }
+
+    @Test
+    void failedJobReleasesItsSlot() throws Exception {
+        executor.submit(1L, () -> {
+            throw new IllegalStateException("boom");
+        });
+        executor.submit(2L, () -> executed.add(2L));
+
+        waitForSize(1);
+        assertEquals(List.of(2L), executed);
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void waitForSize(int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executed.size() < size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.code.core.parser;
+
+import com.example.code.ai.model.enums.CodeGenTypeEnum;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingCodeParserTest {
+
+    private static final String MULTI_FILE_RESPONSE = """
+            好的，下面是完整的网页：
+            ```html
+            <!DOCTYPE html>
+            <html>
+            <body><h1>欢迎使用</h1></body>
+            </html>
+            ```
+            样式文件：
+            ```css
+            h1 { color: blue; }
+            ```
+            脚本文件：
+            ```javascript
+            const s = `模板字符串 ${1 + 1}`;
+            console.log(s);
+            ```
+            文件创建完成！
+            """;
+
+    @Test
+    void parseMultiFileCodeCharByChar() {
+        RecordingHandler handler = new RecordingHandler();
+        StreamingCodeParser parser = new StreamingCodeParser(CodeGenTypeEnum.MULTI_FILE, handler);
+        for (char c : MULTI_FILE_RESPONSE.toCharArray()) {
+            parser.feed(String.valueOf(c));
+        }
+        parser.finish();
+        MultiFileCodeParser regexParser = new MultiFileCodeParser();
+        var expected = regexParser.parseCode(MULTI_FILE_RESPONSE);
+        assertEquals(expected.getHtmlCode(), handler.files.get("index.html"));
+        assertEquals(expected.getCssCode(), handler.files.get("style.css"));
+        assertEquals(List.of("index.html", "style.css", "script.js"), handler.closedOrder);
+        // 单个反引号（模板字符串）属于代码内容
+        assertEquals(expected.getJsCode(), handler.files.get("script.js"));
+    }
+
+    @Test
+    void fileIsClosedBeforeStreamEnds() {
+        RecordingHandler handler = new RecordingHandler();
+        StreamingCodeParser parser = new StreamingCodeParser(CodeGenTypeEnum.HTML, handler);
+        parser.feed("说明文字\n```ht");
+        parser.feed("ml\n<html></html>\n``");
+        assertTrue(handler.closedOrder.isEmpty());
+        parser.feed("`\n还有很多后续说明");
+        assertEquals(List.of("index.html"), handler.closedOrder);
+        assertEquals("<html></html>", handler.files.get("index.html"));
+    }
+
+    @Test
+    void htmlWithoutFenceFallsBackToWholeContent() {
+        RecordingHandler handler = new RecordingHandler();
+        StreamingCodeParser parser = new StreamingCodeParser(CodeGenTypeEnum.HTML, handler);
+        parser.feed("  <html><body>hi</body></html>\n");
+        parser.finish();
+        assertEquals("<html><body>hi</body></html>", handler.files.get("index.html"));
+    }
+
+    @Test
+    void abortDiscardsUnfinishedBlock() {
+        RecordingHandler handler = new RecordingHandler();
+        StreamingCodeParser parser = new StreamingCodeParser(CodeGenTypeEnum.HTML, handler);
+        parser.feed("```html\n<html>");
+        parser.abort();
+        assertTrue(handler.aborted);
+        assertTrue(handler.closedOrder.isEmpty());
+    }
+
+    private static class RecordingHandler implements StreamingCodeHandler {
+
+        private final Map<String, String> files = new LinkedHashMap<>();
+
+        private final List<String> closedOrder = new ArrayList<>();
+
+        private String current;
+
+        private final StringBuilder buffer = new StringBuilder();
+
+        private boolean aborted;
+
+        @Override
+        public void onBlockStart(String fileName) {
+            current = fileName;
+            buffer.setLength(0);
+        }
+
+        @Override
+        public void onBlockContent(CharSequence content) {
+            buffer.append(content);
+        }
+
+        @Override
+        public void onBlockEnd() {
+            files.put(current, buffer.toString());
+            closedOrder.add(current);
+        }
+
+        @Override
+        public void onAbort() {
+            aborted = true;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.code.core.stream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GenerationStreamRegistryTest {
+
+    private final GenerationStreamRegistry registry = new GenerationStreamRegistry();
+
+    private final Sinks.Many<String> generation = Sinks.many().unicast().onBackpressureBuffer();
+
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+
+    private final AtomicBoolean completed = new AtomicBoolean();
+
+    @BeforeEach
+    void setUp() {
+        SubscriberBufferLimiter limiter = new SubscriberBufferLimiter();
+        ReflectionTestUtils.setField(limiter, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(limiter, "subscriberMaxChars", 1000L);
+        ReflectionTestUtils.setField(limiter, "nodeMaxChars", 10000L);
+        ReflectionTestUtils.setField(limiter, "lagThresholdChars", 100L);
+        limiter.init();
+        GenerationReplayLog replayLog = mock(GenerationReplayLog.class);
+        when(replayLog.openSpiller(any(), anyString())).thenReturn(mock(GenerationReplayLog.Spiller.class));
+        ReflectionTestUtils.setField(registry, "replaySize", 16);
+        ReflectionTestUtils.setField(registry, "generationReplayLog", replayLog);
+        ReflectionTestUtils.setField(registry, "subscriberBufferLimiter", limiter);
+    }
+
+    @Test
+    void cancelsGenerationWhenLastSubscriberLeaves() {
+        List<String> received = new ArrayList<>();
+        Disposable subscription = registry.getOrStart(1L, "msg", this::generation, false)
+                .subscribe(event -> received.add(event.getData()));
+
+        generation.tryEmitNext("a");
+        subscription.dispose();
+
+        assertEquals(List.of("a"), received);
+        assertTrue(cancelled.get());
+        assertNull(registry.getInFlight(1L));
+    }
+
+    @Test
+    void finishesGenerationInBackgroundAfterLastSubscriberLeaves() {
+        List<String> received = new ArrayList<>();
+        Disposable subscription = registry.getOrStart(1L, "msg", this::generation, true)
+                .subscribe(event -> received.add(event.getData()));
+
+        generation.tryEmitNext("a");
+        subscription.dispose();
+        assertFalse(cancelled.get());
+        assertNotNull(registry.getInFlight(1L));
+
+        // 后来的订阅者仍能拿到断开期间生成的内容
+        generation.tryEmitNext("b");
+        List<String> replayed = new ArrayList<>();
+        registry.getInFlight(1L).subscribe(event -> replayed.add(event.getData()));
+        generation.tryEmitComplete();
+
+        assertEquals(List.of("a"), received);
+        assertEquals(List.of("a", "b"), replayed);
+        assertTrue(completed.get());
+        assertFalse(cancelled.get());
+        assertNull(registry.getInFlight(1L));
+    }
+
+    @Test
+    void onlySameMessageJoinsInFlightGeneration() {
+        Flux<GenerationEvent> first = registry.getOrStart(1L, "msg", this::generation, false);
+        first.subscribe();
+
+        assertNotNull(registry.getOrStart(1L, "msg", this::generation, false));
+        assertNull(registry.getOrStart(1L, "other", this::generation, false));
+    }
+
+    @Test
+    void startDoesNotJoinInFlightGeneration() {
+        registry.getOrStart(1L, "msg", this::generation, false).subscribe();
+
+        assertNull(registry.start(1L, "msg", this::generation, true));
+
+        generation.tryEmitComplete();
+        assertNotNull(registry.start(1L, "msg", Flux::empty, true));
+    }
+
+    private Flux<String> generation() {
+        return generation.asFlux()
+                .doOnCancel(() -> cancelled.set(true))
+                .doOnComplete(() -> completed.set(true));
+    }
+}
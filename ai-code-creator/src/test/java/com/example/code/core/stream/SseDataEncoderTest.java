@@ -0,0 +1,34 @@
+package com.example.code.core.stream;
+
+import cn.hutool.json.JSONUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SseDataEncoderTest {
+
+    @Test
+    void encodesPlainText() {
+        assertEquals("{\"d\":\"你好 world\"}", SseDataEncoder.encode("你好 world"));
+        assertEquals("{\"d\":\"\"}", SseDataEncoder.encode(""));
+    }
+
+    @Test
+    void escapesSpecialCharacters() {
+        String data = "\"quote\" \\ back\nline\r\t\b\f \u0001 \u2028 <script>";
+
+        String encoded = SseDataEncoder.encode(data);
+
+        assertEquals("{\"d\":\"\\\"quote\\\" \\\\ back\\nline\\r\\t\\b\\f \\u0001 \\u2028 <script>\"}", encoded);
+        // 与原来的 JSONUtil 编码解析结果一致
+        assertEquals(data, JSONUtil.parseObj(encoded).getStr("d"));
+    }
+
+    @Test
+    void largeFramesDoNotBreakLaterEncoding() {
+        String large = "x".repeat(100_000);
+
+        assertEquals(100_008, SseDataEncoder.encode(large).length());
+        assertEquals("{\"d\":\"ok\"}", SseDataEncoder.encode("ok"));
+    }
+}
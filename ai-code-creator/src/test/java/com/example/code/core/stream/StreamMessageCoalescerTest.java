@@ -0,0 +1,86 @@
+package com.example.code.core.stream;
+
+import com.example.code.ai.model.message.AiResponseMessage;
+import com.example.code.ai.model.message.StreamMessage;
+import com.example.code.ai.model.message.ToolRequestMessage;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamMessageCoalescerTest {
+
+    @Test
+    void mergesTextAndFlushesBeforeToolEvents() {
+        ToolExecutionRequest request = ToolExecutionRequest.builder().id("1").name("writeFile").arguments("{}").build();
+        Flux<StreamMessage> source = Flux.just(
+                new AiResponseMessage("a"), new AiResponseMessage("b"), new AiResponseMessage("c"),
+                new ToolRequestMessage(request),
+                new AiResponseMessage("d"), new AiResponseMessage("e"));
+
+        List<StreamMessage> result = StreamMessageCoalescer.coalesce(source, Duration.ofSeconds(10), 4096, Schedulers.parallel())
+                .collectList().block();
+
+        assertNotNull(result);
+        assertEquals(3, result.size());
+        assertEquals("abc", ((AiResponseMessage) result.get(0)).getData());
+        assertInstanceOf(ToolRequestMessage.class, result.get(1));
+        assertEquals("de", ((AiResponseMessage) result.get(2)).getData());
+    }
+
+    @Test
+    void flushesWhenMaxCharsReached() {
+        Flux<StreamMessage> source = Flux.range(0, 10).map(i -> new AiResponseMessage("xx"));
+
+        List<StreamMessage> result = StreamMessageCoalescer.coalesce(source, Duration.ofSeconds(10), 6, Schedulers.parallel())
+                .collectList().block();
+
+        assertNotNull(result);
+        assertEquals(List.of("xxxxxx", "xxxxxx", "xxxxxx", "xx"),
+                result.stream().map(message -> ((AiResponseMessage) message).getData()).toList());
+    }
+
+    @Test
+    void flushesPendingTextAfterMaxDelay() throws InterruptedException {
+        Sinks.Many<StreamMessage> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        List<StreamMessage> received = new CopyOnWriteArrayList<>();
+        StreamMessageCoalescer.coalesce(upstream.asFlux(), Duration.ofMillis(20), 4096, Schedulers.parallel())
+                .subscribe(received::add);
+
+        upstream.tryEmitNext(new AiResponseMessage("hello"));
+        assertTrue(received.isEmpty());
+        for (int i = 0; i < 100 && received.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(1, received.size());
+        assertEquals("hello", ((AiResponseMessage) received.get(0)).getData());
+    }
+
+    @Test
+    void cancelPropagatesUpstream() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Flux<StreamMessage> source = Flux.<StreamMessage>never().doOnCancel(() -> cancelled.set(true));
+
+        StreamMessageCoalescer.coalesce(source, Duration.ofMillis(20), 4096, Schedulers.parallel())
+                .subscribe()
+                .dispose();
+
+        assertTrue(cancelled.get());
+    }
+
+    @Test
+    void zeroDelayDisablesCoalescing() {
+        Flux<StreamMessage> source = Flux.just(new AiResponseMessage("a"), new AiResponseMessage("b"));
+
+        assertSame(source, StreamMessageCoalescer.coalesce(source, Duration.ZERO, 4096, Schedulers.parallel()));
+    }
+}
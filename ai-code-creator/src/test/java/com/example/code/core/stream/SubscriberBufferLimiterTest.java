@@ -0,0 +1,133 @@
+package com.example.code.core.stream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubscriberBufferLimiterTest {
+
+    private final SubscriberBufferLimiter limiter = new SubscriberBufferLimiter();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final Sinks.Many<GenerationEvent> upstream = Sinks.many().multicast().directBestEffort();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(limiter, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(limiter, "subscriberMaxChars", 100L);
+        ReflectionTestUtils.setField(limiter, "nodeMaxChars", 1000L);
+        ReflectionTestUtils.setField(limiter, "lagThresholdChars", 10L);
+        limiter.init();
+    }
+
+    @Test
+    void mergesPendingEventsWhileSubscriberHasNoDemand() {
+        ManualSubscriber subscriber = new ManualSubscriber();
+        limiter.limit(upstream.asFlux()).subscribe(subscriber);
+
+        subscriber.request(1);
+        emit(1, "a");
+        emit(2, "bb");
+        emit(3, "cc");
+        emit(4, "dddddddd");
+
+        assertEquals(List.of("g-1:a"), subscriber.received);
+        assertEquals(12, limiter.getBufferedChars());
+        assertEquals(1.0, meterRegistry.get("code_gen.stream.lagging_subscribers").gauge().value());
+
+        subscriber.request(1);
+
+        // 合并后的事件 ID 取最后一个，断线续传从这里继续
+        assertEquals(List.of("g-1:a", "g-4:bbccdddddddd"), subscriber.received);
+        assertEquals(0, limiter.getBufferedChars());
+        assertEquals(0.0, meterRegistry.get("code_gen.stream.lagging_subscribers").gauge().value());
+        assertEquals(1.0, meterRegistry.get("code_gen.stream.lagging_subscribers_total").counter().count());
+    }
+
+    @Test
+    void completesAfterPendingEventsAreDelivered() {
+        ManualSubscriber subscriber = new ManualSubscriber();
+        limiter.limit(upstream.asFlux()).subscribe(subscriber);
+
+        emit(1, "a");
+        upstream.tryEmitComplete();
+        assertFalse(subscriber.completed);
+
+        subscriber.request(1);
+
+        assertEquals(List.of("g-1:a"), subscriber.received);
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    void dropsSubscriberThatExceedsItsBuffer() {
+        ManualSubscriber subscriber = new ManualSubscriber();
+        limiter.limit(upstream.asFlux()).subscribe(subscriber);
+
+        emit(1, "x".repeat(60));
+        emit(2, "x".repeat(60));
+
+        assertNotNull(subscriber.error);
+        assertEquals(0, limiter.getBufferedChars());
+        assertEquals(1.0, meterRegistry.get("code_gen.stream.dropped_subscribers").counter().count());
+        // 上游订阅已取消
+        assertEquals(0, upstream.currentSubscriberCount());
+    }
+
+    @Test
+    void cancelReleasesBufferedChars() {
+        ManualSubscriber subscriber = new ManualSubscriber();
+        limiter.limit(upstream.asFlux()).subscribe(subscriber);
+
+        emit(1, "abc");
+        assertEquals(3, limiter.getBufferedChars());
+        subscriber.dispose();
+
+        assertEquals(0, limiter.getBufferedChars());
+    }
+
+    private void emit(long seq, String data) {
+        upstream.tryEmitNext(new GenerationEvent("g", seq, data));
+    }
+
+    /**
+     * 只在手动请求时接收，模拟慢客户端
+     */
+    private static class ManualSubscriber extends BaseSubscriber<GenerationEvent> {
+
+        private final List<String> received = new ArrayList<>();
+
+        private boolean completed;
+
+        private Throwable error;
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+        }
+
+        @Override
+        protected void hookOnNext(GenerationEvent event) {
+            received.add(event.getEventId() + ":" + event.getData());
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            completed = true;
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            error = throwable;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.code.core.workspace;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DirectoryIndexTest {
+
+    @Test
+    void rendersSortedTreeWithOneEntryPerLine() {
+        DirectoryIndex index = new DirectoryIndex();
+        index.addFile(Path.of("package.json"));
+        index.addFile(Path.of("src/main.js"));
+        index.addFile(Path.of("src/App.vue"));
+        index.addFile(Path.of("src/components/Header.vue"));
+        index.addFile(Path.of("index.html"));
+
+        StringBuilder out = new StringBuilder();
+        index.render(Path.of(""), name -> false, out);
+
+        assertEquals("""
+                src/
+                  components/
+                    Header.vue
+                  App.vue
+                  main.js
+                index.html
+                package.json
+                """, out.toString());
+    }
+
+    @Test
+    void rendersSubDirectoryAndSkipsIgnoredSubtrees() {
+        DirectoryIndex index = new DirectoryIndex();
+        index.addFile(Path.of("src/App.vue"));
+        index.addFile(Path.of("src/.cache/x.js"));
+        index.addFile(Path.of("src/debug.log"));
+
+        StringBuilder out = new StringBuilder();
+        index.render(Path.of("src"), name -> name.equals(".cache") || name.endsWith(".log"), out);
+
+        assertEquals("App.vue\n", out.toString());
+    }
+
+    @Test
+    void removeFilePrunesEmptyDirectories() {
+        DirectoryIndex index = new DirectoryIndex();
+        index.addFile(Path.of("src/components/Header.vue"));
+        index.addFile(Path.of("src/App.vue"));
+
+        index.removeFile(Path.of("src/components/Header.vue"));
+
+        assertFalse(index.isDirectory(Path.of("src/components")));
+        assertTrue(index.isDirectory(Path.of("src")));
+        assertEquals(List.of(Path.of("src/App.vue")), index.listFiles(Path.of("")));
+        assertEquals(128, index.weight());
+
+        index.removeFile(Path.of("src/App.vue"));
+        assertFalse(index.isDirectory(Path.of("")));
+        assertEquals(0, index.weight());
+    }
+
+    @Test
+    void fileIsNotADirectory() {
+        DirectoryIndex index = new DirectoryIndex();
+        index.addFile(Path.of("src/App.vue"));
+
+        assertFalse(index.isDirectory(Path.of("src/App.vue")));
+        assertTrue(index.listFiles(Path.of("src/App.vue")).isEmpty());
+    }
+
+    @Test
+    void addFileRejectsExistingDirectory() {
+        DirectoryIndex index = new DirectoryIndex();
+        index.addFile(Path.of("src/components/Header.vue"));
+        index.addFile(Path.of("src/App.vue"));
+
+        assertThrows(IllegalArgumentException.class, () -> index.addFile(Path.of("src/components")));
+
+        assertTrue(index.isDirectory(Path.of("src/components")));
+        assertEquals(2, index.listFiles(Path.of("")).size());
+        assertEquals(256, index.weight());
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.code.core.workspace;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProjectWorkspaceTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void writesStayInMemoryUntilFlush() throws IOException {
+        ProjectWorkspace workspace = new ProjectWorkspace(root);
+        Path file = root.resolve("src/App.vue");
+
+        workspace.write(file, "<template></template>");
+
+        assertEquals("<template></template>", workspace.read(file));
+        assertTrue(workspace.isFile(file));
+        assertTrue(workspace.isDirectory(root.resolve("src")));
+        assertFalse(Files.exists(file));
+        assertTrue(workspace.isDirty());
+
+        assertEquals(1, workspace.flush());
+        assertEquals("<template></template>", Files.readString(file));
+        assertFalse(workspace.isDirty());
+        // 不留下临时文件
+        try (var files = Files.list(root.resolve("src"))) {
+            assertEquals(1, files.count());
+        }
+        // 已写回的文件不重复写
+        assertEquals(0, workspace.flush());
+    }
+
+    @Test
+    void readsFromDiskOnceAndServesLaterReadsFromMemory() throws IOException {
+        Path file = root.resolve("package.json");
+        Files.writeString(file, "{}");
+        ProjectWorkspace workspace = new ProjectWorkspace(root);
+
+        assertEquals("{}", workspace.read(file));
+        Files.writeString(file, "changed on disk");
+
+        assertEquals("{}", workspace.read(file));
+        assertNull(workspace.read(root.resolve("missing.txt")));
+    }
+
+    @Test
+    void deleteHidesFileAndRemovesItOnFlush() throws IOException {
+        Path file = root.resolve("src/Old.vue");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "old");
+        ProjectWorkspace workspace = new ProjectWorkspace(root);
+
+        workspace.delete(file);
+
+        assertFalse(workspace.isFile(file));
+        assertNull(workspace.read(file));
+        assertTrue(Files.exists(file));
+        workspace.flush();
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void listFilesMergesDiskAndPendingChanges() throws IOException {
+        Files.createDirectories(root.resolve("src"));
+        Files.writeString(root.resolve("src/Keep.vue"), "keep");
+        Files.writeString(root.resolve("src/Gone.vue"), "gone");
+        Files.createDirectories(root.resolve("node_modules/vue"));
+        Files.writeString(root.resolve("node_modules/vue/index.js"), "");
+        ProjectWorkspace workspace = new ProjectWorkspace(root);
+
+        workspace.write(root.resolve("src/New.vue"), "new");
+        workspace.delete(root.resolve("src/Gone.vue"));
+
+        List<Path> files = workspace.listFiles(root);
+        assertEquals(2, files.size());
+        assertTrue(files.contains(root.resolve("src/Keep.vue")));
+        assertTrue(files.contains(root.resolve("src/New.vue")));
+    }
+
+    @Test
+    void directoryIndexIsBuiltOnceAndKeptInSyncWithWrites() throws IOException {
+        Files.createDirectories(root.resolve("src"));
+        Files.writeString(root.resolve("src/App.vue"), "app");
+        ProjectWorkspace workspace = new ProjectWorkspace(root);
+
+        assertEquals("src/\n  App.vue\n", workspace.renderTree(root, name -> false));
+        // 索引建立后不再扫描磁盘
+        Files.writeString(root.resolve("outside.txt"), "written by someone else");
+        workspace.write(root.resolve("src/components/Header.vue"), "header");
+        workspace.delete(root.resolve("src/App.vue"));
+
+        assertEquals("src/\n  components/\n    Header.vue\n", workspace.renderTree(root, name -> false));
+        assertEquals("Header.vue\n", workspace.renderTree(root.resolve("src/components"), name -> false));
+    }
+
+    @Test
+    void weightGrowsWithLoadedContent() throws IOException {
+        ProjectWorkspace workspace = new ProjectWorkspace(root);
+        int empty = workspace.weight();
+
+        workspace.write(root.resolve("a.txt"), "x".repeat(1000));
+
+        assertTrue(workspace.weight() >= empty + 2000);
+    }
+
+    @Test
+    void writeRejectsExistingDirectory() throws IOException {
+        Files.createDirectories(root.resolve("public"));
+        Files.writeString(root.resolve("public/logo.svg"), "<svg/>");
+        ProjectWorkspace workspace = new ProjectWorkspace(root);
+        workspace.write(root.resolve("src/components/Header.vue"), "<template></template>");
+
+        // 磁盘上的目录和尚未写回的目录都不能被文件覆盖
+        assertThrows(IllegalArgumentException.class, () -> workspace.write(root.resolve("public"), "x"));
+        assertThrows(IllegalArgumentException.class, () -> workspace.write(root.resolve("src/components"), "x"));
+        assertTrue(workspace.isDirectory(root.resolve("src/components")));
+        assertThrows(IllegalArgumentException.class, () -> workspace.write(root.resolve("src/components"), "x"));
+        // 一批中有冲突时整批都不写入
+        assertThrows(IllegalArgumentException.class, () -> workspace.write(Map.of(
+                root.resolve("src/App.vue"), "<template></template>",
+                root.resolve("src"), "x")));
+        assertFalse(workspace.isFile(root.resolve("src/App.vue")));
+        assertEquals(List.of(root.resolve("src/components/Header.vue")), workspace.listFiles(root.resolve("src")));
+    }
+}